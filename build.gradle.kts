@@ -12,6 +12,14 @@ plugins {
 
 //----------------------------------------------------------------------
 
+// Repositories
+
+repositories {
+    mavenCentral()
+}
+
+//----------------------------------------------------------------------
+
 // Functions
 
 fun _path(vararg components : String): String =
@@ -37,6 +45,30 @@ val buildDir    = layout.buildDirectory.get().getAsFile().toString()
 val jarDir      = _path(buildDir, "bin")
 val jarFilename = "regexSearch.jar"
 
+val jmhVersion       = "1.37"
+val jmhMainClassName = "org.openjdk.jmh.Main"
+val jmhResultsFile   = _path(buildDir, "jmh", "results.json")
+
+//----------------------------------------------------------------------
+
+// Source sets
+
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+}
+
+//----------------------------------------------------------------------
+
+// Dependencies
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:${jmhVersion}")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:${jmhVersion}")
+}
+
 //----------------------------------------------------------------------
 
 // Compile
@@ -45,6 +77,10 @@ tasks.compileJava {
     options.release.set(javaVersion)
 }
 
+tasks.named<JavaCompile>("compileJmhJava") {
+    options.release.set(javaVersion)
+}
+
 //----------------------------------------------------------------------
 
 // Create executable JAR
@@ -83,3 +119,21 @@ tasks.register<JavaExec>("runJar") {
 }
 
 //----------------------------------------------------------------------
+
+// Run benchmarks
+//   The results are written to build/jmh/results.json.  Options are passed to JMH with the 'jmhArgs' property; for
+//   example, -PjmhArgs="FindBenchmark -p encoding=UTF-8".
+
+tasks.register<JavaExec>("jmh") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set(jmhMainClassName)
+
+    args("-rf", "json", "-rff", jmhResultsFile)
+    providers.gradleProperty("jmhArgs").orNull?.let { args(it.trim().split(Regex("\\s+"))) }
+
+    doFirst {
+        file(jmhResultsFile).parentFile.mkdirs()
+    }
+}
+
+//----------------------------------------------------------------------
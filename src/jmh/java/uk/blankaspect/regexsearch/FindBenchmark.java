@@ -0,0 +1,222 @@
+/*====================================================================*\
+
+FindBenchmark.java
+
+Class: benchmark of a find-only search of a synthetic directory tree.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.common.misc.PathnameFilter;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BENCHMARK OF A FIND-ONLY SEARCH OF A SYNTHETIC DIRECTORY TREE
+
+
+/**
+ * This class measures a find-only search of all the files of a synthetic directory tree from end to end: listing the
+ * directories, filtering the pathnames, reading and decoding the files and counting the matches.  The search is
+ * performed by {@link TextSearcher#runBatchSearch(TextSearcher.Params, TextSearcher.IBatchHandler)}, as it is from the
+ * command line.  The <i>pattern kind</i> selects the target: a literal that is present in every file, a literal that
+ * is absent from every file (so that a prefilter may skip the files), the present literal with the case of letters
+ * ignored, a regular expression that contains a literal, and a regular expression that contains no literal.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class FindBenchmark
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// KINDS OF PATTERN
+
+
+	public enum PatternKind
+	{
+		LITERAL
+		(
+			SyntheticData.NEEDLE,
+			false,
+			false
+		),
+
+		ABSENT_LITERAL
+		(
+			SyntheticData.ABSENT_WORD,
+			false,
+			false
+		),
+
+		IGNORE_CASE
+		(
+			SyntheticData.NEEDLE,
+			false,
+			true
+		),
+
+		REGEX
+		(
+			"\\b" + SyntheticData.NEEDLE + "\\s+\\w+",
+			true,
+			false
+		),
+
+		REGEX_NO_LITERAL
+		(
+			"\\b[a-z]{8}\\b",
+			true,
+			false
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	target;
+		private	boolean	regex;
+		private	boolean	ignoreCase;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PatternKind(
+			String	target,
+			boolean	regex,
+			boolean	ignoreCase)
+		{
+			this.target = target;
+			this.regex = regex;
+			this.ignoreCase = ignoreCase;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	@Param({ "100", "1000" })
+	private	int					numFiles;
+
+	@Param({ "4096", "65536" })
+	private	int					fileSize;
+
+	@Param({ "UTF-8", "ISO-8859-1", "UTF-16" })
+	private	String				encoding;
+
+	@Param
+	private	PatternKind			patternKind;
+
+	private	File				directory;
+	private	TextSearcher.Params	params;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		// Set character encoding of text model
+		AppConfig.INSTANCE.setCharacterEncoding(encoding);
+
+		// Create tree of files
+		directory = SyntheticData.createTempDirectory();
+		SyntheticData.createTree(directory, numFiles, fileSize, TextModel.getCharEncoding());
+
+		// Set search parameters
+		params = new TextSearcher.Params();
+		params.files = List.of(directory);
+		params.inclusionPatterns = List.of(PathnameFilter.PATH_MULTIPLE_WILDCARD_STR);
+		params.targetStr = patternKind.target;
+		params.regex = patternKind.regex;
+		params.ignoreCase = patternKind.ignoreCase;
+	}
+
+	//------------------------------------------------------------------
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.deleteTree(directory);
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public int find()
+		throws AppException
+	{
+		TextSearcher searcher = new TextSearcher();
+		searcher.runBatchSearch(params, new TextSearcher.IBatchHandler()
+		{
+			@Override
+			public void fileSearched(
+				TextSearcher.FileResult	result)
+			{
+				// do nothing
+			}
+
+			@Override
+			public boolean handleError(
+				AppException	exception)
+			{
+				throw new IllegalStateException(exception);
+			}
+		});
+		return searcher.getAggregateResult().numMatches();
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,210 @@
+/*====================================================================*\
+
+PathnameFilterBenchmark.java
+
+Class: benchmark of matching pathnames against pathname filters.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.common.misc.PathnameFilter;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BENCHMARK OF MATCHING PATHNAMES AGAINST PATHNAME FILTERS
+
+
+/**
+ * This class measures {@link PathnameFilter#match(File)}, which matches a pathname against a single filter, and
+ * {@link PathnameFilter.MultipleFilter#accept(File)}, which also tests whether the location is a normal file.  Each
+ * operation tests all the files of a synthetic tree of empty files.  The <i>pattern kind</i> selects the patterns of
+ * the filters; the patterns are relative to the root of the tree, as they are in a search.  The character encoding of
+ * the files has no bearing on pathname matching, so the tree is parameterised instead by the number of files and
+ * whether the case of letters is ignored.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PathnameFilterBenchmark
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// KINDS OF PATTERN
+
+
+	public enum PatternKind
+	{
+		/** A pathname without wildcards. */
+		LITERAL
+		(
+			"src/main/file0.java"
+		),
+
+		/** A filename pattern in any directory. */
+		SUFFIX
+		(
+			"**/*.java"
+		),
+
+		/** Patterns in several components of the pathname. */
+		COMPONENTS
+		(
+			"src/**/t?st/*.t*"
+		),
+
+		/** Several patterns, as in an inclusion filter with a list of filename extensions. */
+		MULTIPLE
+		(
+			"**/*.java",
+			"**/*.xml",
+			"src/**/*.properties",
+			"doc/**/*.md",
+			"**/build/**"
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String[]	patterns;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PatternKind(
+			String...	patterns)
+		{
+			this.patterns = patterns;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	@Param({ "1000", "10000" })
+	private	int				numFiles;
+
+	@Param
+	private	PatternKind		patternKind;
+
+	@Param({ "false", "true" })
+	private	boolean			ignoreCase;
+
+	private	File			directory;
+	private	File[]			files;
+	private	PathnameFilter	filter;
+	private	PathnameFilter	multipleFilter;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Setup(Level.Trial)
+	public void setUp()
+		throws AppException
+	{
+		// Create tree of empty files
+		directory = SyntheticData.createTempDirectory();
+		files = SyntheticData.createTree(directory, numFiles, 0, StandardCharsets.UTF_8).toArray(File[]::new);
+
+		// Create filters
+		List<String> patterns = new ArrayList<>();
+		for (String pattern : patternKind.patterns)
+			patterns.add(PathnameFilter.toNormalisedPathname(directory, pattern));
+		filter = new PathnameFilter(patterns.get(0), ignoreCase);
+		multipleFilter = new PathnameFilter.MultipleFilter(patterns, ignoreCase, true);
+	}
+
+	//------------------------------------------------------------------
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.deleteTree(directory);
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public int match()
+	{
+		int numMatches = 0;
+		for (File file : files)
+		{
+			if (filter.match(file))
+				++numMatches;
+		}
+		return numMatches;
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public int acceptMultiple()
+	{
+		int numAccepted = 0;
+		for (File file : files)
+		{
+			if (multipleFilter.accept(file))
+				++numAccepted;
+		}
+		return numAccepted;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,206 @@
+/*====================================================================*\
+
+ReplacementStringBenchmark.java
+
+Class: benchmark of creating a replacement string from a replacement expression.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.blankaspect.common.exception.AppException;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BENCHMARK OF CREATING A REPLACEMENT STRING FROM A REPLACEMENT EXPRESSION
+
+
+/**
+ * This class measures {@link ReplacementTemplate#append(Matcher, CharSequence, StringBuilder)}, which is called once
+ * for each replacement, and {@link ReplacementTemplate#compile(String, boolean, int)}, which is called once for each
+ * search.  The <i>pattern kind</i> selects the escape sequences of the replacement expression, which is made by
+ * repeating a unit of the selected kind up to the specified length.  The match against which group references are
+ * resolved is an e-mail address with three groups.  A replacement expression is independent of the character
+ * encoding of the file, so the benchmark is parameterised instead by the length of the expression.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReplacementStringBenchmark
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	String	TARGET		= "(\\w+)@(\\w+)\\.(\\w+)";
+	private static final	String	MATCH_TEXT	= "Contact: user@example.com";
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// KINDS OF PATTERN
+
+
+	public enum PatternKind
+	{
+		/** Literal text of a literal search. */
+		LITERAL
+		(
+			false,
+			"replacement "
+		),
+
+		/** Literal text of a regular-expression search. */
+		REGEX_LITERAL
+		(
+			true,
+			"replacement "
+		),
+
+		/** Group references. */
+		GROUPS
+		(
+			true,
+			"\\3.\\2@\\1 "
+		),
+
+		/** Group references with case conversion. */
+		CASE_CONVERSION
+		(
+			true,
+			"\\U1-\\L2 "
+		),
+
+		/** Character escapes. */
+		ESCAPES
+		(
+			true,
+			"\\t\\u00E9\\n"
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	boolean	regex;
+		private	String	unit;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PatternKind(
+			boolean	regex,
+			String	unit)
+		{
+			this.regex = regex;
+			this.unit = unit;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	@Param({ "16", "256", "4096" })
+	private	int					expressionLength;
+
+	@Param
+	private	PatternKind			patternKind;
+
+	private	String				expression;
+	private	ReplacementTemplate	template;
+	private	Matcher				matcher;
+	private	StringBuilder		outBuffer;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Setup(Level.Trial)
+	public void setUp()
+		throws AppException
+	{
+		// Create replacement expression from whole units
+		StringBuilder buffer = new StringBuilder(expressionLength + patternKind.unit.length());
+		do
+		{
+			buffer.append(patternKind.unit);
+		}
+		while (buffer.length() < expressionLength);
+		expression = buffer.toString();
+
+		// Find match
+		matcher = Pattern.compile(TARGET).matcher(MATCH_TEXT);
+		matcher.find();
+
+		// Compile template
+		template = ReplacementTemplate.compile(expression, patternKind.regex, matcher.groupCount());
+		outBuffer = new StringBuilder();
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public int appendReplacement()
+	{
+		outBuffer.setLength(0);
+		template.append(matcher, MATCH_TEXT, outBuffer);
+		return outBuffer.length();
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public ReplacementTemplate compile()
+		throws AppException
+	{
+		return ReplacementTemplate.compile(expression, patternKind.regex, matcher.groupCount());
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
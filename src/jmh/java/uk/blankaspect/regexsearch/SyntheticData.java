@@ -0,0 +1,282 @@
+/*====================================================================*\
+
+SyntheticData.java
+
+Class: generator of synthetic text and directory trees for benchmarks.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import java.nio.charset.Charset;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import java.util.stream.Stream;
+
+import uk.blankaspect.common.misc.LineSeparator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: GENERATOR OF SYNTHETIC TEXT AND DIRECTORY TREES FOR BENCHMARKS
+
+
+/**
+ * This class provides methods that generate the synthetic text and directory trees on which the benchmarks are run.
+ * The text consists of lines of words that are chosen pseudo-randomly from a fixed vocabulary, which includes some
+ * words that have non-ASCII characters from the Latin-1 range, so that the text can be encoded in UTF-8, ISO 8859-1
+ * and UTF-16 without loss.  The {@linkplain #NEEDLE needle} appears at a fixed interval, so that a search for it has a
+ * predictable number of matches.  The same seed always produces the same text.
+ */
+
+class SyntheticData
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** A word that appears in the text at a fixed interval. */
+	public static final		String	NEEDLE	= "needle";
+
+	/** A word that never appears in the text. */
+	public static final		String	ABSENT_WORD	= "zyzzyva";
+
+	/** The number of words between successive occurrences of the needle. */
+	public static final		int		NEEDLE_INTERVAL	= 1000;
+
+	public static final		long	SEED	= 0x5EA2C4L;
+
+	private static final	int		MIN_LINE_LENGTH	= 20;
+	private static final	int		MAX_LINE_LENGTH	= 100;
+
+	private static final	String	TEMP_DIRECTORY_PREFIX	= "regexSearch-jmh-";
+
+	private static final	String[]	WORDS	=
+	{
+		"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel", "india", "juliet", "kilo", "lima",
+		"mike", "november", "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform", "victor", "whiskey",
+		"xray", "yankee", "zulu", "caf\u00E9", "na\u00EFve", "fa\u00E7ade", "\u00FCber", "\u00C6r\u00F8", "Hello",
+		"World", "user@example.com", "0x1F", "42", "{", "}", "(", ")", ";"
+	};
+
+	private static final	String[]	DIRECTORY_NAMES	=
+	{
+		"src", "main", "test", "resources", "doc", "lib", "build", "tmp"
+	};
+
+	private static final	String[]	FILENAME_SUFFIXES	=
+	{
+		".java", ".txt", ".xml", ".properties", ".md"
+	};
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private SyntheticData()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns synthetic text of the specified length whose lines are separated by the specified line separator.
+	 *
+	 * @param  length
+	 *           the length of the text.
+	 * @param  lineSeparator
+	 *           the line separator that will be appended to each line.
+	 * @param  seed
+	 *           the seed of the pseudo-random generator that chooses the words.
+	 * @return synthetic text of length {@code length}.
+	 */
+
+	public static String createText(
+		int				length,
+		LineSeparator	lineSeparator,
+		long			seed)
+	{
+		Random random = new Random(seed);
+		String separator = lineSeparator.getSeparator();
+		StringBuilder buffer = new StringBuilder(length + MAX_LINE_LENGTH);
+		int lineLength = 0;
+		int maxLineLength = MIN_LINE_LENGTH + random.nextInt(MAX_LINE_LENGTH - MIN_LINE_LENGTH);
+		int numWords = 0;
+		while (buffer.length() < length)
+		{
+			String word = (++numWords % NEEDLE_INTERVAL == 0) ? NEEDLE : WORDS[random.nextInt(WORDS.length)];
+			if (lineLength > 0)
+			{
+				if (lineLength + word.length() >= maxLineLength)
+				{
+					buffer.append(separator);
+					lineLength = 0;
+					maxLineLength = MIN_LINE_LENGTH + random.nextInt(MAX_LINE_LENGTH - MIN_LINE_LENGTH);
+				}
+				else
+				{
+					buffer.append(' ');
+					++lineLength;
+				}
+			}
+			buffer.append(word);
+			lineLength += word.length();
+		}
+		buffer.setLength(length);
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a temporary directory.
+	 *
+	 * @return the new directory.
+	 */
+
+	public static File createTempDirectory()
+	{
+		try
+		{
+			return Files.createTempDirectory(TEMP_DIRECTORY_PREFIX).toFile();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes synthetic text of the specified length to a file.
+	 *
+	 * @param file
+	 *          the file to which the text will be written.
+	 * @param length
+	 *          the length of the text.
+	 * @param lineSeparator
+	 *          the line separator that will be appended to each line.
+	 * @param charset
+	 *          the character encoding of the file.
+	 * @param seed
+	 *          the seed of the pseudo-random generator that chooses the words.
+	 */
+
+	public static void writeText(
+		File			file,
+		int				length,
+		LineSeparator	lineSeparator,
+		Charset			charset,
+		long			seed)
+	{
+		try
+		{
+			Files.writeString(file.toPath(), createText(length, lineSeparator, seed), charset);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a tree of files in the specified directory.  The files are distributed over nested directories whose
+	 * names are chosen from a fixed set; the suffixes of their names are chosen from a fixed set of filename
+	 * extensions.  If {@code fileLength} is greater than zero, each file contains synthetic text of that length;
+	 * otherwise, each file is empty.
+	 *
+	 * @param  root
+	 *           the directory in which the tree will be created.
+	 * @param  numFiles
+	 *           the number of files in the tree.
+	 * @param  fileLength
+	 *           the length of the text of each file.
+	 * @param  charset
+	 *           the character encoding of the files.
+	 * @return a list of the files in the tree.
+	 */
+
+	public static List<File> createTree(
+		File	root,
+		int		numFiles,
+		int		fileLength,
+		Charset	charset)
+	{
+		Random random = new Random(SEED);
+		List<File> files = new ArrayList<>(numFiles);
+		for (int i = 0; i < numFiles; i++)
+		{
+			// Choose a directory that is between one and four levels below the root
+			File directory = root;
+			int depth = 1 + random.nextInt(4);
+			for (int j = 0; j < depth; j++)
+				directory = new File(directory, DIRECTORY_NAMES[random.nextInt(DIRECTORY_NAMES.length)]);
+			directory.mkdirs();
+
+			// Create file
+			File file = new File(directory, "file" + i + FILENAME_SUFFIXES[random.nextInt(FILENAME_SUFFIXES.length)]);
+			writeText(file, fileLength, LineSeparator.LF, charset, SEED + i);
+			files.add(file);
+		}
+		return files;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Deletes the specified directory and all the files and directories beneath it.
+	 *
+	 * @param directory
+	 *          the directory that will be deleted.
+	 */
+
+	public static void deleteTree(
+		File	directory)
+	{
+		if (directory != null)
+		{
+			try (Stream<Path> paths = Files.walk(directory.toPath()))
+			{
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,153 @@
+/*====================================================================*\
+
+TextModelReadBenchmark.java
+
+Class: benchmark of reading a file into a text model.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.nio.charset.Charset;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.common.misc.LineSeparator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BENCHMARK OF READING A FILE INTO A TEXT MODEL
+
+
+/**
+ * This class measures {@link TextModel#read(File, boolean, BytePrefilter)}, which decodes a file and changes its line
+ * separators to LFs.  The <i>pattern kind</i> selects the byte prefilter that is applied before the file is decoded:
+ * none, one whose literal is present in the file, or one whose literal is absent, so that the file is rejected without
+ * being decoded.  A prefilter can't be created for UTF-16, in which case the file is always decoded.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TextModelReadBenchmark
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// KINDS OF PATTERN
+
+
+	public enum PatternKind
+	{
+		NONE,
+		PRESENT_LITERAL,
+		ABSENT_LITERAL
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	@Param({ "65536", "1048576", "16777216" })
+	private	int				fileSize;
+
+	@Param({ "UTF-8", "ISO-8859-1", "UTF-16" })
+	private	String			encoding;
+
+	@Param({ "LF", "CR_LF" })
+	private	LineSeparator	lineSeparator;
+
+	@Param
+	private	PatternKind		patternKind;
+
+	@Param({ "false", "true" })
+	private	boolean			mapped;
+
+	private	File			directory;
+	private	File			file;
+	private	BytePrefilter	prefilter;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		// Set character encoding of text model
+		AppConfig.INSTANCE.setCharacterEncoding(encoding);
+		Charset charset = TextModel.getCharEncoding();
+
+		// Create file
+		directory = SyntheticData.createTempDirectory();
+		file = new File(directory, "text.txt");
+		SyntheticData.writeText(file, fileSize, lineSeparator, charset, SyntheticData.SEED);
+
+		// Create prefilter
+		prefilter = switch (patternKind)
+		{
+			case NONE            -> null;
+			case PRESENT_LITERAL -> BytePrefilter.create(SyntheticData.NEEDLE, false, charset);
+			case ABSENT_LITERAL  -> BytePrefilter.create(SyntheticData.ABSENT_WORD, false, charset);
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		SyntheticData.deleteTree(directory);
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public TextModel.Content read()
+		throws AppException
+	{
+		return TextModel.read(file, mapped, prefilter);
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
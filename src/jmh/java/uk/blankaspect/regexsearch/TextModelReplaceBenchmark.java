@@ -0,0 +1,187 @@
+/*====================================================================*\
+
+TextModelReplaceBenchmark.java
+
+Class: benchmark of replacing text in a text model.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.blankaspect.common.misc.LineSeparator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: BENCHMARK OF REPLACING TEXT IN A TEXT MODEL
+
+
+/**
+ * This class measures {@link TextModel#replace(TextModel.ReplacementKind, int, int, String)}, which replaces text in
+ * the piece table of a text model and updates the counts of its line separators.  Each operation replaces the next
+ * match of the target with the replacement and then restores the original text, so that the text is the same at the
+ * start of every operation.  The <i>pattern kind</i> selects whether a replacement keeps, adds or removes lines.  The
+ * text of a model has already been decoded, so the benchmark is parameterised by the length of the text but not by
+ * its encoding.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TextModelReplaceBenchmark
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// KINDS OF PATTERN
+
+
+	public enum PatternKind
+	{
+		/** A replacement within a line. */
+		SAME_LINES
+		(
+			SyntheticData.NEEDLE,
+			"pin"
+		),
+
+		/** A replacement that adds line separators. */
+		ADD_LINES
+		(
+			SyntheticData.NEEDLE,
+			"pin\npin\npin"
+		),
+
+		/** A replacement of text that spans a line separator by text that doesn't. */
+		REMOVE_LINES
+		(
+			SyntheticData.NEEDLE + "[^\n]*\n[^\n]*",
+			"pin"
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	target;
+		private	String	replacement;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PatternKind(
+			String	target,
+			String	replacement)
+		{
+			this.target = target;
+			this.replacement = replacement;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	@Param({ "65536", "1048576", "16777216" })
+	private	int			textLength;
+
+	@Param
+	private	PatternKind	patternKind;
+
+	private	TextModel	textModel;
+	private	int[]		matchStarts;
+	private	int[]		matchEnds;
+	private	int			matchIndex;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		// Create text model
+		String text = SyntheticData.createText(textLength, LineSeparator.LF, SyntheticData.SEED);
+		textModel = new TextModel(null, new PieceTable(text), ' ');
+
+		// Find matches
+		Matcher matcher = Pattern.compile(patternKind.target).matcher(text);
+		int numMatches = 0;
+		while (matcher.find())
+			++numMatches;
+		matchStarts = new int[numMatches];
+		matchEnds = new int[numMatches];
+		matcher.reset();
+		for (int i = 0; matcher.find(); i++)
+		{
+			matchStarts[i] = matcher.start();
+			matchEnds[i] = matcher.end();
+		}
+		if (numMatches == 0)
+			throw new IllegalStateException("No matches");
+		matchIndex = 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Benchmark
+	public int replaceAndRestore()
+	{
+		// Replace match and restore original text
+		textModel.replace(TextModel.ReplacementKind.REPLACE_SAVE_STATE, matchStarts[matchIndex], matchEnds[matchIndex],
+						  patternKind.replacement);
+		textModel.replace(TextModel.ReplacementKind.RESTORE, 0, 0, null);
+
+		// Move to next match
+		if (++matchIndex >= matchStarts.length)
+			matchIndex = 0;
+
+		// Return number of lines
+		return textModel.getNumLines();
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -20,6 +20,10 @@ package uk.blankaspect.common.collection;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import java.util.stream.Collector;
@@ -30,11 +34,42 @@ import java.util.stream.Collector;
 // CLASS: ARRAY SET
 
 
+/**
+ * This class implements a {@link Set} whose elements are held in insertion order in an {@link ArrayList}, so that the
+ * set may also be accessed as a {@link List}.
+ * <p>
+ * Once a set has a few elements, the membership tests that guard its additions are made against a hash index of its
+ * elements, which maps each element to the number of its occurrences in the list.  (Duplicates can arise only through
+ * {@link #set(int, Object)}.)  The index is maintained incrementally by the methods of this class that add, remove
+ * and replace elements; after any other modification of the list, it is rebuilt on the next membership test.  The
+ * {@code set} methods of a view returned by {@link #subList(int, int)} do not modify the list through this class, so
+ * the index is abandoned for good once such a view has been created.
+ * </p>
+ *
+ * @param <E>
+ *          the type of the elements in this set.
+ */
+
 public class ArraySet<E>
 	extends ArrayList<E>
 	implements Set<E>
 {
 
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The minimum number of elements of a set for which membership tests are made against a hash index. */
+	private static final	int		MIN_INDEXED_SIZE	= 16;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private transient	Map<Object, Integer>	index;
+	private transient	int						indexModCount;
+	private transient	boolean					unindexable;
+
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
 ////////////////////////////////////////////////////////////////////////
@@ -68,10 +103,7 @@ public class ArraySet<E>
 	{
 		ensureCapacity(elements.length);
 		for (E element : elements)
-		{
-			if (!contains(element))
-				super.add(element);
-		}
+			add(element);
 		trimToSize();
 	}
 
@@ -82,10 +114,7 @@ public class ArraySet<E>
 	{
 		ensureCapacity(collection.size());
 		for (E element : collection)
-		{
-			if (!contains(element))
-				super.add(element);
-		}
+			add(element);
 		trimToSize();
 	}
 
@@ -106,11 +135,26 @@ public class ArraySet<E>
 //  Instance methods : overriding methods
 ////////////////////////////////////////////////////////////////////////
 
+	@Override
+	public boolean contains(
+		Object	obj)
+	{
+		Map<Object, Integer> index = getIndex();
+		return (index == null) ? super.contains(obj) : index.containsKey(obj);
+	}
+
+	//------------------------------------------------------------------
+
 	@Override
 	public boolean add(
 		E	element)
 	{
-		return contains(element) ? false : super.add(element);
+		if (contains(element))
+			return false;
+		boolean indexed = isIndexCurrent();
+		super.add(element);
+		updateIndex(indexed, element, 1);
+		return true;
 	}
 
 	//------------------------------------------------------------------
@@ -121,7 +165,11 @@ public class ArraySet<E>
 		E	element)
 	{
 		if (!contains(element))
+		{
+			boolean indexed = isIndexCurrent();
 			super.add(index, element);
+			updateIndex(indexed, element, 1);
+		}
 	}
 
 	//------------------------------------------------------------------
@@ -133,10 +181,7 @@ public class ArraySet<E>
 		int oldLength = size();
 		ensureCapacity(oldLength + collection.size());
 		for (E element : collection)
-		{
-			if (!contains(element))
-				super.add(element);
-		}
+			add(element);
 		return (size() != oldLength);
 	}
 
@@ -148,12 +193,155 @@ public class ArraySet<E>
 		Collection<? extends E>	collection)
 	{
 		ArrayList<E> elements = new ArrayList<>(collection.size());
+		Set<E> newElements = new HashSet<>();
 		for (E element : collection)
 		{
-			if (!contains(element) && !elements.contains(element))
+			if (!contains(element) && newElements.add(element))
 				elements.add(element);
 		}
-		return super.addAll(index, elements);
+		boolean indexed = isIndexCurrent();
+		boolean changed = super.addAll(index, elements);
+		if (indexed)
+		{
+			for (E element : elements)
+				updateIndex(true, element, 1);
+		}
+		else
+			this.index = null;
+		return changed;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public E set(
+		int	index,
+		E	element)
+	{
+		boolean indexed = isIndexCurrent();
+		E oldElement = super.set(index, element);
+		updateIndex(indexed, oldElement, -1);
+		updateIndex(indexed, element, 1);
+		return oldElement;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public E remove(
+		int	index)
+	{
+		boolean indexed = isIndexCurrent();
+		E element = super.remove(index);
+		updateIndex(indexed, element, -1);
+		return element;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public boolean remove(
+		Object	obj)
+	{
+		if (!contains(obj))
+			return false;
+		boolean indexed = isIndexCurrent();
+		super.remove(obj);
+		updateIndex(indexed, obj, -1);
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public List<E> subList(
+		int	fromIndex,
+		int	toIndex)
+	{
+		unindexable = true;
+		index = null;
+		return super.subList(fromIndex, toIndex);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public Object clone()
+	{
+		@SuppressWarnings("unchecked")
+		ArraySet<E> copy = (ArraySet<E>)super.clone();
+		copy.index = null;
+		copy.unindexable = false;
+		return copy;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the hash index of the elements of this set, rebuilding it if the list has been modified since it was last
+	 * brought up to date.
+	 *
+	 * @return the hash index of the elements of this set, or {@code null} if membership tests should be made against
+	 *         the list.
+	 */
+
+	private Map<Object, Integer> getIndex()
+	{
+		// Don't index a small set
+		if (unindexable || (size() < MIN_INDEXED_SIZE))
+		{
+			index = null;
+			return null;
+		}
+
+		// Rebuild index if it is out of date
+		if (!isIndexCurrent())
+		{
+			index = new HashMap<>(size() * 4 / 3 + 1);
+			for (E element : this)
+				index.merge(element, 1, Integer::sum);
+			indexModCount = modCount;
+		}
+		return index;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean isIndexCurrent()
+	{
+		return (index != null) && (indexModCount == modCount);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the hash index after a modification of the list that changed the number of occurrences of the specified
+	 * element.  If the index was not current before the modification, it is discarded.
+	 *
+	 * @param indexed
+	 *          {@code true} if the index was current before the modification.
+	 * @param element
+	 *          the element whose number of occurrences was changed.
+	 * @param increment
+	 *          the change in the number of occurrences of {@code element}.
+	 */
+
+	private void updateIndex(
+		boolean	indexed,
+		Object	element,
+		int		increment)
+	{
+		if (indexed)
+		{
+			index.merge(element, increment, (n0, n1) -> (n0 + n1 == 0) ? null : n0 + n1);
+			indexModCount = modCount;
+		}
+		else
+			index = null;
 	}
 
 	//------------------------------------------------------------------
@@ -219,9 +407,12 @@ public class ArraySet<E>
 			int	index,
 			E	element)
 		{
-			int i = indexOf(element);
-			if ((i >= 0) && (i != index))
-				throw new ElementAlreadyExistsException();
+			if (contains(element))
+			{
+				int i = indexOf(element);
+				if ((i >= 0) && (i != index))
+					throw new ElementAlreadyExistsException();
+			}
 			return super.set(index, element);
 		}
 
@@ -22,6 +22,11 @@ import java.io.File;
 import java.io.InputStreamReader;
 import java.io.IOException;
 
+import java.nio.file.Files;
+
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -155,6 +160,16 @@ public class FileAttributeUtils
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Copies the permissions, owner and group of the specified source file to the specified destination file.  If the
+	 * file system of both files supports POSIX file attributes, the attributes of the source file are read in a single
+	 * operation and only those that differ from the attributes of the destination file are set on it; otherwise, the
+	 * attributes are copied by executing the {@code chmod} and {@code chown} commands.  In either case, symbolic links
+	 * are followed, so the attributes of the target of a link are copied.
+	 *
+	 * @throws AttributesException
+	 */
+
 	public static void copyAttributes(
 		File	sourceFile,
 		File	destFile)
@@ -186,6 +201,26 @@ public class FileAttributeUtils
 			throw new AttributesException(ErrorId.FILE_ACCESS_NOT_PERMITTED, destFile);
 		}
 
+		// Copy file attributes with POSIX file-attribute views
+		PosixFileAttributeView sourceView = getPosixView(sourceFile);
+		PosixFileAttributeView destView = getPosixView(destFile);
+		if ((sourceView != null) && (destView != null))
+		{
+			try
+			{
+				copyPosixAttributes(sourceView, destView);
+				return;
+			}
+			catch (UnsupportedOperationException e)
+			{
+				// fall through to execute commands
+			}
+			catch (AppException e)
+			{
+				throw new AttributesException(e, sourceFile);
+			}
+		}
+
 		// Execute commands to copy file attributes
 		List<String> arguments = new ArrayList<>();
 		arguments.addAll(COPY_ARGUMENTS);
@@ -222,6 +257,78 @@ public class FileAttributeUtils
 
 	//------------------------------------------------------------------
 
+	private static PosixFileAttributeView getPosixView(
+		File	file)
+	{
+		try
+		{
+			return Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class);
+		}
+		catch (Exception e)
+		{
+			return null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Copies the permissions, owner and group of a source file to a destination file through the POSIX file-attribute
+	 * views of the files.  The owner and group are set before the permissions because changing the owner of a file may
+	 * clear its set-user-ID and set-group-ID bits.  If the owner or group cannot be set, the permissions are set
+	 * nonetheless before the exception is thrown.
+	 */
+
+	private static void copyPosixAttributes(
+		PosixFileAttributeView	sourceView,
+		PosixFileAttributeView	destView)
+		throws AppException
+	{
+		// Read attributes of source and destination files
+		PosixFileAttributes sourceAttrs = null;
+		PosixFileAttributes destAttrs = null;
+		try
+		{
+			sourceAttrs = sourceView.readAttributes();
+			destAttrs = destView.readAttributes();
+		}
+		catch (IOException | SecurityException e)
+		{
+			throw new AppException(ErrorId.FAILED_TO_READ_ATTRIBUTES, e);
+		}
+
+		// Set owner and group
+		AppException ownerException = null;
+		try
+		{
+			if (!sourceAttrs.owner().equals(destAttrs.owner()))
+				destView.setOwner(sourceAttrs.owner());
+			if (!sourceAttrs.group().equals(destAttrs.group()))
+				destView.setGroup(sourceAttrs.group());
+		}
+		catch (IOException | SecurityException e)
+		{
+			ownerException = new AppException(ErrorId.FAILED_TO_SET_ATTRIBUTE, e, AttrName.OWNER);
+		}
+
+		// Set permissions
+		try
+		{
+			if (!sourceAttrs.permissions().equals(destAttrs.permissions()))
+				destView.setPermissions(sourceAttrs.permissions());
+		}
+		catch (IOException | SecurityException e)
+		{
+			throw new AppException(ErrorId.FAILED_TO_SET_ATTRIBUTE, e, AttrName.PERMISSIONS);
+		}
+
+		// Throw any exception from setting owner and group
+		if (ownerException != null)
+			throw ownerException;
+	}
+
+	//------------------------------------------------------------------
+
 	private static void execProcess(
 		String			attrName,
 		String			command,
@@ -353,6 +460,9 @@ public class FileAttributeUtils
 		FAILED_TO_EXECUTE_COMMAND
 		("Failed to execute the command %1."),
 
+		FAILED_TO_READ_ATTRIBUTES
+		("Failed to read the attributes of the file."),
+
 		FAILED_TO_SET_ATTRIBUTE
 		("Failed to set the file %1.");
 
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.FileFilter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -65,7 +66,7 @@ public class PathnameFilter
 ////////////////////////////////////////////////////////////////////////
 
 	private static	ErrorMode	errorMode;
-	private static	List<File>	errors		= new ArrayList<>();
+	private static	List<File>	errors		= Collections.synchronizedList(new ArrayList<>());
 
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
@@ -78,6 +79,7 @@ public class PathnameFilter
 	private	boolean				hasWildcards;
 	private	boolean				hasPathWildcards;
 	private	boolean				ignoreCase;
+	private	Automaton			automaton;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -350,6 +352,67 @@ public class PathnameFilter
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns the absolute pathname of the specified file without normalising its separators.  No string is created
+	 * if the pathname of the file is already absolute.
+	 */
+
+	private static String getAbsolutePathname(File file)
+		throws FileException
+	{
+		try
+		{
+			return file.getAbsolutePath();
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.ACCESS_NOT_PERMITTED, file);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static void handleError(File         file,
+									AppException exception)
+	{
+		if ((errorMode == ErrorMode.LIST) || (errorMode == ErrorMode.LIST_AND_WRITE))
+			errors.add(file);
+		if ((errorMode == ErrorMode.WRITE) || (errorMode == ErrorMode.LIST_AND_WRITE))
+			ExceptionUtils.printStderrLocated(exception);
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean mayAcceptBeneath(Automaton automaton,
+											File      directory)
+	{
+		try
+		{
+			return (automaton == null) ? true : automaton.mayAcceptBeneath(getAbsolutePathname(directory));
+		}
+		catch (AppException e)
+		{
+			return true;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean acceptsAllBeneath(Automaton automaton,
+											 File      directory)
+	{
+		try
+		{
+			return (automaton == null) ? false : automaton.acceptsAllBeneath(getAbsolutePathname(directory));
+		}
+		catch (AppException e)
+		{
+			return false;
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	private static String[] tokensToPaths(List<PatternToken> tokens)
 	{
 		String[] paths = new String[2];
@@ -545,6 +608,20 @@ public class PathnameFilter
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns {@code true} if this filter accepts the pathname of the specified location.  Unlike {@link
+	 * #accept(File)} and {@link #acceptDirectory(File)}, this method does not query the file system for the kind of
+	 * the location, so it may be used when the kind is already known.
+	 */
+
+	public boolean acceptPathname(File location)
+	{
+		// Accept all locations if no pattern has been set; otherwise, match pathname against pattern
+		return (pattern == null) ? true : match(location);
+	}
+
+	//------------------------------------------------------------------
+
 	/**
 	 * This method may return an incorrect value if the match is relative and the base pathname, pattern or
 	 * target pathname contains any dot or double-dot ("." or "..") components.
@@ -571,6 +648,9 @@ public class PathnameFilter
 	{
 		try
 		{
+			if (automaton != null)
+				return automaton.accept(getAbsolutePathname(file));
+
 			List<String> pathnameComponents = null;
 			List<PatternToken> tokens = null;
 			if (isMatchAbsolute())
@@ -595,16 +675,38 @@ public class PathnameFilter
 		}
 		catch (AppException e)
 		{
-			if ((errorMode == ErrorMode.LIST) || (errorMode == ErrorMode.LIST_AND_WRITE))
-				errors.add(file);
-			if ((errorMode == ErrorMode.WRITE) || (errorMode == ErrorMode.LIST_AND_WRITE))
-				ExceptionUtils.printStderrLocated(e);
+			handleError(file, e);
 			return false;
 		}
 	}
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns {@code true} if this filter may accept a pathname beneath the specified directory.  If this method
+	 * returns {@code false}, the directory need not be searched for pathnames that this filter accepts.  The value
+	 * is decided without querying the file system.
+	 */
+
+	public boolean mayAcceptBeneath(File directory)
+	{
+		return (pattern == null) ? true : mayAcceptBeneath(automaton, directory);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if this filter accepts every pathname beneath the specified directory.  The value is
+	 * decided without querying the file system.
+	 */
+
+	public boolean acceptsAllBeneath(File directory)
+	{
+		return (pattern == null) ? true : acceptsAllBeneath(automaton, directory);
+	}
+
+	//------------------------------------------------------------------
+
 	/**
 	 * @throws AppException
 	 * @throws IllegalStateException
@@ -628,7 +730,10 @@ public class PathnameFilter
 																				: SEPARATOR + paths[1];
 			}
 			absolutePatternTokens = stringsToTokens(splitPathname(pathname));
+			automaton = new Automaton(List.of(absolutePatternTokens), ignoreCase);
 		}
+		else
+			automaton = null;
 	}
 
 	//------------------------------------------------------------------
@@ -735,6 +840,7 @@ public class PathnameFilter
 	////////////////////////////////////////////////////////////////////
 
 		private	PathnameFilter[]	filters;
+		private	Automaton			automaton;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
@@ -825,6 +931,7 @@ public class PathnameFilter
 			filters = new PathnameFilter[patterns.length];
 			for (int i = 0; i < filters.length; i++)
 				filters[i] = new PathnameFilter(patterns[i], basePathname, ignoreCase, normaliseDirectory);
+			compile();
 		}
 
 		//--------------------------------------------------------------
@@ -914,6 +1021,7 @@ public class PathnameFilter
 			filters = new PathnameFilter[patterns.size()];
 			for (int i = 0; i < filters.length; i++)
 				filters[i] = new PathnameFilter(patterns.get(i), basePathname, ignoreCase, normaliseDirectory);
+			compile();
 		}
 
 		//--------------------------------------------------------------
@@ -940,6 +1048,9 @@ public class PathnameFilter
 		@Override
 		public boolean accept(File file)
 		{
+			if (automaton != null)
+				return (!file.exists() || file.isFile()) && match(file);
+
 			for (PathnameFilter filter : filters)
 			{
 				if (filter.accept(file))
@@ -953,6 +1064,9 @@ public class PathnameFilter
 		@Override
 		public boolean acceptDirectory(File directory)
 		{
+			if (automaton != null)
+				return (!directory.exists() || directory.isDirectory()) && match(directory);
+
 			for (PathnameFilter filter : filters)
 			{
 				if (filter.acceptDirectory(directory))
@@ -963,12 +1077,79 @@ public class PathnameFilter
 
 		//--------------------------------------------------------------
 
+		@Override
+		public boolean acceptPathname(File location)
+		{
+			return match(location);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public boolean match(File file)
+		{
+			if (automaton != null)
+			{
+				try
+				{
+					return automaton.accept(getAbsolutePathname(file));
+				}
+				catch (AppException e)
+				{
+					handleError(file, e);
+					return false;
+				}
+			}
+
+			for (PathnameFilter filter : filters)
+			{
+				if (filter.match(file))
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public boolean mayAcceptBeneath(File directory)
+		{
+			if (automaton != null)
+				return PathnameFilter.mayAcceptBeneath(automaton, directory);
+
+			for (PathnameFilter filter : filters)
+			{
+				if (filter.mayAcceptBeneath(directory))
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public boolean acceptsAllBeneath(File directory)
+		{
+			if (automaton != null)
+				return PathnameFilter.acceptsAllBeneath(automaton, directory);
+
+			for (PathnameFilter filter : filters)
+			{
+				if (filter.acceptsAllBeneath(directory))
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
 		@Override
 		public void updateAbsolute()
 			throws AppException
 		{
 			for (PathnameFilter filter : filters)
 				filter.updateAbsolute();
+			compile();
 		}
 
 		//--------------------------------------------------------------
@@ -991,6 +1172,521 @@ public class PathnameFilter
 
 		//--------------------------------------------------------------
 
+		/**
+		 * Combines the patterns of the filters into a single automaton if they are all matched against absolute
+		 * pathnames with the same sensitivity to case; otherwise, the filters are applied one at a time.  The
+		 * automaton is not updated if the base pathname of a filter is changed directly.
+		 */
+
+		private void compile()
+		{
+			automaton = null;
+			List<List<PatternToken>> patterns = new ArrayList<>();
+			for (PathnameFilter filter : filters)
+			{
+				if ((filter.pattern == null) || (filter.automaton == null)
+						|| (filter.ignoreCase != filters[0].ignoreCase))
+					return;
+				patterns.add(filter.absolutePatternTokens);
+			}
+			automaton = new Automaton(patterns, (filters.length > 0) && filters[0].ignoreCase);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: PATHNAME AUTOMATON
+
+
+	/**
+	 * This class implements a nondeterministic finite automaton over the components of a pathname that combines the
+	 * absolute patterns of one or more filters.  The patterns are merged into a trie whose edges are literal components
+	 * and wildcard patterns of a single component; a path wildcard ("**") is a state that loops on any component.
+	 * <p>
+	 * A pathname is matched in a single pass over its characters without dividing it into strings, and the sets of
+	 * current states are held in arrays that are reused by each thread, so matching allocates no memory.  The same pass
+	 * decides whether any pathname beneath a directory may be accepted, or whether all of them will be accepted.
+	 * </p>
+	 */
+
+	private static class Automaton
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	boolean				ignoreCase;
+		private	List<State>			states;
+		private	ThreadLocal<Scratch>	scratch;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Automaton(List<List<PatternToken>> patterns,
+						  boolean                  ignoreCase)
+		{
+			// Initialise instance variables
+			this.ignoreCase = ignoreCase;
+			states = new ArrayList<>();
+			scratch = ThreadLocal.withInitial(() -> new Scratch(states.size()));
+
+			// Add patterns to trie
+			State start = addState(false);
+			for (List<PatternToken> tokens : patterns)
+			{
+				State state = start;
+				for (PatternToken token : tokens)
+				{
+					switch (token.kind)
+					{
+						case LITERAL:
+							state = state.getLiteralTarget(fold(token.value), this);
+							break;
+
+						case PATTERN:
+							state = state.getPatternTarget(fold(token.value), this);
+							break;
+
+						case PATH_MULTIPLE_WILDCARD:
+							if (!state.loop)
+							{
+								if (state.star == null)
+									state.star = addState(true);
+								state = state.star;
+							}
+							break;
+
+						case SINGLE_WILDCARD:
+						case MULTIPLE_WILDCARD:
+							// do nothing
+							break;
+					}
+				}
+				state.accepting = true;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		private static boolean isSeparator(char ch)
+		{
+			return (ch == SEPARATOR_CHAR) || (ch == File.separatorChar);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns {@code true} if the specified absolute pathname is accepted by this automaton.
+		 */
+
+		private boolean accept(String pathname)
+		{
+			Scratch scr = run(pathname);
+			for (int i = 0; i < scr.numStates; i++)
+			{
+				if (states.get(scr.states[i]).accepting)
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns {@code true} if this automaton may accept a pathname that has the specified absolute pathname of a
+		 * directory as a proper prefix.
+		 */
+
+		private boolean mayAcceptBeneath(String pathname)
+		{
+			Scratch scr = run(pathname);
+			for (int i = 0; i < scr.numStates; i++)
+			{
+				if (states.get(scr.states[i]).hasTransitions())
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns {@code true} if this automaton accepts every pathname that has the specified absolute pathname of a
+		 * directory as a proper prefix.
+		 */
+
+		private boolean acceptsAllBeneath(String pathname)
+		{
+			Scratch scr = run(pathname);
+			for (int i = 0; i < scr.numStates; i++)
+			{
+				State state = states.get(scr.states[i]);
+				if (state.loop && state.accepting)
+					return true;
+			}
+			return false;
+		}
+
+		//--------------------------------------------------------------
+
+		private State addState(boolean loop)
+		{
+			State state = new State(states.size(), loop);
+			states.add(state);
+			return state;
+		}
+
+		//--------------------------------------------------------------
+
+		private char fold(char ch)
+		{
+			return ignoreCase ? Character.toLowerCase(Character.toUpperCase(ch)) : ch;
+		}
+
+		//--------------------------------------------------------------
+
+		private char[] fold(String str)
+		{
+			char[] chars = str.toCharArray();
+			for (int i = 0; i < chars.length; i++)
+				chars[i] = fold(chars[i]);
+			return chars;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Runs this automaton over the components of the specified pathname and returns the scratch space of the
+		 * current thread, which holds the final set of states.
+		 */
+
+		private Scratch run(String pathname)
+		{
+			Scratch scr = scratch.get();
+			scr.numStates = 0;
+			scr.nextGeneration();
+			scr.addState(states.get(0));
+
+			int length = pathname.length();
+			int startIndex = 0;
+			for (int index = 0; index <= length; index++)
+			{
+				if ((index < length) && !isSeparator(pathname.charAt(index)))
+					continue;
+
+				// Get hash code of folded component
+				int hashCode = 0;
+				for (int i = startIndex; i < index; i++)
+					hashCode = 31 * hashCode + fold(pathname.charAt(i));
+
+				// Get next set of states
+				scr.nextGeneration();
+				int numNextStates = 0;
+				for (int i = 0; i < scr.numStates; i++)
+				{
+					State state = states.get(scr.states[i]);
+					if (state.loop)
+						numNextStates = scr.addNextState(state, numNextStates);
+					for (int j = 0; j < state.numLiteralEdges; j++)
+					{
+						if ((state.literalHashCodes[j] == hashCode)
+								&& matchLiteral(state.literals[j], pathname, startIndex, index))
+							numNextStates = scr.addNextState(state.literalTargets[j], numNextStates);
+					}
+					for (int j = 0; j < state.numPatternEdges; j++)
+					{
+						if (matchPattern(state.patterns[j], pathname, startIndex, index))
+							numNextStates = scr.addNextState(state.patternTargets[j], numNextStates);
+					}
+				}
+				scr.swap(numNextStates);
+				if (numNextStates == 0)
+					break;
+
+				startIndex = index + 1;
+			}
+			return scr;
+		}
+
+		//--------------------------------------------------------------
+
+		private boolean matchLiteral(char[] literal,
+									 String pathname,
+									 int    startIndex,
+									 int    endIndex)
+		{
+			if (endIndex - startIndex != literal.length)
+				return false;
+			for (int i = 0; i < literal.length; i++)
+			{
+				if (literal[i] != fold(pathname.charAt(startIndex + i)))
+					return false;
+			}
+			return true;
+		}
+
+		//--------------------------------------------------------------
+
+		private boolean matchPattern(char[] pattern,
+									 String pathname,
+									 int    startIndex,
+									 int    endIndex)
+		{
+			int patternIndex = 0;
+			int index = startIndex;
+			int wildcardPatternIndex = -1;
+			int wildcardIndex = 0;
+			while (index < endIndex)
+			{
+				if ((patternIndex < pattern.length)
+						&& ((pattern[patternIndex] == NAME_SINGLE_WILDCARD_CHAR)
+								|| (pattern[patternIndex] == fold(pathname.charAt(index)))))
+				{
+					++patternIndex;
+					++index;
+				}
+				else if ((patternIndex < pattern.length) && (pattern[patternIndex] == NAME_MULTIPLE_WILDCARD_CHAR))
+				{
+					wildcardPatternIndex = patternIndex++;
+					wildcardIndex = index;
+				}
+				else if (wildcardPatternIndex >= 0)
+				{
+					patternIndex = wildcardPatternIndex + 1;
+					index = ++wildcardIndex;
+				}
+				else
+					return false;
+			}
+			while ((patternIndex < pattern.length) && (pattern[patternIndex] == NAME_MULTIPLE_WILDCARD_CHAR))
+				++patternIndex;
+			return (patternIndex == pattern.length);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: STATE OF PATHNAME AUTOMATON
+
+
+	private static class State
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int	INITIAL_NUM_EDGES	= 4;
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int			index;
+		private	boolean		loop;
+		private	boolean		accepting;
+		private	State		star;
+		private	int			numLiteralEdges;
+		private	char[][]	literals;
+		private	int[]		literalHashCodes;
+		private	State[]		literalTargets;
+		private	int			numPatternEdges;
+		private	char[][]	patterns;
+		private	State[]		patternTargets;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private State(int     index,
+					  boolean loop)
+		{
+			this.index = index;
+			this.loop = loop;
+			literals = new char[INITIAL_NUM_EDGES][];
+			literalHashCodes = new int[INITIAL_NUM_EDGES];
+			literalTargets = new State[INITIAL_NUM_EDGES];
+			patterns = new char[INITIAL_NUM_EDGES][];
+			patternTargets = new State[INITIAL_NUM_EDGES];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private boolean hasTransitions()
+		{
+			return loop || (numLiteralEdges > 0) || (numPatternEdges > 0);
+		}
+
+		//--------------------------------------------------------------
+
+		private State getLiteralTarget(char[]    literal,
+									   Automaton automaton)
+		{
+			for (int i = 0; i < numLiteralEdges; i++)
+			{
+				if (Arrays.equals(literals[i], literal))
+					return literalTargets[i];
+			}
+
+			if (numLiteralEdges == literals.length)
+			{
+				literals = Arrays.copyOf(literals, 2 * numLiteralEdges);
+				literalHashCodes = Arrays.copyOf(literalHashCodes, 2 * numLiteralEdges);
+				literalTargets = Arrays.copyOf(literalTargets, 2 * numLiteralEdges);
+			}
+			int hashCode = 0;
+			for (char ch : literal)
+				hashCode = 31 * hashCode + ch;
+			State target = automaton.addState(false);
+			literals[numLiteralEdges] = literal;
+			literalHashCodes[numLiteralEdges] = hashCode;
+			literalTargets[numLiteralEdges++] = target;
+			return target;
+		}
+
+		//--------------------------------------------------------------
+
+		private State getPatternTarget(char[]    pattern,
+									   Automaton automaton)
+		{
+			for (int i = 0; i < numPatternEdges; i++)
+			{
+				if (Arrays.equals(patterns[i], pattern))
+					return patternTargets[i];
+			}
+
+			if (numPatternEdges == patterns.length)
+			{
+				patterns = Arrays.copyOf(patterns, 2 * numPatternEdges);
+				patternTargets = Arrays.copyOf(patternTargets, 2 * numPatternEdges);
+			}
+			State target = automaton.addState(false);
+			patterns[numPatternEdges] = pattern;
+			patternTargets[numPatternEdges++] = target;
+			return target;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: SCRATCH SPACE OF PATHNAME AUTOMATON
+
+
+	/**
+	 * This class holds the sets of states of an automaton while it is run on a thread.  A state is a member of the
+	 * next set if its mark is equal to the current generation, so the sets need not be cleared.
+	 */
+
+	private static class Scratch
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int[]	states;
+		private	int		numStates;
+		private	int[]	nextStates;
+		private	int[]	marks;
+		private	int		generation;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Scratch(int numStates)
+		{
+			states = new int[numStates];
+			nextStates = new int[numStates];
+			marks = new int[numStates];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private void nextGeneration()
+		{
+			if (++generation == 0)
+			{
+				Arrays.fill(marks, 0);
+				generation = 1;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Adds the specified state and the state that is reached from it by a path wildcard to the current set of
+		 * states.
+		 */
+
+		private void addState(State state)
+		{
+			for (State s = state; (s != null) && (marks[s.index] != generation); s = s.star)
+			{
+				marks[s.index] = generation;
+				states[numStates++] = s.index;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Adds the specified state and the state that is reached from it by a path wildcard to the next set of states.
+		 */
+
+		private int addNextState(State state,
+								 int   numNextStates)
+		{
+			for (State s = state; (s != null) && (marks[s.index] != generation); s = s.star)
+			{
+				marks[s.index] = generation;
+				nextStates[numNextStates++] = s.index;
+			}
+			return numNextStates;
+		}
+
+		//--------------------------------------------------------------
+
+		private void swap(int numNextStates)
+		{
+			int[] temp = states;
+			states = nextStates;
+			nextStates = temp;
+			numStates = numNextStates;
+		}
+
+		//--------------------------------------------------------------
+
 	}
 
 	//==================================================================
@@ -1163,7 +1859,7 @@ public class PathnameFilter
 						break;
 
 					case SINGLE_WILDCARD:
-						if (filenameIndex > filename.length())
+						if (filenameIndex >= filename.length())
 							return false;
 						++filenameIndex;
 						break;
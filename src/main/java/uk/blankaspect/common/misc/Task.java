@@ -21,6 +21,8 @@ package uk.blankaspect.common.misc;
 import java.util.ArrayList;
 import java.util.List;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import uk.blankaspect.common.exception.AppException;
 import uk.blankaspect.common.exception.TaskCancelledException;
 
@@ -32,6 +34,18 @@ import uk.blankaspect.common.ui.progress.IProgressView;
 // CLASS: TASK
 
 
+/**
+ * This is the abstract base class of a task that is performed on its own thread.  The state that controls tasks (the
+ * exception, the cancellation and the progress view) is shared by all tasks; it is held in volatile and atomic fields
+ * so that it may be read on every step of a task, and on any thread, without locking.
+ * <p>
+ * Cancellation is signalled through a {@link CancellationToken}.  {@link #setCancelled(boolean) setCancelled(true)}
+ * cancels the current token, and {@link #setCancelled(boolean) setCancelled(false)} replaces it with a new token, so
+ * a worker thread that was given the token of a task continues to observe the cancellation of that task after a new
+ * task has started.
+ * </p>
+ */
+
 public abstract class Task
 	implements Runnable
 {
@@ -40,11 +54,12 @@ public abstract class Task
 //  Class variables
 ////////////////////////////////////////////////////////////////////////
 
-	private static	AppException	exception;
-	private static	boolean			cancelled;
-	private static	IProgressView	progressView;
-	private static	int				threadId;
-	private static	List<Thread>	threads		= new ArrayList<>();
+	private static final	AtomicReference<AppException>	exception	= new AtomicReference<>();
+
+	private static volatile	CancellationToken	cancellationToken	= new CancellationToken();
+	private static volatile	IProgressView		progressView;
+	private static			int					threadId;
+	private static			List<Thread>		threads				= new ArrayList<>();
 
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
@@ -66,47 +81,63 @@ public abstract class Task
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
-	public static synchronized boolean isException()
+	public static boolean isException()
+	{
+		return (exception.get() != null);
+	}
+
+	//------------------------------------------------------------------
+
+	public static AppException getException()
 	{
-		return (exception != null);
+		return exception.get();
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized AppException getException()
+	public static boolean isCancelled()
 	{
-		return exception;
+		return cancellationToken.isCancelled();
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized boolean isCancelled()
+	public static boolean isExceptionOrCancelled()
 	{
-		return cancelled;
+		return (exception.get() != null) || cancellationToken.isCancelled();
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized boolean isExceptionOrCancelled()
+	/**
+	 * Returns the cancellation token of the current task.  The token may be passed to worker threads, which can test
+	 * it without reference to the shared state of tasks.
+	 *
+	 * @return the cancellation token of the current task.
+	 */
+
+	public static CancellationToken getCancellationToken()
 	{
-		return (exception != null) || cancelled;
+		return cancellationToken;
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized IProgressView getProgressView()
+	public static IProgressView getProgressView()
 	{
 		return progressView;
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized void setException(
+	public static void setException(
 		AppException	exception,
 		boolean			overwrite)
 	{
-		if (overwrite || (Task.exception == null))
-			Task.exception = exception;
+		if (overwrite)
+			Task.exception.set(exception);
+		else
+			Task.exception.compareAndSet(null, exception);
 	}
 
 	//------------------------------------------------------------------
@@ -114,12 +145,15 @@ public abstract class Task
 	public static synchronized void setCancelled(
 		boolean	cancelled)
 	{
-		Task.cancelled = cancelled;
+		if (cancelled)
+			cancellationToken.cancel();
+		else if (cancellationToken.isCancelled())
+			cancellationToken = new CancellationToken();
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized void setProgressView(
+	public static void setProgressView(
 		IProgressView	progressView)
 	{
 		Task.progressView = progressView;
@@ -148,9 +182,10 @@ public abstract class Task
 		threads.remove(Thread.currentThread());
 		if (threads.isEmpty())
 		{
-			if (progressView != null)
+			IProgressView view = progressView;
+			if (view != null)
 			{
-				progressView.close();
+				view.close();
 				progressView = null;
 			}
 		}
@@ -158,25 +193,25 @@ public abstract class Task
 
 	//------------------------------------------------------------------
 
-	public static synchronized void throwIfException()
+	public static void throwIfException()
 		throws AppException
 	{
-		if (exception != null)
-			throw exception;
+		AppException e = exception.get();
+		if (e != null)
+			throw e;
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized void throwIfCancelled()
+	public static void throwIfCancelled()
 		throws TaskCancelledException
 	{
-		if (cancelled)
-			throw new TaskCancelledException();
+		cancellationToken.throwIfCancelled();
 	}
 
 	//------------------------------------------------------------------
 
-	public static synchronized void throwIfExceptionOrCancelled()
+	public static void throwIfExceptionOrCancelled()
 		throws AppException
 	{
 		throwIfException();
@@ -199,9 +234,13 @@ public abstract class Task
 
 	public boolean start()
 	{
-		if (cancelled)
+		if (isCancelled())
 			return false;
-		Thread thread = new Thread(this, "app-" + getClass().getName() + "-" + threadId++);
+		Thread thread;
+		synchronized (Task.class)
+		{
+			thread = new Thread(this, "app-" + getClass().getName() + "-" + threadId++);
+		}
 		if (addThread(thread) == 1)
 			primary = true;
 		thread.start();
@@ -217,6 +256,69 @@ public abstract class Task
 
 	//------------------------------------------------------------------
 
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: CANCELLATION TOKEN
+
+
+	/**
+	 * This class implements a token that signals the cancellation of a task.  Once it has been cancelled, a token
+	 * remains cancelled.
+	 */
+
+	public static final class CancellationToken
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private volatile	boolean	cancelled;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CancellationToken()
+		{
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+		//--------------------------------------------------------------
+
+		public void throwIfCancelled()
+			throws TaskCancelledException
+		{
+			if (cancelled)
+				throw new TaskCancelledException();
+		}
+
+		//--------------------------------------------------------------
+
+		private void cancel()
+		{
+			cancelled = true;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
 }
 
 //----------------------------------------------------------------------
@@ -27,7 +27,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 
 import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
@@ -35,12 +34,24 @@ import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
 
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
@@ -247,6 +258,75 @@ public class TextFile
 
 	//==================================================================
 
+
+	// TEXT ENCODER CLASS
+
+
+	/**
+	 * This class holds the encoder and buffers with which text is written to a file.  An instance is reused by all the
+	 * writes of a thread, and its encoder is replaced only when the character encoding changes.
+	 */
+
+	private static class TextEncoder
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private TextEncoder()
+		{
+			chars = new char[BLOCK_LENGTH];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns an encoder for the specified character encoding that has been reset and whose byte buffer is empty.
+		 * Malformed input and unmappable characters are replaced, as they are by an {@link
+		 * java.io.OutputStreamWriter}.
+		 */
+
+		private CharsetEncoder getEncoder(Charset charEncoding)
+		{
+			if ((encoder == null) || !encoder.charset().equals(charEncoding))
+			{
+				encoder = charEncoding.newEncoder()
+										.onMalformedInput(CodingErrorAction.REPLACE)
+										.onUnmappableCharacter(CodingErrorAction.REPLACE);
+				int length = (int)Math.ceil(BLOCK_LENGTH * encoder.maxBytesPerChar());
+				if ((bytes == null) || (bytes.capacity() < length))
+					bytes = ByteBuffer.allocateDirect(length);
+			}
+			encoder.reset();
+			bytes.clear();
+			return encoder;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	CharsetEncoder	encoder;
+		private	char[]			chars;
+		private	ByteBuffer		bytes;
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	private static	ThreadLocal<TextEncoder>	textEncoders	= ThreadLocal.withInitial(TextEncoder::new);
+
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
 ////////////////////////////////////////////////////////////////////////
@@ -493,6 +573,23 @@ public class TextFile
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Writes the specified text to the specified file, replacing each LF in the text with the specified line
+	 * separator as the text is encoded.
+	 */
+
+	public static void write(File            file,
+							 Charset         charEncoding,
+							 CharSequence    text,
+							 LineSeparator   lineSeparator,
+							 FileWritingMode writeMode)
+		throws AppException
+	{
+		new TextFile(file, charEncoding).write(text, lineSeparator, writeMode);
+	}
+
+	//------------------------------------------------------------------
+
 	public static EnumMap<LineSeparator, Integer> changeLineSeparators(StringBuilder text,
 																	   boolean       count)
 	{
@@ -692,7 +789,25 @@ public class TextFile
 					  FileWritingMode writeMode)
 		throws AppException
 	{
-		write(text, writeMode, false);
+		write(text, LineSeparator.LF, writeMode, false);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes the specified text to the file of this object, replacing each LF in the text with the specified line
+	 * separator as the text is encoded.
+	 *
+	 * @throws IllegalStateException
+	 * @throws AppException
+	 */
+
+	public void write(CharSequence    text,
+					  LineSeparator   lineSeparator,
+					  FileWritingMode writeMode)
+		throws AppException
+	{
+		write(text, lineSeparator, writeMode, false);
 	}
 
 	//------------------------------------------------------------------
@@ -973,6 +1088,7 @@ public class TextFile
 	 */
 
 	protected void write(CharSequence    text,
+						 LineSeparator   lineSeparator,
 						 FileWritingMode writeMode,
 						 boolean         compressed)
 		throws AppException
@@ -998,29 +1114,30 @@ public class TextFile
 			switch (writeMode)
 			{
 				case DIRECT:
-					writeDirect(text, compressed);
+					writeDirect(text, lineSeparator, compressed);
 					break;
 
 				case USE_TEMP_FILE:
-					writeUsingTempFile(text, compressed, false);
+					writeUsingTempFile(text, lineSeparator, compressed, false);
 					break;
 
 				case USE_TEMP_FILE_PRESERVE_ATTRS:
-					writeUsingTempFile(text, compressed, true);
+					writeUsingTempFile(text, lineSeparator, compressed, true);
 					break;
 			}
 		}
 		else
-			writeDirect(text, compressed);
+			writeDirect(text, lineSeparator, compressed);
 	}
 
 	//------------------------------------------------------------------
 
-	protected void writeDirect(CharSequence text,
-							   boolean      compressed)
+	protected void writeDirect(CharSequence  text,
+							   LineSeparator lineSeparator,
+							   boolean       compressed)
 		throws AppException
 	{
-		OutputStreamWriter outStream = null;
+		OutputStream outStream = null;
 		try
 		{
 			// Test for write access
@@ -1029,12 +1146,13 @@ public class TextFile
 
 			// Open output stream on file
 			FileChannel fileChannel = null;
+			WritableByteChannel outChannel = null;
 			try
 			{
 				FileOutputStream outStream1 = new FileOutputStream(file);
 				fileChannel = outStream1.getChannel();
-				OutputStream outStream2 = compressed ? new GZIPOutputStream(outStream1) : outStream1;
-				outStream = new OutputStreamWriter(outStream2, charEncoding);
+				outStream = compressed ? new GZIPOutputStream(outStream1) : outStream1;
+				outChannel = compressed ? Channels.newChannel(outStream) : fileChannel;
 			}
 			catch (SecurityException e)
 			{
@@ -1059,7 +1177,7 @@ public class TextFile
 			// Write file
 			try
 			{
-				writeText(text, outStream);
+				writeText(text, lineSeparator, outChannel);
 			}
 			catch (IOException e)
 			{
@@ -1097,13 +1215,14 @@ public class TextFile
 
 	//------------------------------------------------------------------
 
-	protected void writeUsingTempFile(CharSequence text,
-									  boolean      compressed,
-									  boolean      preserveAttrs)
+	protected void writeUsingTempFile(CharSequence  text,
+									  LineSeparator lineSeparator,
+									  boolean       compressed,
+									  boolean       preserveAttrs)
 		throws AppException
 	{
 		File tempFile = null;
-		OutputStreamWriter outStream = null;
+		OutputStream outStream = null;
 		boolean oldFileDeleted = false;
 		try
 		{
@@ -1128,12 +1247,13 @@ public class TextFile
 
 			// Open output stream on temporary file
 			FileChannel fileChannel = null;
+			WritableByteChannel outChannel = null;
 			try
 			{
 				FileOutputStream outStream1 = new FileOutputStream(tempFile);
 				fileChannel = outStream1.getChannel();
-				OutputStream outStream2 = compressed ? new GZIPOutputStream(outStream1) : outStream1;
-				outStream = new OutputStreamWriter(outStream2, charEncoding);
+				outStream = compressed ? new GZIPOutputStream(outStream1) : outStream1;
+				outChannel = compressed ? Channels.newChannel(outStream) : fileChannel;
 			}
 			catch (SecurityException e)
 			{
@@ -1158,7 +1278,7 @@ public class TextFile
 			// Write file
 			try
 			{
-				writeText(text, outStream);
+				writeText(text, lineSeparator, outChannel);
 			}
 			catch (IOException e)
 			{
@@ -1190,27 +1310,46 @@ public class TextFile
 				}
 			}
 
-			// Delete existing file
+			// Replace existing file with temporary file in a single step, so that the file is never missing
+			boolean moved = false;
 			try
 			{
-				if (!file.delete())
-					throw new FileException(ErrorId.FAILED_TO_DELETE_FILE, file);
-				oldFileDeleted = true;
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				moved = true;
 			}
-			catch (SecurityException e)
+			catch (AtomicMoveNotSupportedException e)
 			{
-				throw new FileException(ErrorId.FAILED_TO_DELETE_FILE, file, e);
+				// fall through to delete existing file and rename temporary file
 			}
-
-			// Rename temporary file
-			try
+			catch (IOException | SecurityException e)
 			{
-				if (!tempFile.renameTo(file))
-					throw new TempFileException(ErrorId.FAILED_TO_RENAME_FILE, file, tempFile);
+				throw new FileException(ErrorId.FAILED_TO_RENAME_FILE, file, e);
 			}
-			catch (SecurityException e)
+
+			if (!moved)
 			{
-				throw new TempFileException(ErrorId.FAILED_TO_RENAME_FILE, file, e, tempFile);
+				// Delete existing file
+				try
+				{
+					if (!file.delete())
+						throw new FileException(ErrorId.FAILED_TO_DELETE_FILE, file);
+					oldFileDeleted = true;
+				}
+				catch (SecurityException e)
+				{
+					throw new FileException(ErrorId.FAILED_TO_DELETE_FILE, file, e);
+				}
+
+				// Rename temporary file
+				try
+				{
+					if (!tempFile.renameTo(file))
+						throw new TempFileException(ErrorId.FAILED_TO_RENAME_FILE, file, tempFile);
+				}
+				catch (SecurityException e)
+				{
+					throw new TempFileException(ErrorId.FAILED_TO_RENAME_FILE, file, e, tempFile);
+				}
 			}
 
 			// Throw any exception from copying file attributes
@@ -1496,12 +1635,30 @@ public class TextFile
 
 	//------------------------------------------------------------------
 
-	private void writeText(CharSequence       text,
-						   OutputStreamWriter outStream)
+	/**
+	 * Encodes the specified text and writes it to the specified channel.  The text is copied to the encoder in blocks,
+	 * and each LF is replaced with the specified line separator as it is copied, so the text is never copied in its
+	 * entirety.
+	 */
+
+	private void writeText(CharSequence        text,
+						   LineSeparator       lineSeparator,
+						   WritableByteChannel channel)
 		throws IOException, TaskCancelledException
 	{
+		// Get encoder and buffers of this thread
+		TextEncoder textEncoder = textEncoders.get();
+		CharsetEncoder encoder = textEncoder.getEncoder(charEncoding);
+		char[] chars = textEncoder.chars;
+		ByteBuffer bytes = textEncoder.bytes;
+
+		// Get replacement for LF
+		String separator = (lineSeparator == LineSeparator.LF) ? null : lineSeparator.getSeparator();
+
+		// Encode text and write it to channel
 		int textLength = text.length();
 		int offset = 0;
+		int numChars = 0;
 		while (offset < textLength)
 		{
 			// Test whether task has been cancelled by a monitor
@@ -1511,15 +1668,72 @@ public class TextFile
 					throw new TaskCancelledException();
 			}
 
-			// Write block of data to output stream
-			int endOffset = Math.min(offset + BLOCK_LENGTH, textLength);
-			outStream.append(text, offset, endOffset);
-			offset = endOffset;
+			// Copy block of text to character buffer, replacing LFs; there is always room for a two-character line
+			// separator
+			while ((offset < textLength) && (numChars < chars.length - 1))
+			{
+				char ch = text.charAt(offset++);
+				if ((ch == '\n') && (separator != null))
+				{
+					for (int i = 0; i < separator.length(); i++)
+						chars[numChars++] = separator.charAt(i);
+				}
+				else
+					chars[numChars++] = ch;
+			}
+
+			// Encode block of text
+			CharBuffer charBuffer = CharBuffer.wrap(chars, 0, numChars);
+			encode(encoder, charBuffer, bytes, channel, offset >= textLength);
+
+			// Move any unencoded character (the high surrogate of a pair that was split by the end of the block) to the
+			// start of the character buffer
+			numChars = charBuffer.remaining();
+			System.arraycopy(chars, charBuffer.position(), chars, 0, numChars);
 
 			// Notify monitor of progress
 			for (IProgressListener listener : progressListeners)
 				listener.setProgress((double)offset / (double)textLength);
 		}
+
+		// Complete encoding and write remaining bytes
+		encode(encoder, CharBuffer.wrap(chars, 0, numChars), bytes, channel, true);
+		while (encoder.flush(bytes).isOverflow())
+			writeBytes(bytes, channel);
+		writeBytes(bytes, channel);
+	}
+
+	//------------------------------------------------------------------
+
+	private static void encode(CharsetEncoder      encoder,
+							   CharBuffer          charBuffer,
+							   ByteBuffer          bytes,
+							   WritableByteChannel channel,
+							   boolean             endOfInput)
+		throws IOException
+	{
+		while (true)
+		{
+			CoderResult result = encoder.encode(charBuffer, bytes, endOfInput);
+			if (result.isUnderflow())
+				break;
+			if (result.isOverflow())
+				writeBytes(bytes, channel);
+			else
+				result.throwException();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static void writeBytes(ByteBuffer          bytes,
+								   WritableByteChannel channel)
+		throws IOException
+	{
+		bytes.flip();
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+		bytes.clear();
 	}
 
 	//------------------------------------------------------------------
@@ -97,6 +97,25 @@ class AppConfig
 
 	public static final		int		MAX_NUM_TAB_WIDTH_FILTERS	= 64;
 
+	public static final		int		MIN_NUM_SEARCH_THREADS	= 0;
+	public static final		int		MAX_NUM_SEARCH_THREADS	= 64;
+
+	public static final		int		MIN_STREAMING_FILE_SIZE		= 1;
+	public static final		int		MAX_STREAMING_FILE_SIZE		= 1 << 20;
+	public static final		int		DEFAULT_STREAMING_FILE_SIZE	= 512;
+
+	public static final		int		MIN_MAX_MATCH_SPAN		= 16;
+	public static final		int		MAX_MAX_MATCH_SPAN		= 1 << 20;
+	public static final		int		DEFAULT_MAX_MATCH_SPAN	= 4096;
+
+	public static final		int		MIN_READ_AHEAD_SIZE		= 0;
+	public static final		int		MAX_READ_AHEAD_SIZE		= 1 << 16;
+	public static final		int		DEFAULT_READ_AHEAD_SIZE	= 64;
+
+	public static final		int		MIN_MATCH_TIME_LIMIT		= 0;
+	public static final		int		MAX_MATCH_TIME_LIMIT		= 3600;
+	public static final		int		DEFAULT_MATCH_TIME_LIMIT	= 30;
+
 	public static final		String	PUNCTUATION_CHARS	= "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
 
 	public static final		AppConfig	INSTANCE	= new AppConfig();
@@ -111,6 +130,7 @@ class AppConfig
 	private static final	String	FILENAME_STEM		= RegexSearchApp.NAME_KEY + "-config";
 	private static final	String	CONFIG_FILENAME		= FILENAME_STEM + AppConstants.XML_FILENAME_EXTENSION;
 	private static final	String	CONFIG_OLD_FILENAME	= FILENAME_STEM + "-old" + AppConstants.XML_FILENAME_EXTENSION;
+	private static final	String	INDEX_DIRECTORY_NAME	= RegexSearchApp.NAME_KEY + "-index";
 
 	private static final	String	CONFIGURATION_ERROR_STR		= "Configuration error";
 	private static final	String	SAVE_CONFIGURATION_FILE_STR	= "Save configuration file";
@@ -136,15 +156,23 @@ class AppConfig
 		String	HIDE_CONTROL_DIALOG_WHEN_SEARCHING	= "hideControlDialogWhenSearching";
 		String	HIGHLIGHT_BACKGROUND				= "highlightBackground";
 		String	HIGHLIGHT_TEXT						= "highlightText";
+		String	HONOUR_IGNORE_FILES					= "honourIgnoreFiles";
 		String	IGNORE_FILENAME_CASE				= "ignoreFilenameCase";
+		String	INDEX_FILES							= "indexFiles";
 		String	LOOK_AND_FEEL						= "lookAndFeel";
 		String	MAIN_WINDOW_LOCATION				= "mainWindowLocation";
+		String	MATCH_TIME_LIMIT					= "matchTimeLimit";
+		String	MAX_MATCH_SPAN						= "maxMatchSpan";
+		String	NUM_THREADS							= "numThreads";
 		String	PARAMETER_EDITOR_SIZE				= "parameterEditorSize";
 		String	PATH								= "path";
 		String	PRESERVE_LINE_SEPARATOR				= "preserveLineSeparator";
+		String	READ_AHEAD_SIZE						= "readAheadSize";
 		String	REPLACEMENT_ESCAPE_CHARACTER		= "replacementEscapeCharacter";
 		String	RESULT_AREA_NUM_ROWS				= "resultAreaNumRows";
+		String	SEARCH								= "search";
 		String	SELECT_TEXT_ON_FOCUS_GAINED			= "selectTextOnFocusGained";
+		String	STREAMING_FILE_SIZE					= "streamingFileSize";
 		String	TAB_SURROGATE						= "tabSurrogate";
 		String	TAB_WIDTH							= "tabWidth";
 		String	TARGET_AND_REPLACEMENT				= "targetAndReplacement";
@@ -399,6 +427,27 @@ class AppConfig
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns the directory in which the trigram indexes of searched directories are stored.  It is next to the
+	 * configuration file, or in the default configuration directory if there is no configuration file.
+	 *
+	 * @return the directory of the trigram indexes, or {@code null} if there is no configuration directory.
+	 */
+
+	public File getIndexDirectory()
+	{
+		File directory = (file == null) ? null : file.getAbsoluteFile().getParentFile();
+		if (directory == null)
+		{
+			String pathname = Utils.getPropertiesPathname();
+			if (pathname != null)
+				directory = new File(pathname);
+		}
+		return (directory == null) ? null : new File(directory, INDEX_DIRECTORY_NAME);
+	}
+
+	//------------------------------------------------------------------
+
 	private void getProperties(Property.ISource... propertySources)
 	{
 		for (Property property : getProperties())
@@ -1307,6 +1356,356 @@ class AppConfig
 	//==================================================================
 
 
+	// PROPERTY CLASS: NUMBER OF SEARCH THREADS
+
+
+	private class CPNumSearchThreads
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPNumSearchThreads()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.NUM_THREADS), MIN_NUM_SEARCH_THREADS, MAX_NUM_SEARCH_THREADS);
+			value = 0;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getNumSearchThreads()
+	{
+		return cpNumSearchThreads.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setNumSearchThreads(int value)
+	{
+		cpNumSearchThreads.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPNumSearchThreads	cpNumSearchThreads	= new CPNumSearchThreads();
+
+	//==================================================================
+
+	// PROPERTY CLASS: MINIMUM SIZE OF FILE FOR STREAMING SEARCH
+
+
+	private class CPStreamingFileSize
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPStreamingFileSize()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.STREAMING_FILE_SIZE),
+				  MIN_STREAMING_FILE_SIZE, MAX_STREAMING_FILE_SIZE);
+			value = DEFAULT_STREAMING_FILE_SIZE;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getStreamingFileSize()
+	{
+		return cpStreamingFileSize.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setStreamingFileSize(int value)
+	{
+		cpStreamingFileSize.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPStreamingFileSize	cpStreamingFileSize	= new CPStreamingFileSize();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: MAXIMUM MATCH SPAN FOR STREAMING SEARCH
+
+
+	private class CPMaxMatchSpan
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPMaxMatchSpan()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.MAX_MATCH_SPAN), MIN_MAX_MATCH_SPAN, MAX_MAX_MATCH_SPAN);
+			value = DEFAULT_MAX_MATCH_SPAN;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getMaxMatchSpan()
+	{
+		return cpMaxMatchSpan.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setMaxMatchSpan(int value)
+	{
+		cpMaxMatchSpan.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPMaxMatchSpan	cpMaxMatchSpan	= new CPMaxMatchSpan();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: MEMORY FOR READING AHEAD IN PROMPTED SEARCH
+
+
+	private class CPReadAheadSize
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPReadAheadSize()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.READ_AHEAD_SIZE), MIN_READ_AHEAD_SIZE, MAX_READ_AHEAD_SIZE);
+			value = DEFAULT_READ_AHEAD_SIZE;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getReadAheadSize()
+	{
+		return cpReadAheadSize.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setReadAheadSize(int value)
+	{
+		cpReadAheadSize.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPReadAheadSize	cpReadAheadSize	= new CPReadAheadSize();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: TIME LIMIT FOR MATCHING IN A FILE
+
+
+	private class CPMatchTimeLimit
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPMatchTimeLimit()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.MATCH_TIME_LIMIT), MIN_MATCH_TIME_LIMIT, MAX_MATCH_TIME_LIMIT);
+			value = DEFAULT_MATCH_TIME_LIMIT;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getMatchTimeLimit()
+	{
+		return cpMatchTimeLimit.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setMatchTimeLimit(int value)
+	{
+		cpMatchTimeLimit.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPMatchTimeLimit	cpMatchTimeLimit	= new CPMatchTimeLimit();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: INDEX FILES FOR REPEATED SEARCHES
+
+
+	private class CPIndexFiles
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPIndexFiles()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.INDEX_FILES));
+			value = false;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isIndexFiles()
+	{
+		return cpIndexFiles.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setIndexFiles(boolean value)
+	{
+		cpIndexFiles.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPIndexFiles	cpIndexFiles	= new CPIndexFiles();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: HONOUR IGNORE FILES
+
+
+	private class CPHonourIgnoreFiles
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPHonourIgnoreFiles()
+		{
+			super(concatenateKeys(Key.SEARCH, Key.HONOUR_IGNORE_FILES));
+			value = false;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isHonourIgnoreFiles()
+	{
+		return cpHonourIgnoreFiles.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setHonourIgnoreFiles(boolean value)
+	{
+		cpHonourIgnoreFiles.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPHonourIgnoreFiles	cpHonourIgnoreFiles	= new CPHonourIgnoreFiles();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: LOOK-AND-FEEL
 
 
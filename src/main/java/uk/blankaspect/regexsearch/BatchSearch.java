@@ -0,0 +1,567 @@
+/*====================================================================*\
+
+BatchSearch.java
+
+Class: search that is performed from the command line without a user interface.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.PrintStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.filesystem.PathnameUtils;
+
+import uk.blankaspect.common.misc.PathnameFilter;
+
+import uk.blankaspect.common.regex.RegexUtils;
+
+import uk.blankaspect.common.string.StringUtils;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: SEARCH THAT IS PERFORMED FROM THE COMMAND LINE WITHOUT A USER INTERFACE
+
+
+/**
+ * This class performs a search from the command line without a user interface.  The parameters of the search are
+ * taken from a search-parameters file, from command-line options, or from both; an option overrides the corresponding
+ * parameter of the file.  No window is created, and the search does not need a display.
+ * <p>
+ * The files are searched on worker threads, and any replacements are made without prompting.  As the search proceeds,
+ * a line is written to the standard output for each file that contains a match, in the order in which the files are
+ * found:
+ * </p>
+ * <pre>
+ *   pathname TAB number-of-matches [TAB number-of-replacements]
+ * </pre>
+ * <p>
+ * Errors and a summary of the search are written to the standard error.  The exit status is 0 if a match was found, 1
+ * if no match was found and 2 if an error occurred.
+ * </p>
+ */
+
+public class BatchSearch
+	implements TextSearcher.IBatchHandler
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int	EXIT_STATUS_MATCHES		= 0;
+	private static final	int	EXIT_STATUS_NO_MATCHES	= 1;
+	private static final	int	EXIT_STATUS_ERROR		= 2;
+
+	private static final	String	HEADLESS_KEY	= "java.awt.headless";
+
+	private static final	char	FIELD_SEPARATOR_CHAR	= '\t';
+
+	private static final	String	OPTION_PREFIX	= "--";
+
+	private static final	String	ERROR_STR			= "Error: ";
+	private static final	String	FILES_STR			= "Files searched: ";
+	private static final	String	MATCHED_FILES_STR	= "Files containing target: ";
+	private static final	String	MATCHES_STR			= "Matches: ";
+	private static final	String	PRUNED_DIRS_STR		= "Directories skipped: ";
+	private static final	String	REPLACEMENTS_STR	= "Replacements: ";
+	private static final	String	NOT_FOUND_STR		= "Target not found:";
+	private static final	String	UNPROCESSED_STR		= "Not processed:";
+	private static final	String	TIMED_OUT_STR		= "Timed out:";
+
+	private static final	String	USAGE_STR	=
+			"Usage: " + RegexSearchApp.NAME_KEY + " [option ...] [pathname ...]\n"
+			+ "Options:\n"
+			+ "  " + Option.PARAMS + " <file>\n"
+			+ "      Take any parameter that is not specified by an option from a search-parameters file.\n"
+			+ "  " + Option.LIST + " <file>\n"
+			+ "      Search the files and directories in a list file.\n"
+			+ "  " + Option.TARGET + " <target>\n"
+			+ "      Search for the target.\n"
+			+ "  " + Option.REPLACE + " <replacement>\n"
+			+ "      Replace the target with the replacement.\n"
+			+ "  " + Option.REGEX + " | " + Option.LITERAL + "\n"
+			+ "      Treat the target as a regular expression or as a literal.\n"
+			+ "  " + Option.IGNORE_CASE + "\n"
+			+ "      Ignore the case of letters.\n"
+			+ "  " + Option.INCLUDE + " <patterns>, " + Option.EXCLUDE + " <patterns>\n"
+			+ "      Include or exclude the files whose pathnames match any of the space-separated patterns.\n"
+			+ "  " + Option.SHOW_NOT_FOUND + "\n"
+			+ "      List the files that don't contain the target.\n";
+
+	private interface Option
+	{
+		String	EXCLUDE			= "--exclude";
+		String	IGNORE_CASE		= "--ignore-case";
+		String	INCLUDE			= "--include";
+		String	LIST			= "--list";
+		String	LITERAL			= "--literal";
+		String	PARAMS			= "--params";
+		String	REGEX			= "--regex";
+		String	REPLACE			= "--replace";
+		String	SHOW_NOT_FOUND	= "--show-not-found";
+		String	TARGET			= "--target";
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		UNRECOGNISED_OPTION
+		("\"%1\" is not a recognised option."),
+
+		NO_OPTION_ARGUMENT
+		("No argument was supplied for the option \"%1\"."),
+
+		NO_FILES
+		("No files or directories were specified."),
+
+		FILE_OR_DIRECTORY_DOES_NOT_EXIST
+		("The file or directory does not exist."),
+
+		FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED
+		("Access to the file or directory was not permitted."),
+
+		UNSUPPORTED_FILE_SET
+		("The kind of the current file set of the search parameters (%1) is not supported in a batch search."),
+
+		NO_TARGET
+		("No target was specified."),
+
+		MALFORMED_REGULAR_EXPRESSION
+		("The target is not a well-formed regular expression.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	PrintStream	out;
+	private	PrintStream	err;
+	private	boolean		replace;
+	private	int			numErrors;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private BatchSearch(
+		PrintStream	out,
+		PrintStream	err)
+	{
+		// Initialise instance variables
+		this.out = out;
+		this.err = err;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	public static void main(
+		String[]	args)
+	{
+		// Prevent the creation of windows; any message that would be shown in a dialog is written to the standard error
+		System.setProperty(HEADLESS_KEY, Boolean.TRUE.toString());
+
+		// Read configuration
+		AppConfig.INSTANCE.read();
+
+		// Perform search and exit
+		System.exit(new BatchSearch(System.out, System.err).run(args));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates the parameters of a search from the specified command-line arguments.
+	 *
+	 * @throws AppException
+	 *           if the arguments are invalid or an error occurs when reading a file.
+	 */
+
+	private static TextSearcher.Params parseArguments(
+		String[]	args)
+		throws AppException
+	{
+		// Parse arguments
+		SearchParameters searchParams = null;
+		File listFile = null;
+		List<File> files = new ArrayList<>();
+		String targetStr = null;
+		String replacementStr = null;
+		Boolean regex = null;
+		boolean ignoreCase = false;
+		boolean showNotFound = false;
+		List<String> inclusionPatterns = null;
+		List<String> exclusionPatterns = null;
+		int index = 0;
+		while (index < args.length)
+		{
+			String arg = args[index++];
+			if (arg.startsWith(OPTION_PREFIX))
+			{
+				switch (arg)
+				{
+					case Option.PARAMS:
+						searchParams = new SearchParameters(getFile(getOptionArgument(args, index++, arg)));
+						break;
+
+					case Option.LIST:
+						listFile = getFile(getOptionArgument(args, index++, arg));
+						break;
+
+					case Option.TARGET:
+						targetStr = getOptionArgument(args, index++, arg);
+						break;
+
+					case Option.REPLACE:
+						replacementStr = getOptionArgument(args, index++, arg);
+						break;
+
+					case Option.REGEX:
+						regex = Boolean.TRUE;
+						break;
+
+					case Option.LITERAL:
+						regex = Boolean.FALSE;
+						break;
+
+					case Option.IGNORE_CASE:
+						ignoreCase = true;
+						break;
+
+					case Option.INCLUDE:
+						inclusionPatterns = FileSet.stringToPatterns(getOptionArgument(args, index++, arg));
+						break;
+
+					case Option.EXCLUDE:
+						exclusionPatterns = FileSet.stringToPatterns(getOptionArgument(args, index++, arg));
+						break;
+
+					case Option.SHOW_NOT_FOUND:
+						showNotFound = true;
+						break;
+
+					default:
+						throw new AppException(ErrorId.UNRECOGNISED_OPTION, arg);
+				}
+			}
+			else
+				files.add(getFile(arg));
+		}
+
+		// Take unspecified parameters from the current items of the search-parameters file
+		TextSearcher.Params params = new TextSearcher.Params();
+		if (searchParams != null)
+		{
+			FileSet fileSet = searchParams.getFileSet(searchParams.getFileSetIndex());
+			if ((fileSet != null) && files.isEmpty() && (listFile == null))
+			{
+				String pathname = getItem(fileSet.getPathnames(), fileSet.getPathnameIndex());
+				switch (fileSet.getKind())
+				{
+					case FILE:
+					case DIRECTORY:
+						if (!StringUtils.isNullOrEmpty(pathname))
+							files.add(getFile(pathname));
+						break;
+
+					case LIST:
+						if (!StringUtils.isNullOrEmpty(pathname))
+							listFile = getFile(pathname);
+						break;
+
+					case RESULTS:
+					case CLIPBOARD:
+						throw new AppException(ErrorId.UNSUPPORTED_FILE_SET, fileSet.getKind().toString());
+				}
+			}
+			if ((fileSet != null) && fileSet.getKind().hasFilters())
+			{
+				if (inclusionPatterns == null)
+					inclusionPatterns = getItem(fileSet.getInclusionFilters(), fileSet.getInclusionFilterIndex());
+				if (exclusionPatterns == null)
+					exclusionPatterns = getItem(fileSet.getExclusionFilters(), fileSet.getExclusionFilterIndex());
+			}
+			if (targetStr == null)
+				targetStr = getItem(searchParams.getTargets(), searchParams.getTargetIndex());
+			if ((replacementStr == null) && searchParams.isReplace())
+				replacementStr = getItem(searchParams.getReplacements(), searchParams.getReplacementIndex());
+			if (regex == null)
+				regex = searchParams.isRegex();
+			ignoreCase |= searchParams.isIgnoreCase();
+			showNotFound |= searchParams.isShowNotFound();
+		}
+
+		// Set list of files
+		if (listFile != null)
+			files.addAll(FileSet.readListFile(listFile));
+		if (files.isEmpty())
+			throw new AppException(ErrorId.NO_FILES);
+		params.files = files;
+
+		// Set filter patterns
+		params.inclusionPatterns = (inclusionPatterns == null) ? new ArrayList<>() : new ArrayList<>(inclusionPatterns);
+		if (params.inclusionPatterns.isEmpty())
+			params.inclusionPatterns.add(PathnameFilter.PATH_MULTIPLE_WILDCARD_STR);
+		if (exclusionPatterns != null)
+			params.exclusionPatterns = exclusionPatterns;
+
+		// Set target and replacement strings
+		if (StringUtils.isNullOrEmpty(targetStr))
+			throw new AppException(ErrorId.NO_TARGET);
+		params.targetStr = targetStr;
+		params.replacementStr = replacementStr;
+
+		// Set flags
+		params.regex = (regex != null) && regex;
+		params.ignoreCase = ignoreCase;
+		params.recordTargetNotFound = showNotFound;
+
+		// Validate target and replacement strings
+		if (params.regex)
+		{
+			try
+			{
+				int flags = Pattern.MULTILINE | Pattern.UNIX_LINES;
+				if (params.ignoreCase)
+					flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+				Pattern.compile(params.targetStr, flags);
+			}
+			catch (PatternSyntaxException e)
+			{
+				throw new TextSearcher.SyntaxException(ErrorId.MALFORMED_REGULAR_EXPRESSION,
+													   RegexUtils.getExceptionMessage(e));
+			}
+		}
+		if (params.replacementStr != null)
+			ReplacementTemplate.validate(params.replacementStr, params.regex);
+
+		// Return parameters
+		return params;
+	}
+
+	//------------------------------------------------------------------
+
+	private static String getOptionArgument(
+		String[]	args,
+		int			index,
+		String		option)
+		throws AppException
+	{
+		if (index >= args.length)
+			throw new AppException(ErrorId.NO_OPTION_ARGUMENT, option);
+		return args[index];
+	}
+
+	//------------------------------------------------------------------
+
+	private static File getFile(
+		String	pathname)
+		throws AppException
+	{
+		File file = new File(PathnameUtils.parsePathname(pathname));
+		try
+		{
+			if (!file.exists())
+				throw new FileException(ErrorId.FILE_OR_DIRECTORY_DOES_NOT_EXIST, file);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED, file, e);
+		}
+		return file;
+	}
+
+	//------------------------------------------------------------------
+
+	private static <T> T getItem(
+		List<T>	items,
+		int		index)
+	{
+		return ((index < 0) || (index >= items.size())) ? null : items.get(index);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : TextSearcher.IBatchHandler interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void fileSearched(
+		TextSearcher.FileResult	result)
+	{
+		StringBuilder buffer = new StringBuilder(256);
+		buffer.append(result.file().getPath());
+		buffer.append(FIELD_SEPARATOR_CHAR);
+		buffer.append(result.numMatches());
+		if (replace)
+		{
+			buffer.append(FIELD_SEPARATOR_CHAR);
+			buffer.append(result.numReplacements());
+		}
+		out.println(buffer);
+		out.flush();
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public boolean handleError(
+		AppException	exception)
+	{
+		++numErrors;
+		err.println(ERROR_STR + exception);
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Performs a search with the parameters that are specified by the specified command-line arguments.
+	 *
+	 * @return the exit status of the search.
+	 */
+
+	private int run(
+		String[]	args)
+	{
+		// Parse arguments
+		TextSearcher.Params params = null;
+		try
+		{
+			params = parseArguments(args);
+		}
+		catch (AppException e)
+		{
+			err.println(ERROR_STR + e);
+			err.println();
+			err.print(USAGE_STR);
+			return EXIT_STATUS_ERROR;
+		}
+		replace = (params.replacementStr != null);
+
+		// Perform search
+		TextSearcher searcher = new TextSearcher();
+		try
+		{
+			searcher.runBatchSearch(params, this);
+		}
+		catch (AppException e)
+		{
+			handleError(e);
+		}
+
+		// Write lists of files
+		writeFiles(NOT_FOUND_STR, searcher.getTargetNotFoundFiles());
+		writeFiles(UNPROCESSED_STR, searcher.getUnprocessedFiles());
+		writeFiles(TIMED_OUT_STR, searcher.getTimedOutFiles());
+
+		// Write summary
+		TextSearcher.AggregateResult result = searcher.getAggregateResult();
+		err.println(FILES_STR + result.numFiles());
+		err.println(MATCHED_FILES_STR + result.numMatchedFiles());
+		err.println(MATCHES_STR + result.numMatches());
+		if (replace)
+			err.println(REPLACEMENTS_STR + result.numReplacements());
+		if (result.numPrunedDirectories() > 0)
+			err.println(PRUNED_DIRS_STR + result.numPrunedDirectories());
+
+		// Return exit status
+		return (numErrors > 0) ? EXIT_STATUS_ERROR
+							   : (result.numMatches() > 0) ? EXIT_STATUS_MATCHES : EXIT_STATUS_NO_MATCHES;
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeFiles(
+		String		title,
+		List<File>	files)
+	{
+		if (!files.isEmpty())
+		{
+			err.println(title);
+			for (File file : files)
+				err.println(file.getPath());
+		}
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
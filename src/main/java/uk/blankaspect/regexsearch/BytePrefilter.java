@@ -0,0 +1,284 @@
+/*====================================================================*\
+
+BytePrefilter.java
+
+Class: filter that tests the bytes of a file for a literal that every match must contain.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.nio.ByteBuffer;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: FILTER THAT TESTS THE BYTES OF A FILE FOR A LITERAL THAT EVERY MATCH MUST CONTAIN
+
+
+/**
+ * This class tests the undecoded bytes of a file for an encoded literal that every match of a search target must
+ * contain, so that a file that cannot contain a match can be skipped without being decoded.  The bytes are searched
+ * with the Boyer-Moore-Horspool algorithm.
+ * <p>
+ * A prefilter can be created only for a character encoding in which a sequence of characters is found in the text if
+ * and only if its encoded bytes are found in the bytes of the file: UTF-8, ISO 8859-1 and US-ASCII.  The literal must
+ * not contain a line separator, because line separators are changed to LFs after the file is decoded.  When case is
+ * ignored, only ASCII characters that have no case variants outside ASCII may appear in the literal.
+ * </p>
+ * <p>
+ * A prefilter is applicable to a file in the encoding for which it was created.  If its literal is ASCII, it is also
+ * applicable to a file in any encoding that is compatible with ASCII, because the literal is encoded as the same bytes.
+ * </p>
+ * <p>
+ * An instance of this class is immutable, so it may be shared by several threads.
+ * </p>
+ */
+
+class BytePrefilter
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		NUM_BYTE_VALUES	= 256;
+
+	/** Letters whose Unicode case variants include characters outside ASCII (for example, U+212A KELVIN SIGN). */
+	private static final	String	UNSAFE_CASE_CHARS	= "IKSiks";
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Charset	charset;
+	private	byte[]	needle;
+	private	boolean	asciiNeedle;
+	private	int[]	folds;
+	private	int[]	shifts;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private BytePrefilter(
+		Charset	charset,
+		byte[]	needle,
+		boolean	ignoreCase)
+	{
+		// Initialise instance variables
+		this.charset = charset;
+		asciiNeedle = true;
+		for (byte b : needle)
+		{
+			if (b < 0)
+				asciiNeedle = false;
+		}
+
+		// Initialise table of folded byte values
+		folds = new int[NUM_BYTE_VALUES];
+		for (int i = 0; i < NUM_BYTE_VALUES; i++)
+			folds[i] = (ignoreCase && (i >= 'A') && (i <= 'Z')) ? i - 'A' + 'a' : i;
+
+		// Fold needle
+		this.needle = new byte[needle.length];
+		for (int i = 0; i < needle.length; i++)
+			this.needle[i] = (byte)folds[needle[i] & 0xFF];
+
+		// Initialise table of shifts
+		int length = needle.length;
+		shifts = new int[NUM_BYTE_VALUES];
+		for (int i = 0; i < NUM_BYTE_VALUES; i++)
+			shifts[i] = length;
+		for (int i = 0; i < length - 1; i++)
+			shifts[this.needle[i] & 0xFF] = length - 1 - i;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a prefilter for the specified requirement.  The longest substring of the literals of the requirement that
+	 * can be safely tested against the bytes of a file is used.
+	 *
+	 * @param  requirement
+	 *           the literals that every match must contain.
+	 * @param  charset
+	 *           the character encoding of the files that will be tested.
+	 * @return a prefilter for {@code requirement}, or {@code null} if no substring of its literals can be safely tested
+	 *         against the bytes of a file in the character encoding {@code charset}.
+	 */
+
+	public static BytePrefilter create(
+		MatchRequirement	requirement,
+		Charset				charset)
+	{
+		BytePrefilter prefilter = null;
+		for (String literal : requirement.getLiterals())
+		{
+			BytePrefilter literalPrefilter = create(literal, requirement.isIgnoreCase(), charset);
+			if ((literalPrefilter != null)
+					&& ((prefilter == null) || (prefilter.needle.length < literalPrefilter.needle.length)))
+				prefilter = literalPrefilter;
+		}
+		return prefilter;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a prefilter for the specified literal, all of which must be contained in every match.  The longest
+	 * substring of the literal that can be safely tested against the bytes of a file is used.
+	 *
+	 * @param  literal
+	 *           the literal that every match must contain.
+	 * @param  ignoreCase
+	 *           if {@code true}, the case of letters is ignored.
+	 * @param  charset
+	 *           the character encoding of the files that will be tested.
+	 * @return a prefilter for {@code literal}, or {@code null} if no substring of {@code literal} can be safely tested
+	 *         against the bytes of a file in the character encoding {@code charset}.  If {@code charset} is not UTF-8,
+	 *         ISO-8859-1 or US-ASCII but is compatible with ASCII, the prefilter tests the longest run of ASCII
+	 *         characters.
+	 */
+
+	public static BytePrefilter create(
+		String	literal,
+		boolean	ignoreCase,
+		Charset	charset)
+	{
+		// Test for supported character encoding; only the ASCII characters of the literal can be tested against the
+		// bytes of a file in another encoding that is compatible with ASCII
+		boolean ascii = charset.equals(StandardCharsets.US_ASCII);
+		boolean latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+		if (!ascii && !latin1 && !charset.equals(StandardCharsets.UTF_8))
+		{
+			if (!CharsetDetector.isAsciiCompatible(charset))
+				return null;
+			ascii = true;
+		}
+
+		// Find longest substring that can be safely tested
+		int startIndex = 0;
+		int endIndex = 0;
+		int index = 0;
+		int length = literal.length();
+		while (index < length)
+		{
+			// Skip characters that can't be tested
+			while ((index < length) && !isSafe(literal.charAt(index), ignoreCase, ascii, latin1))
+				++index;
+
+			// Find end of run of characters that can be tested
+			int runStartIndex = index;
+			while ((index < length) && isSafe(literal.charAt(index), ignoreCase, ascii, latin1))
+				++index;
+
+			// Update longest run
+			if (index - runStartIndex > endIndex - startIndex)
+			{
+				startIndex = runStartIndex;
+				endIndex = index;
+			}
+		}
+
+		// Create prefilter from encoded substring
+		return (startIndex < endIndex)
+				? new BytePrefilter(charset, literal.substring(startIndex, endIndex).getBytes(charset), ignoreCase)
+				: null;
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean isSafe(
+		char	ch,
+		boolean	ignoreCase,
+		boolean	ascii,
+		boolean	latin1)
+	{
+		if ((ch == '\n') || (ch == '\r') || (ch == '\uFFFD'))
+			return false;
+		if (ignoreCase)
+			return (ch < 0x80) && (UNSAFE_CASE_CHARS.indexOf(ch) < 0);
+		if (ascii)
+			return (ch < 0x80);
+		if (latin1)
+			return (ch < 0x100);
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if this prefilter may be applied to the bytes of a file in the specified character encoding.
+	 *
+	 * @param  charset
+	 *           the character encoding of the file.
+	 * @return {@code true} if this prefilter may be applied to the bytes of a file in the encoding {@code charset}.
+	 */
+
+	public boolean isApplicable(
+		Charset	charset)
+	{
+		return charset.equals(this.charset) || (asciiNeedle && CharsetDetector.isAsciiCompatible(charset));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified bytes contain the literal of this prefilter.  The bytes from index 0 to the
+	 * limit of the buffer are tested; the position of the buffer is not changed.
+	 *
+	 * @param  bytes
+	 *           the bytes that will be tested.
+	 * @return {@code true} if {@code bytes} contain the literal of this prefilter; {@code false} otherwise.
+	 */
+
+	public boolean mayMatch(
+		ByteBuffer	bytes)
+	{
+		int lastIndex = needle.length - 1;
+		byte lastByte = needle[lastIndex];
+		int endIndex = bytes.limit() - lastIndex;
+		int index = 0;
+		while (index < endIndex)
+		{
+			int b = folds[bytes.get(index + lastIndex) & 0xFF];
+			if ((byte)b == lastByte)
+			{
+				int i = lastIndex - 1;
+				while ((i >= 0) && ((byte)folds[bytes.get(index + i) & 0xFF] == needle[i]))
+					--i;
+				if (i < 0)
+					return true;
+			}
+			index += shifts[b];
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,283 @@
+/*====================================================================*\
+
+CharsetDetector.java
+
+Class: detector of the character encoding of a file.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.nio.ByteBuffer;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: DETECTOR OF THE CHARACTER ENCODING OF A FILE
+
+
+/**
+ * This class detects the character encoding of a file from its bytes.  The caller decides how many of the bytes are
+ * examined: a file that is read whole is examined whole, and a streamed file is examined up to {@link
+ * #DETECTION_LENGTH} bytes.
+ * <ul>
+ *   <li>A byte-order mark identifies UTF-8, UTF-16BE or UTF-16LE.  The mark is not removed: it is decoded as U+FEFF
+ *       and encoded again when the text is written, so the file keeps its mark.</li>
+ *   <li>Otherwise, if the default encoding is compatible with ASCII, the bytes are validated as UTF-8.  ASCII
+ *       bytes are skipped eight at a time.  If the bytes are ASCII, there is no evidence against the default encoding,
+ *       which is used.  If they are valid UTF-8, the file is UTF-8.  If they are not, the file is in the default
+ *       encoding or, if that is UTF-8 or US-ASCII, in ISO 8859-1, which decodes any sequence of bytes and encodes it
+ *       again unchanged.</li>
+ *   <li>A default encoding that is not compatible with ASCII (for example, UTF-16 without a byte-order mark) is used
+ *       as it is.</li>
+ * </ul>
+ */
+
+class CharsetDetector
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum number of leading bytes of a streamed file that are examined. */
+	public static final		int		DETECTION_LENGTH	= 1 << 16;
+
+	private static final	long	ASCII_MASK	= 0x8080808080808080L;
+
+	private static final	byte[]	UTF8_BOM		= { (byte)0xEF, (byte)0xBB, (byte)0xBF };
+	private static final	byte[]	UTF16BE_BOM		= { (byte)0xFE, (byte)0xFF };
+	private static final	byte[]	UTF16LE_BOM		= { (byte)0xFF, (byte)0xFE };
+
+	private static final	int		NUM_ASCII_CHARS	= 128;
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	private static	Map<Charset, Boolean>	asciiCompatible	= new ConcurrentHashMap<>();
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: KINDS OF UTF-8 BYTES
+
+
+	private enum Utf8Kind
+	{
+		ASCII,
+		UTF8,
+		OTHER
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private CharsetDetector()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Detects the character encoding of the bytes between the position and limit of the specified buffer, which are
+	 * all or the leading part of the bytes of a file.  All the bytes are examined.  The position and limit of the
+	 * buffer are not changed.
+	 *
+	 * @param  bytes
+	 *           the bytes of the file.
+	 * @param  endOfFile
+	 *           {@code true} if {@code bytes} extends to the end of the file.
+	 * @param  defaultCharset
+	 *           the character encoding of a file for which there is no evidence of another encoding.
+	 * @return the character encoding of the file.
+	 */
+
+	public static Charset detect(
+		ByteBuffer	bytes,
+		boolean		endOfFile,
+		Charset		defaultCharset)
+	{
+		// Test for byte-order mark
+		if (startsWith(bytes, UTF8_BOM))
+			return StandardCharsets.UTF_8;
+		if (startsWith(bytes, UTF16BE_BOM))
+			return StandardCharsets.UTF_16BE;
+		if (startsWith(bytes, UTF16LE_BOM))
+			return StandardCharsets.UTF_16LE;
+
+		// Use a default encoding that is not compatible with ASCII
+		if (!isAsciiCompatible(defaultCharset))
+			return defaultCharset;
+
+		// Validate bytes as UTF-8
+		return switch (validateUtf8(bytes, bytes.position(), bytes.limit(), endOfFile))
+		{
+			case ASCII -> defaultCharset;
+			case UTF8  -> StandardCharsets.UTF_8;
+			case OTHER -> (defaultCharset.equals(StandardCharsets.UTF_8)
+								|| defaultCharset.equals(StandardCharsets.US_ASCII))
+									? StandardCharsets.ISO_8859_1
+									: defaultCharset;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified character encoding is compatible with ASCII: each ASCII character is
+	 * encoded as the byte of the same value, and that byte is decoded as the character.
+	 *
+	 * @param  charset
+	 *           the character encoding.
+	 * @return {@code true} if {@code charset} is compatible with ASCII.
+	 */
+
+	public static boolean isAsciiCompatible(
+		Charset	charset)
+	{
+		return asciiCompatible.computeIfAbsent(charset, cs ->
+		{
+			if (!cs.canEncode())
+				return false;
+			byte[] bytes = new byte[NUM_ASCII_CHARS];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = (byte)i;
+			String chars = new String(bytes, StandardCharsets.ISO_8859_1);
+			return Arrays.equals(chars.getBytes(cs), bytes) && new String(bytes, cs).equals(chars);
+		});
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean startsWith(
+		ByteBuffer	bytes,
+		byte[]		prefix)
+	{
+		if (bytes.remaining() < prefix.length)
+			return false;
+		int offset = bytes.position();
+		for (int i = 0; i < prefix.length; i++)
+		{
+			if (bytes.get(offset + i) != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Validates the specified bytes as UTF-8.  Runs of ASCII bytes are skipped eight bytes at a time.
+	 *
+	 * @param  bytes
+	 *           the buffer that contains the bytes.
+	 * @param  startIndex
+	 *           the index of the first byte.
+	 * @param  endIndex
+	 *           the index after the last byte.
+	 * @param  endOfFile
+	 *           {@code true} if {@code endIndex} is the end of the file, in which case a sequence that is cut short by
+	 *           it is invalid.
+	 * @return the kind of the bytes.
+	 */
+
+	private static Utf8Kind validateUtf8(
+		ByteBuffer	bytes,
+		int			startIndex,
+		int			endIndex,
+		boolean		endOfFile)
+	{
+		boolean ascii = true;
+		int index = startIndex;
+		while (index < endIndex)
+		{
+			// Skip ASCII bytes eight at a time
+			if ((index + Long.BYTES <= endIndex) && ((bytes.getLong(index) & ASCII_MASK) == 0))
+			{
+				index += Long.BYTES;
+				continue;
+			}
+
+			// Skip ASCII byte
+			int b = bytes.get(index) & 0xFF;
+			if (b < 0x80)
+			{
+				++index;
+				continue;
+			}
+
+			// Get the number of continuation bytes and the range of the first of them
+			ascii = false;
+			int numContinuationBytes = 0;
+			int min = 0x80;
+			int max = 0xBF;
+			if ((b >= 0xC2) && (b <= 0xDF))
+				numContinuationBytes = 1;
+			else if ((b >= 0xE0) && (b <= 0xEF))
+			{
+				numContinuationBytes = 2;
+				if (b == 0xE0)
+					min = 0xA0;
+				else if (b == 0xED)
+					max = 0x9F;
+			}
+			else if ((b >= 0xF0) && (b <= 0xF4))
+			{
+				numContinuationBytes = 3;
+				if (b == 0xF0)
+					min = 0x90;
+				else if (b == 0xF4)
+					max = 0x8F;
+			}
+			else
+				return Utf8Kind.OTHER;
+
+			// Validate continuation bytes; a sequence that is cut short before the end of the file is accepted
+			++index;
+			for (int i = 0; i < numContinuationBytes; i++)
+			{
+				if (index >= endIndex)
+					return endOfFile ? Utf8Kind.OTHER : Utf8Kind.UTF8;
+				int cb = bytes.get(index++) & 0xFF;
+				if ((cb < min) || (cb > max))
+					return Utf8Kind.OTHER;
+				min = 0x80;
+				max = 0xBF;
+			}
+		}
+		return ascii ? Utf8Kind.ASCII : Utf8Kind.UTF8;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
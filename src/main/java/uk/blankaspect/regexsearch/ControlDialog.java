@@ -42,7 +42,6 @@ import java.awt.event.WindowEvent;
 
 import java.io.File;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import java.util.regex.Pattern;
@@ -64,12 +63,9 @@ import javax.swing.Timer;
 import uk.blankaspect.common.exception.AppException;
 import uk.blankaspect.common.exception.FileException;
 
-import uk.blankaspect.common.filesystem.PathnameUtils;
-
 import uk.blankaspect.common.geometry.VHPos;
 
 import uk.blankaspect.common.misc.PathnameFilter;
-import uk.blankaspect.common.misc.TextFile;
 
 import uk.blankaspect.common.regex.RegexUtils;
 
@@ -117,8 +113,6 @@ class ControlDialog
 //  Constants
 ////////////////////////////////////////////////////////////////////////
 
-	public static final		char	COMMENT_PREFIX_CHAR	= ';';
-
 	private static final	int		SCROLL_INTERVAL	= 400;
 
 	private static final	int		ARROW_BUTTON_WIDTH	= 24;
@@ -138,6 +132,7 @@ class ControlDialog
 	private static final	String	REGULAR_EXPRESSION_STR		= "Regular expression";
 	private static final	String	IGNORE_CASE_STR				= "Ignore case";
 	private static final	String	SHOW_NOT_FOUND_STR			= "Show not found";
+	private static final	String	LIST_MATCHES_STR			= "List matches";
 	private static final	String	DELETE_STR					= "Delete";
 	private static final	String	DELETE_FILE_SET_STR			= "Delete file set";
 	private static final	String	DELETE_MESSAGE_STR			= "Do you want to delete the current file set?";
@@ -234,6 +229,7 @@ class ControlDialog
 	private	JCheckBox				regexCheckBox;
 	private	JCheckBox				ignoreCaseCheckBox;
 	private	JCheckBox				showNotFoundCheckBox;
+	private	JCheckBox				listMatchesCheckBox;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -837,6 +833,22 @@ class ControlDialog
 		gridBag.setConstraints(showNotFoundCheckBox, gbc);
 		checkBoxPanel.add(showNotFoundCheckBox);
 
+		// Check box: list matches
+		listMatchesCheckBox = new FCheckBox(LIST_MATCHES_STR);
+		listMatchesCheckBox.setMnemonic(KeyEvent.VK_M);
+
+		gbc.gridx = gridX++;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 16, 0, 0);
+		gridBag.setConstraints(listMatchesCheckBox, gbc);
+		checkBoxPanel.add(listMatchesCheckBox);
+
 		// Set transfer handler
 		mainPanel.setTransferHandler(FileTransferHandler.INSTANCE);
 
@@ -932,50 +944,6 @@ class ControlDialog
 
 	//------------------------------------------------------------------
 
-	private static List<File> readListFile(
-		File	listFile)
-		throws AppException
-	{
-		// Parse file
-		List<File> files = new ArrayList<>();
-		for (String str : TextFile.readLines(listFile, TextModel.getCharEncoding()))
-		{
-			// Set index of end of pathname, ignoring any comment
-			int index = str.indexOf(COMMENT_PREFIX_CHAR);
-			if (index >= 0)
-			{
-				while (--index >= 0)
-				{
-					char ch = str.charAt(index);
-					if ((ch != '\t') && (ch != ' '))
-						break;
-				}
-				str = str.substring(0, ++index);
-			}
-
-			// Parse pathname and add file to list
-			if (!str.isEmpty())
-			{
-				File file = new File(PathnameUtils.parsePathname(str));
-				try
-				{
-					if (!file.isFile() && !file.isDirectory())
-						throw new FileException(ErrorId.FILE_OR_DIRECTORY_DOES_NOT_EXIST, file);
-					files.add(file);
-				}
-				catch (SecurityException e)
-				{
-					throw new FileException(ErrorId.FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED, file);
-				}
-			}
-		}
-
-		// Return files
-		return files;
-	}
-
-	//------------------------------------------------------------------
-
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : ActionListener interface
 ////////////////////////////////////////////////////////////////////////
@@ -1157,6 +1125,7 @@ class ControlDialog
 		regexCheckBox.setSelected(searchParams.isRegex());
 		ignoreCaseCheckBox.setSelected(searchParams.isIgnoreCase());
 		showNotFoundCheckBox.setSelected(searchParams.isShowNotFound());
+		listMatchesCheckBox.setSelected(searchParams.isListMatches());
 		enableComponents();
 		updateCommands();
 	}
@@ -1176,6 +1145,7 @@ class ControlDialog
 		searchParams.setRegex(isRegex());
 		searchParams.setIgnoreCase(isIgnoreCase());
 		searchParams.setShowNotFound(isShowNotFound());
+		searchParams.setListMatches(isListMatches());
 	}
 
 	//------------------------------------------------------------------
@@ -1228,7 +1198,7 @@ class ControlDialog
 				break;
 
 			case LIST:
-				params.files = readListFile(pathnameEditor.getFile());
+				params.files = FileSet.readListFile(pathnameEditor.getFile());
 				break;
 
 			case RESULTS:
@@ -1259,6 +1229,7 @@ class ControlDialog
 		params.regex = isRegex();
 		params.ignoreCase = isIgnoreCase();
 		params.recordTargetNotFound = isShowNotFound();
+		params.listMatches = !isReplace() && isListMatches();
 
 		// Return parameters
 		return params;
@@ -1375,6 +1346,7 @@ class ControlDialog
 		targetEditor.getEscapeButton().setEnabled(isRegex());
 		replacementEditor.setEnabled(isReplace());
 		replacementEditor.getEscapeButton().setEnabled(isReplace());
+		listMatchesCheckBox.setEnabled(!isReplace());
 
 		// Move focus to next component if focus owner is disabled
 		KeyboardFocusManager focusManager = KeyboardFocusManager.getCurrentKeyboardFocusManager();
@@ -1436,6 +1408,13 @@ class ControlDialog
 
 	//------------------------------------------------------------------
 
+	private boolean isListMatches()
+	{
+		return listMatchesCheckBox.isSelected();
+	}
+
+	//------------------------------------------------------------------
+
 	private String getReplacementString()
 	{
 		return replacementEditor.getText(true);
@@ -1540,7 +1519,7 @@ class ControlDialog
 		{
 			try
 			{
-				TextSearcher.createReplacementString(getReplacementString(), null, isRegex());
+				ReplacementTemplate.validate(getReplacementString(), isRegex());
 			}
 			catch (TextSearcher.SyntaxException e)
 			{
@@ -1794,18 +1773,12 @@ class ControlDialog
 		DIRECTORY_DOES_NOT_EXIST
 		("The directory does not exist."),
 
-		FILE_OR_DIRECTORY_DOES_NOT_EXIST
-		("The file or directory denoted by this pathname in the list file does not exist."),
-
 		FILE_ACCESS_NOT_PERMITTED
 		("Access to the file was not permitted."),
 
 		DIRECTORY_ACCESS_NOT_PERMITTED
 		("Access to the directory was not permitted."),
 
-		FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED
-		("Access to the file or directory specified in the list file was not permitted."),
-
 		NO_RESULTS
 		("No search results have been saved."),
 
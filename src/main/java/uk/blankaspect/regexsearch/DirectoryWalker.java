@@ -0,0 +1,679 @@
+/*====================================================================*\
+
+DirectoryWalker.java
+
+Class: walker that lists directories concurrently and returns the files that will be searched.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.misc.PathnameFilter;
+import uk.blankaspect.common.misc.Task;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: WALKER THAT LISTS DIRECTORIES CONCURRENTLY AND RETURNS THE FILES THAT WILL BE SEARCHED
+
+
+/**
+ * This class walks the directory trees of a search and returns the files that will be searched, one at a time, in a
+ * fixed order: the files of a directory come after those of its subdirectories, and the entries of a directory are
+ * sorted by pathname.
+ * <p>
+ * Each directory is listed once with a {@link DirectoryStream}, and the kind of each entry is taken from its {@link
+ * BasicFileAttributes}, so filters are applied to pathnames without further queries of the file system.  A
+ * directory beneath which the filter of its tree can accept no file, or beneath which the exclusion filter excludes
+ * every file, is not listed.  When a
+ * directory has been listed, its subdirectories are listed ahead of the walk on a work-stealing pool of threads, up to
+ * a limit on the number of listings that have not yet been reached by the walk.
+ * </p>
+ * <p>
+ * If the walker honours ignore files, the {@code .gitignore} and {@code .ignore} files of each directory are read when
+ * the directory is listed, and their rules, compiled once by {@link IgnoreRules}, are inherited by the subdirectories.
+ * Entries that are ignored by the rules are left out of the listing, and {@code .git} directories are pruned.  The
+ * ignore files of the ancestors of a root directory are read up to the root of its Git repository.
+ * </p>
+ * <p>
+ * An error that occurs when a directory is listed is reported to an {@link IErrorHandler} on the thread that calls
+ * {@link #getNextFile(IErrorHandler)}, when the walk reaches the directory.
+ * </p>
+ */
+
+class DirectoryWalker
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int	MAX_NUM_PREFETCHED_LISTINGS	= 1024;
+
+	private static final	int	LISTING_POLL_INTERVAL	= 100;	// milliseconds
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FAILED_TO_LIST_DIRECTORY_ENTRIES
+		("Failed to get a list of directory entries.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
+
+
+	// INTERFACE: ERROR HANDLER
+
+
+	/**
+	 * This functional interface defines the method that is called when an error occurs in listing a directory.
+	 */
+
+	@FunctionalInterface
+	interface IErrorHandler
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Handles an error that occurred in listing the specified directory.
+		 *
+		 * @param  directory
+		 *           the directory whose listing caused the error.
+		 * @param  exception
+		 *           the exception that describes the error.
+		 * @return {@code true} if the walk should continue; {@code false} if it should be abandoned.
+		 */
+
+		boolean handleError(
+			File			directory,
+			AppException	exception);
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	PathnameFilter	exclusionFilter;
+	private	boolean			honourIgnoreFiles;
+	private	ForkJoinPool	executor;
+	private	AtomicInteger	numPrefetchedListings;
+	private	AtomicInteger	numPrunedDirectories;
+	private	List<Node>		roots;
+	private	Deque<Node>		nodeStack;
+	private	boolean			aborted;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a directory walker.
+	 *
+	 * @param exclusionFilter
+	 *          the filter that selects the files that will not be returned by the walker.  It may be {@code null}.
+	 * @param honourIgnoreFiles
+	 *          if {@code true}, files and directories that are ignored by the rules of {@code .gitignore} and {@code
+	 *          .ignore} files will not be returned by the walker.
+	 * @param numThreads
+	 *          the number of threads on which directories will be listed.
+	 */
+
+	public DirectoryWalker(
+		PathnameFilter	exclusionFilter,
+		boolean			honourIgnoreFiles,
+		int				numThreads)
+	{
+		// Initialise instance variables
+		this.exclusionFilter = exclusionFilter;
+		this.honourIgnoreFiles = honourIgnoreFiles;
+		executor = new ForkJoinPool(numThreads);
+		numPrefetchedListings = new AtomicInteger();
+		numPrunedDirectories = new AtomicInteger();
+		roots = new ArrayList<>();
+		nodeStack = new ArrayDeque<>();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Adds a file to the end of the walk.  The file is returned by the walker as it is, without being filtered.
+	 *
+	 * @param file
+	 *          the file that will be added.
+	 * @param filter
+	 *          the filter of the file.
+	 */
+
+	public void addFile(
+		File			file,
+		PathnameFilter	filter)
+	{
+		Node node = new Node(file, filter, null);
+		node.listing = CompletableFuture.completedFuture(new Listing(null, new File[] { file }, List.of()));
+		roots.add(node);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds a directory tree to the end of the walk.  Listing of the directory starts immediately.  The tree is ignored
+	 * if it cannot contain a file that will be returned by the walker.
+	 *
+	 * @param directory
+	 *          the root directory of the tree.
+	 * @param filter
+	 *          the filter that selects the files and directories of the tree.
+	 */
+
+	public void addDirectory(
+		File			directory,
+		PathnameFilter	filter)
+	{
+		if (isPruned(directory, filter))
+			return;
+
+		Node node = new Node(directory, filter, honourIgnoreFiles ? IgnoreRules.forAncestors(directory) : null);
+		prefetch(node);
+		roots.add(node);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the next file of the walk.
+	 *
+	 * @param  errorHandler
+	 *           the handler of errors that occurred in listing the directories that are reached by this call.
+	 * @return the next file of the walk, or {@code null} if there are no more files, the error handler chose to
+	 *         abandon the walk or the current task was cancelled.
+	 */
+
+	public File getNextFile(
+		IErrorHandler	errorHandler)
+	{
+		// Start walk
+		if (!roots.isEmpty())
+		{
+			for (int i = roots.size() - 1; i >= 0; i--)
+				nodeStack.addFirst(roots.get(i));
+			roots.clear();
+		}
+
+		// Walk directory trees
+		while (!aborted && !nodeStack.isEmpty())
+		{
+			Node node = nodeStack.peekFirst();
+
+			// Wait for listing of directory and report any errors
+			if (node.entries == null)
+			{
+				Listing listing = getListing(node);
+				if (listing == null)
+				{
+					abort();
+					break;
+				}
+				for (AppException exception : listing.exceptions)
+				{
+					if (!errorHandler.handleError(node.file, exception))
+					{
+						abort();
+						return null;
+					}
+				}
+				node.entries = listing;
+			}
+
+			// Descend into next subdirectory ...
+			Node subdirectory = node.getNextDirectory();
+			if (subdirectory != null)
+			{
+				nodeStack.addFirst(subdirectory);
+				continue;
+			}
+
+			// ... or return next file ...
+			File file = node.getNextFile();
+			if (file != null)
+				return file;
+
+			// ... or ascend from directory
+			nodeStack.removeFirst();
+		}
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the walk was abandoned before all its files were returned.
+	 *
+	 * @return {@code true} if the walk was abandoned.
+	 */
+
+	public boolean isAborted()
+	{
+		return aborted;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of directories that have been pruned from the walk because it was decided from their pathnames
+	 * alone that no file beneath them would be returned, or because they were ignored by the rules of ignore files.  A
+	 * pruned directory is neither listed nor descended into.
+	 *
+	 * @return the number of directories that have been pruned from the walk.
+	 */
+
+	public int getNumPrunedDirectories()
+	{
+		return numPrunedDirectories.get();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Stops any listings that are in progress and releases the threads of this walker.
+	 */
+
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if no file beneath the specified directory can be accepted by the specified filter and not
+	 * excluded by the exclusion filter, in which case the directory is counted as pruned.
+	 */
+
+	private boolean isPruned(
+		File			directory,
+		PathnameFilter	filter)
+	{
+		boolean pruned = !filter.mayAcceptBeneath(directory)
+							|| ((exclusionFilter != null) && exclusionFilter.acceptsAllBeneath(directory));
+		if (pruned)
+			numPrunedDirectories.incrementAndGet();
+		return pruned;
+	}
+
+	//------------------------------------------------------------------
+
+	private void abort()
+	{
+		aborted = true;
+		nodeStack.clear();
+		close();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Waits for the listing of the specified node, starting it if it has not been prefetched.
+	 *
+	 * @return the listing of {@code node}, or {@code null} if the current task was cancelled.
+	 */
+
+	private Listing getListing(
+		Node	node)
+	{
+		// Start listing if it was not prefetched
+		if (node.listing == null)
+			node.listing = CompletableFuture.supplyAsync(() -> list(node), executor);
+		else if (node.prefetched)
+			numPrefetchedListings.decrementAndGet();
+
+		// Wait for listing
+		while (true)
+		{
+			if (Task.isCancelled())
+				return null;
+			try
+			{
+				return node.listing.get(LISTING_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException e)
+			{
+				// ignore
+			}
+			catch (InterruptedException e)
+			{
+				return null;
+			}
+			catch (ExecutionException e)
+			{
+				FileException exception =
+						new FileException(ErrorId.FAILED_TO_LIST_DIRECTORY_ENTRIES, node.file, e.getCause());
+				return new Listing(null, null, List.of(exception));
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Starts the listing of the specified node on the thread pool if the limit on prefetched listings has not been
+	 * reached.
+	 */
+
+	private void prefetch(
+		Node	node)
+	{
+		if (numPrefetchedListings.incrementAndGet() <= MAX_NUM_PREFETCHED_LISTINGS)
+		{
+			node.prefetched = true;
+			node.listing = CompletableFuture.supplyAsync(() -> list(node), executor);
+		}
+		else
+			numPrefetchedListings.decrementAndGet();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Lists the specified directory and starts the listings of its subdirectories.  This method is called on a thread
+	 * of the pool.
+	 */
+
+	private Listing list(
+		Node	node)
+	{
+		File directory = node.file;
+		PathnameFilter filter = node.filter;
+		List<AppException> exceptions = new ArrayList<>();
+
+		// Get relative length of filter
+		int filterRelativeLength = 0;
+		try
+		{
+			filterRelativeLength = filter.getRelativeLength(directory);
+		}
+		catch (AppException e)
+		{
+			exceptions.add(e);
+		}
+
+		// List directory
+		boolean listFiles = filter.containsPathWildcards() || (filterRelativeLength >= 1);
+		boolean listDirectories = filter.containsPathWildcards() || (filterRelativeLength >= 2);
+		List<File> files = listFiles ? new ArrayList<>() : null;
+		List<File> directories = listDirectories ? new ArrayList<>() : null;
+		List<String> ignoreFilenames = new ArrayList<>();
+		if (listFiles || listDirectories)
+		{
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath()))
+			{
+				for (Path path : stream)
+				{
+					// Get attributes of entry; ignore an entry whose attributes can't be read
+					BasicFileAttributes attrs = null;
+					try
+					{
+						attrs = Files.readAttributes(path, BasicFileAttributes.class);
+					}
+					catch (IOException e)
+					{
+						continue;
+					}
+
+					// Add entry to list of files or directories
+					File file = path.toFile();
+					if (attrs.isDirectory())
+					{
+						if (honourIgnoreFiles && file.getName().equals(IgnoreRules.GIT_DIRECTORY_NAME))
+							numPrunedDirectories.incrementAndGet();
+						else if (listDirectories && !isPruned(file, filter))
+							directories.add(file);
+					}
+					else if (attrs.isRegularFile())
+					{
+						if (honourIgnoreFiles && IgnoreRules.FILENAMES.contains(file.getName()))
+							ignoreFilenames.add(file.getName());
+						if (listFiles && filter.acceptPathname(file)
+								&& ((exclusionFilter == null) || !exclusionFilter.acceptPathname(file)))
+							files.add(file);
+					}
+				}
+			}
+			catch (IOException | DirectoryIteratorException | SecurityException e)
+			{
+				exceptions.add(new FileException(ErrorId.FAILED_TO_LIST_DIRECTORY_ENTRIES, directory, e));
+				files = null;
+				directories = null;
+			}
+		}
+
+		// Remove entries that are ignored by the rules of ignore files
+		IgnoreRules ignoreRules = node.ignoreRules;
+		if (honourIgnoreFiles)
+		{
+			ignoreRules = IgnoreRules.forDirectory(directory, ignoreFilenames, ignoreRules);
+			if (ignoreRules != null)
+			{
+				IgnoreRules rules = ignoreRules;
+				if (files != null)
+					files.removeIf(file -> rules.isIgnored(file, false));
+				if (directories != null)
+				{
+					directories.removeIf(dir ->
+					{
+						boolean ignored = rules.isIgnored(dir, true);
+						if (ignored)
+							numPrunedDirectories.incrementAndGet();
+						return ignored;
+					});
+				}
+			}
+		}
+
+		// Sort entries
+		if (files != null)
+			Collections.sort(files);
+		Node[] subdirectories = null;
+		if (directories != null)
+		{
+			Collections.sort(directories);
+			subdirectories = new Node[directories.size()];
+			for (int i = 0; i < subdirectories.length; i++)
+				subdirectories[i] = new Node(directories.get(i), filter, ignoreRules);
+		}
+
+		// Start listings of subdirectories
+		if (subdirectories != null)
+		{
+			for (Node subdirectory : subdirectories)
+				prefetch(subdirectory);
+		}
+
+		// Return listing
+		return new Listing(subdirectories, (files == null) ? null : files.toArray(File[]::new), exceptions);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: LISTING OF A DIRECTORY
+
+
+	private record Listing(
+		Node[]				directories,
+		File[]				files,
+		List<AppException>	exceptions)
+	{ }
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: NODE OF A DIRECTORY TREE
+
+
+	private static class Node
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	File						file;
+		private	PathnameFilter				filter;
+		private	IgnoreRules					ignoreRules;
+		private	CompletableFuture<Listing>	listing;
+		private	boolean						prefetched;
+		private	Listing						entries;
+		private	int							directoryIndex;
+		private	int							fileIndex;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Node(
+			File			file,
+			PathnameFilter	filter,
+			IgnoreRules		ignoreRules)
+		{
+			// Initialise instance variables
+			this.file = file;
+			this.filter = filter;
+			this.ignoreRules = ignoreRules;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private Node getNextDirectory()
+		{
+			Node[] directories = entries.directories();
+			return ((directories == null) || (directoryIndex >= directories.length))
+					? null
+					: directories[directoryIndex++];
+		}
+
+		//--------------------------------------------------------------
+
+		private File getNextFile()
+		{
+			File[] files = entries.files();
+			return ((files == null) || (fileIndex >= files.length)) ? null : files[fileIndex++];
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
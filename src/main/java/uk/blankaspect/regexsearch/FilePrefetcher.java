@@ -0,0 +1,433 @@
+/*====================================================================*\
+
+FilePrefetcher.java
+
+Class: reader of the files of a prompted search ahead of the search.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongPredicate;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.common.misc.Task;
+
+import uk.blankaspect.common.thread.DaemonFactory;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: READER OF THE FILES OF A PROMPTED SEARCH AHEAD OF THE SEARCH
+
+
+/**
+ * This class takes the files of a prompted search from a {@link DirectoryWalker} and reads them on a background thread
+ * ahead of the search, so that the search does not wait for a file to be listed, read and decoded after the user has
+ * responded to a match.  Each file is also scanned for a match when it is read; the text of a file that contains no
+ * match is discarded, so the search skips the file at once.  The size and modification time of each file are recorded
+ * before it is read, so that the search can detect a file that has changed since it was read (for example, by an
+ * earlier replacement or by another program while the user was prompted) and read it again.
+ * <p>
+ * The files that have been read but not yet taken by the search are held in a queue whose length and total size of
+ * text are limited.  The walker must not be used by any other thread until the prefetcher has been {@linkplain
+ * #close() closed}.  Errors that occur in listing directories are deferred: they are attached to the next file of the
+ * walk and reported by the search when it takes that file, as they would have been if the search had used the walker
+ * itself.
+ * </p>
+ */
+
+class FilePrefetcher
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		MAX_NUM_FILES	= 256;
+
+	private static final	int		POLL_INTERVAL	= 100;	// milliseconds
+
+	private static final	String	THREAD_NAME	= "app-searchReadAhead";
+
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
+
+
+	// INTERFACE: READER OF A FILE
+
+
+	/**
+	 * This functional interface defines the method that reads a file ahead of the search.
+	 */
+
+	@FunctionalInterface
+	interface IReader
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Reads the specified file and scans it for a match.  This method is called on the thread of the prefetcher.
+		 *
+		 * @param  file
+		 *           the file that will be read.
+		 * @param  stopped
+		 *           the test of whether the prefetcher has been stopped, which the reader may apply to abandon a long
+		 *           scan.
+		 * @return the content of {@code file}, or {@code null} if the file contains no match.
+		 * @throws AppException
+		 *           if an error occurs when reading the file.
+		 */
+
+		TextModel.Content read(
+			File			file,
+			BooleanSupplier	stopped)
+			throws AppException;
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	DirectoryWalker	directoryWalker;
+	private	IReader			reader;
+	private	LongPredicate	unread;
+	private	long			maxNumBytes;
+	private	Deque<Entry>	entries;
+	private	long			numBytes;
+	private	boolean			stopped;
+	private	boolean			finished;
+	private	Thread			thread;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a prefetcher.
+	 *
+	 * @param directoryWalker
+	 *          the walker from which the files will be taken.
+	 * @param reader
+	 *          the reader of a file.
+	 * @param unread
+	 *          the predicate that is applied to the length of a file to decide whether the file is left unread, in
+	 *          which case the search will process the file itself.
+	 * @param maxNumBytes
+	 *          the maximum total size, in bytes, of the text of the files that have been read ahead of the search.
+	 *          The limit may be exceeded by the text of one file.
+	 */
+
+	public FilePrefetcher(
+		DirectoryWalker	directoryWalker,
+		IReader			reader,
+		LongPredicate	unread,
+		long			maxNumBytes)
+	{
+		// Initialise instance variables
+		this.directoryWalker = directoryWalker;
+		this.reader = reader;
+		this.unread = unread;
+		this.maxNumBytes = maxNumBytes;
+		entries = new ArrayDeque<>();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static long getNumBytes(
+		Entry	entry)
+	{
+		return (entry.content() == null) ? 0 : (long)entry.content().text.length() * Character.BYTES;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Starts reading files ahead of the search on a background thread.
+	 */
+
+	public void start()
+	{
+		thread = DaemonFactory.create(THREAD_NAME, this::run);
+		thread.start();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the next file of the walk, waiting for it to be read if necessary.
+	 *
+	 * @return the next file of the walk, or {@code null} if the current task was cancelled or reading ahead stopped
+	 *         before the end of the walk.
+	 */
+
+	public synchronized Entry next()
+	{
+		while (entries.isEmpty())
+		{
+			if (finished || Task.isCancelled())
+				return null;
+			try
+			{
+				wait(POLL_INTERVAL);
+			}
+			catch (InterruptedException e)
+			{
+				return null;
+			}
+		}
+		Entry entry = entries.removeFirst();
+		numBytes -= getNumBytes(entry);
+		notifyAll();
+		return entry;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Stops reading files ahead of the search, and waits for the file that is being read, if any, so that the walker
+	 * may be used by the caller.
+	 *
+	 * @return the files that were read ahead of the search but not taken by it, in the order of the walk.
+	 */
+
+	public List<Entry> close()
+	{
+		// Stop background thread and wait for it to finish
+		synchronized (this)
+		{
+			stopped = true;
+			notifyAll();
+		}
+		if (thread != null)
+		{
+			try
+			{
+				thread.join();
+			}
+			catch (InterruptedException e)
+			{
+				// ignore
+			}
+		}
+
+		// Return the files that were not taken
+		synchronized (this)
+		{
+			List<Entry> remainingEntries = new ArrayList<>(entries);
+			entries.clear();
+			numBytes = 0;
+			return remainingEntries;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private synchronized boolean isStopped()
+	{
+		return stopped;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the files of the walk until the end of the walk is reached or this prefetcher is stopped.  This method is
+	 * called on the background thread.
+	 */
+
+	private void run()
+	{
+		try
+		{
+			while (true)
+			{
+				// Wait for space in the queue of files
+				synchronized (this)
+				{
+					while (!stopped && !entries.isEmpty()
+							&& ((entries.size() >= MAX_NUM_FILES) || (numBytes >= maxNumBytes)))
+					{
+						try
+						{
+							wait();
+						}
+						catch (InterruptedException e)
+						{
+							return;
+						}
+					}
+					if (stopped)
+						return;
+				}
+
+				// Get next file of walk
+				List<ListingError> listingErrors = new ArrayList<>();
+				File file = directoryWalker.getNextFile((directory, exception) ->
+				{
+					listingErrors.add(new ListingError(directory, exception));
+					return true;
+				});
+
+				// Read file
+				Entry entry = null;
+				if (file == null)
+					entry = new Entry(listingErrors, null, 0, null, null, null);
+				else
+				{
+					TrigramIndex.Stamp stamp = TrigramIndex.Stamp.of(file);
+					long length = (stamp == null) ? file.length() : stamp.size();
+					if (unread.test(length))
+						entry = new Entry(listingErrors, file, length, stamp, null, null);
+					else
+					{
+						try
+						{
+							entry = new Entry(listingErrors, file, length, stamp, reader.read(file, this::isStopped),
+											  null);
+						}
+						catch (AppException e)
+						{
+							entry = new Entry(listingErrors, file, length, stamp, null, e);
+						}
+					}
+				}
+
+				// Add file to queue
+				synchronized (this)
+				{
+					entries.addLast(entry);
+					numBytes += getNumBytes(entry);
+					notifyAll();
+				}
+
+				// Stop at end of walk
+				if (file == null)
+					break;
+			}
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				finished = true;
+				notifyAll();
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: ERROR IN LISTING A DIRECTORY
+
+
+	public record ListingError(
+		File			directory,
+		AppException	exception)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: FILE THAT WAS READ AHEAD OF THE SEARCH
+
+
+	/**
+	 * The file that follows some errors in listing directories.  If the file is {@code null}, the end of the walk has
+	 * been reached.  If the content and the exception are both {@code null}, the file either was left unread or
+	 * contains no match; the search distinguishes them by the length of the file.  The stamp is the size and
+	 * modification time of the file before it was read, or {@code null} if they could not be read.
+	 */
+
+	public record Entry(
+		List<ListingError>	listingErrors,
+		File				file,
+		long				length,
+		TrigramIndex.Stamp	stamp,
+		TextModel.Content	content,
+		AppException		exception)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns {@code true} if the file of this entry has not changed since it was read ahead of the search.
+		 *
+		 * @return {@code true} if the size and modification time of the file are those that were recorded before it
+		 *         was read.
+		 */
+
+		public boolean isCurrent()
+		{
+			return (stamp != null) && stamp.equals(TrigramIndex.Stamp.of(file));
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns the content of the file of this entry.
+		 *
+		 * @return the content of the file, or {@code null} if the file contains no match.
+		 * @throws AppException
+		 *           if an error occurred when the file was read.
+		 */
+
+		public TextModel.Content getContent()
+			throws AppException
+		{
+			if (exception != null)
+				throw exception;
+			return content;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
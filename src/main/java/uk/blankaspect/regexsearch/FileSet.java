@@ -18,6 +18,7 @@ package uk.blankaspect.regexsearch;
 // IMPORTS
 
 
+import java.io.File;
 import java.io.IOException;
 
 import java.util.ArrayList;
@@ -29,8 +30,12 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.filesystem.PathnameUtils;
 
 import uk.blankaspect.common.misc.EscapedTextUtils;
+import uk.blankaspect.common.misc.TextFile;
 
 import uk.blankaspect.common.xml.AttributeList;
 import uk.blankaspect.common.xml.XmlParseException;
@@ -54,6 +59,8 @@ class FileSet
 	public static final	int	MAX_NUM_FILTERS			= 64;
 	public static final	int	MAX_NUM_FILTER_PATTERNS	= 64;
 
+	public static final	char	COMMENT_PREFIX_CHAR	= ';';
+
 	private interface ElementName
 	{
 		String	EXCLUDE		= "exclude";
@@ -258,6 +265,49 @@ class FileSet
 
 	//------------------------------------------------------------------
 
+	public static List<File> readListFile(File listFile)
+		throws AppException
+	{
+		// Parse file
+		List<File> files = new ArrayList<>();
+		for (String str : TextFile.readLines(listFile, TextModel.getCharEncoding()))
+		{
+			// Set index of end of pathname, ignoring any comment
+			int index = str.indexOf(COMMENT_PREFIX_CHAR);
+			if (index >= 0)
+			{
+				while (--index >= 0)
+				{
+					char ch = str.charAt(index);
+					if ((ch != '\t') && (ch != ' '))
+						break;
+				}
+				str = str.substring(0, ++index);
+			}
+
+			// Parse pathname and add file to list
+			if (!str.isEmpty())
+			{
+				File file = new File(PathnameUtils.parsePathname(str));
+				try
+				{
+					if (!file.isFile() && !file.isDirectory())
+						throw new FileException(ErrorId.FILE_OR_DIRECTORY_DOES_NOT_EXIST, file);
+					files.add(file);
+				}
+				catch (SecurityException e)
+				{
+					throw new FileException(ErrorId.FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED, file);
+				}
+			}
+		}
+
+		// Return files
+		return files;
+	}
+
+	//------------------------------------------------------------------
+
 	private static List<String> parseFilter(Element element)
 		throws XmlParseException
 	{
@@ -651,7 +701,13 @@ class FileSet
 		("The required attribute is missing."),
 
 		INVALID_ATTRIBUTE
-		("The attribute is invalid.");
+		("The attribute is invalid."),
+
+		FILE_OR_DIRECTORY_DOES_NOT_EXIST
+		("The file or directory denoted by this pathname in the list file does not exist."),
+
+		FILE_OR_DIRECTORY_ACCESS_NOT_PERMITTED
+		("Access to the file or directory specified in the list file was not permitted.");
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
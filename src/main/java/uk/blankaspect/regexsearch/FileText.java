@@ -0,0 +1,580 @@
+/*====================================================================*\
+
+FileText.java
+
+Class: text of a file that is read for searching.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import java.util.EnumMap;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+import uk.blankaspect.common.misc.LineSeparator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TEXT OF A FILE THAT IS READ FOR SEARCHING
+
+
+/**
+ * This class provides the text of a file as a {@link CharSequence} over which a {@link java.util.regex.Pattern} can be
+ * run without first copying the text to a {@link PieceTable}.
+ * <p>
+ * The file is either memory-mapped or read into a single byte buffer, and its character encoding is detected from all
+ * its bytes by a {@link CharsetDetector}.  If the encoding is ISO 8859-1, or if it is compatible with ASCII and the
+ * file contains only ASCII characters, the bytes are not decoded: if the file contains no CRs, the text is a view of
+ * the bytes of the file; otherwise, the bytes are widened to characters.  Otherwise, the bytes are decoded into a
+ * character buffer.  In either of the last two cases, CR+LF and CR line separators are changed to LFs in place.
+ * </p>
+ * <p>
+ * The bytes are never decoded with replacement characters.  If they are not valid in the detected encoding, the file
+ * is read as ISO 8859-1 instead, so that, when its text is written again, only the replaced parts of it are
+ * changed.
+ * </p>
+ * <p>
+ * A mapped file is examined, prefiltered and decoded in place, but its mapping does not escape this class: a view of
+ * the bytes of a mapped file is a view of a copy of them on the heap.  If a mapped file is truncated while it is being
+ * read, an access to the bytes beyond its new end raises an {@link InternalError}, which is reported as an error in
+ * reading the file.
+ * </p>
+ */
+
+class FileText
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	byte	CR	= '\r';
+	private static final	byte	LF	= '\n';
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FILE_DOES_NOT_EXIST
+		("The file does not exist."),
+
+		FAILED_TO_OPEN_FILE
+		("Failed to open the file."),
+
+		FAILED_TO_LOCK_FILE
+		("Failed to lock the file."),
+
+		ERROR_READING_FILE
+		("An error occurred when reading the file."),
+
+		FILE_ACCESS_NOT_PERMITTED
+		("Access to the file was not permitted."),
+
+		NOT_ENOUGH_MEMORY_TO_READ_FILE
+		("There was not enough memory to read the file."),
+
+		FILE_IS_TOO_LONG
+		("The file is too long to be read by this program.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	CharSequence					text;
+	private	Charset							charset;
+	private	EnumMap<LineSeparator, Integer>	lineSeparatorCounts;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private FileText(
+		CharSequence					text,
+		Charset							charset,
+		EnumMap<LineSeparator, Integer>	lineSeparatorCounts)
+	{
+		// Initialise instance variables
+		this.text = text;
+		this.charset = charset;
+		this.lineSeparatorCounts = lineSeparatorCounts;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reads the specified file and returns its text.
+	 *
+	 * @param  file
+	 *           the file that will be read.
+	 * @param  defaultCharset
+	 *           the character encoding of the file if its bytes give no evidence of another encoding.
+	 * @param  mapped
+	 *           if {@code true}, the file will be memory-mapped; otherwise, it will be read into a buffer on the heap.
+	 *           A file that may be written after it has been read should not be mapped, because some platforms do not
+	 *           allow a mapped file to be deleted or renamed until the mapping is released by the garbage collector.
+	 * @param  countLineSeparators
+	 *           if {@code true}, the line separators of the file will be counted.
+	 * @param  prefilter
+	 *           if not {@code null}, a filter that is applied to the bytes of the file before they are decoded if it is
+	 *           applicable to the detected character encoding of the file.
+	 * @return the text of {@code file}, or {@code null} if {@code prefilter} rejected the file.
+	 * @throws AppException
+	 *           if an error occurs when reading the file.
+	 */
+
+	public static FileText read(
+		File			file,
+		Charset			defaultCharset,
+		boolean			mapped,
+		boolean			countLineSeparators,
+		BytePrefilter	prefilter)
+		throws AppException
+	{
+		try
+		{
+			// Get the bytes of the file
+			ByteBuffer bytes = getBytes(file, mapped);
+
+			// Detect the character encoding of the file
+			Charset charset = CharsetDetector.detect(bytes, true, defaultCharset);
+
+			// Skip the file if it cannot contain a match
+			if ((prefilter != null) && prefilter.isApplicable(charset) && !prefilter.mayMatch(bytes))
+				return null;
+
+			// If possible, return a view of the bytes or widen them to characters without a decoder
+			if (CharsetDetector.isAsciiCompatible(charset))
+			{
+				boolean latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+				boolean ascii = true;
+				boolean crs = false;
+				int numLfs = 0;
+				int length = bytes.limit();
+				for (int i = 0; i < length; i++)
+				{
+					byte b = bytes.get(i);
+					if (b == LF)
+						++numLfs;
+					else if (b == CR)
+						crs = true;
+					else if (b < 0)
+					{
+						ascii = false;
+						if (!latin1)
+							break;
+					}
+				}
+				if (ascii || latin1)
+				{
+					// If there are no CRs, return a view of the bytes, copying those of a mapped file to the heap
+					if (!crs)
+					{
+						if (mapped)
+							bytes = ByteBuffer.allocate(length).put(0, bytes, 0, length);
+						EnumMap<LineSeparator, Integer> counts = null;
+						if (countLineSeparators)
+						{
+							counts = new EnumMap<>(LineSeparator.class);
+							if (numLfs > 0)
+								counts.put(LineSeparator.LF, numLfs);
+						}
+						return new FileText(new ByteCharSequence(bytes, 0, length), charset, counts);
+					}
+
+					// Widen the bytes to characters and change line separators to LFs
+					return changeLineSeparators(widen(bytes), charset, countLineSeparators);
+				}
+			}
+
+			// Decode the bytes; if they are not valid in the encoding, read them as ISO 8859-1, which maps each byte to
+			// a character and back again
+			CharBuffer chars = null;
+			try
+			{
+				chars = charset.newDecoder().decode(bytes);
+			}
+			catch (CharacterCodingException e)
+			{
+				charset = StandardCharsets.ISO_8859_1;
+				chars = widen(bytes);
+			}
+
+			// Change line separators to LFs
+			return changeLineSeparators(chars, charset, countLineSeparators);
+		}
+		catch (OutOfMemoryError e)
+		{
+			throw new FileException(ErrorId.NOT_ENOUGH_MEMORY_TO_READ_FILE, file);
+		}
+		catch (InternalError e)
+		{
+			// An access to a mapped file that has been truncated raises an internal error
+			if (!mapped)
+				throw e;
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static ByteBuffer getBytes(
+		File	file,
+		boolean	mapped)
+		throws AppException
+	{
+		// Test file length
+		long fileLength = file.length();
+		if (fileLength >= Integer.MAX_VALUE)
+			throw new FileException(ErrorId.FILE_IS_TOO_LONG, file);
+
+		// Open channel on file
+		FileChannel channel = null;
+		try
+		{
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_ACCESS_NOT_PERMITTED, file, e);
+		}
+		catch (NoSuchFileException e)
+		{
+			throw new FileException(ErrorId.FILE_DOES_NOT_EXIST, file, e);
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.FAILED_TO_OPEN_FILE, file, e);
+		}
+
+		// Read file; the channel is closed afterwards, which does not affect a mapping of the file
+		try
+		{
+			// Lock file
+			try
+			{
+				if (channel.tryLock(0, Long.MAX_VALUE, true) == null)
+					throw new FileException(ErrorId.FAILED_TO_LOCK_FILE, file);
+			}
+			catch (OverlappingFileLockException e)
+			{
+				// ignore
+			}
+			catch (IOException e)
+			{
+				throw new FileException(ErrorId.FAILED_TO_LOCK_FILE, file, e);
+			}
+
+			// Map file or read it into a buffer
+			try
+			{
+				int length = (int)Math.min(channel.size(), fileLength);
+				if (mapped)
+					return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+				ByteBuffer buffer = ByteBuffer.allocate(length);
+				while (buffer.hasRemaining() && (channel.read(buffer) >= 0))
+				{
+					// do nothing
+				}
+				buffer.flip();
+				return buffer;
+			}
+			catch (IOException e)
+			{
+				throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+			}
+		}
+		finally
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static CharBuffer widen(
+		ByteBuffer	bytes)
+	{
+		int length = bytes.limit();
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char)(bytes.get(i) & 0xFF);
+		return CharBuffer.wrap(chars);
+	}
+
+	//------------------------------------------------------------------
+
+	private static FileText changeLineSeparators(
+		CharBuffer	chars,
+		Charset		charset,
+		boolean		countLineSeparators)
+	{
+		char[] buffer = chars.array();
+		int startIndex = chars.arrayOffset() + chars.position();
+		int endIndex = startIndex + chars.remaining();
+		int[] counts = new int[LineSeparator.values().length];
+		int inIndex = startIndex;
+		int outIndex = startIndex;
+		while (inIndex < endIndex)
+		{
+			char ch = buffer[inIndex++];
+			if (ch == '\r')
+			{
+				if ((inIndex < endIndex) && (buffer[inIndex] == '\n'))
+				{
+					++inIndex;
+					++counts[LineSeparator.CR_LF.ordinal()];
+				}
+				else
+					++counts[LineSeparator.CR.ordinal()];
+				ch = '\n';
+			}
+			else if (ch == '\n')
+				++counts[LineSeparator.LF.ordinal()];
+			buffer[outIndex++] = ch;
+		}
+
+		EnumMap<LineSeparator, Integer> lineSeparatorCounts = null;
+		if (countLineSeparators)
+		{
+			lineSeparatorCounts = new EnumMap<>(LineSeparator.class);
+			for (LineSeparator lineSeparator : LineSeparator.values())
+			{
+				int numSeparators = counts[lineSeparator.ordinal()];
+				if (numSeparators > 0)
+					lineSeparatorCounts.put(lineSeparator, numSeparators);
+			}
+		}
+		return new FileText(CharBuffer.wrap(buffer, startIndex, outIndex - startIndex), charset, lineSeparatorCounts);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the text of the file, in which all line separators are LFs.
+	 *
+	 * @return the text of the file.
+	 */
+
+	public CharSequence getText()
+	{
+		return text;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the character encoding of the file that was detected when it was read.
+	 *
+	 * @return the character encoding of the file.
+	 */
+
+	public Charset getCharset()
+	{
+		return charset;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of each kind of line separator in the file.
+	 *
+	 * @return the number of each kind of line separator in the file, or {@code null} if the line separators were not
+	 *         counted.
+	 */
+
+	public EnumMap<LineSeparator, Integer> getLineSeparatorCounts()
+	{
+		return lineSeparatorCounts;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: CHARACTER SEQUENCE OVER BYTES
+
+
+	/**
+	 * This class implements a {@link CharSequence} over a buffer of bytes, each of which is treated as an ISO 8859-1
+	 * character.
+	 */
+
+	private static class ByteCharSequence
+		implements CharSequence
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	ByteBuffer	bytes;
+		private	int			offset;
+		private	int			length;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ByteCharSequence(
+			ByteBuffer	bytes,
+			int			offset,
+			int			length)
+		{
+			// Initialise instance variables
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : CharSequence interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public int length()
+		{
+			return length;
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public char charAt(
+			int	index)
+		{
+			if ((index < 0) || (index >= length))
+				throw new IndexOutOfBoundsException(index);
+			return (char)(bytes.get(offset + index) & 0xFF);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public CharSequence subSequence(
+			int	start,
+			int	end)
+		{
+			if ((start < 0) || (start > end) || (end > length))
+				throw new IndexOutOfBoundsException();
+			return new ByteCharSequence(bytes, offset + start, end - start);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String toString()
+		{
+			byte[] buffer = new byte[length];
+			bytes.get(offset, buffer);
+			return new String(buffer, StandardCharsets.ISO_8859_1);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
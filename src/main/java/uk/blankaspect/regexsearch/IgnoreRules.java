@@ -0,0 +1,403 @@
+/*====================================================================*\
+
+IgnoreRules.java
+
+Class: rules of the ignore files of a directory.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import java.util.regex.Pattern;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: RULES OF THE IGNORE FILES OF A DIRECTORY
+
+
+/**
+ * This class holds the rules of the ignore files ({@code .gitignore} and {@code .ignore}) of a directory, compiled to
+ * regular expressions, together with the rules of the nearest ancestor directory that has ignore files.  The rules
+ * follow the syntax of {@code .gitignore}:
+ * <ul>
+ *   <li>A blank line or a line that starts with {@code #} is ignored.</li>
+ *   <li>A leading {@code !} negates a rule, so that a pathname that was ignored by an earlier rule is not ignored.</li>
+ *   <li>A trailing {@code /} restricts a rule to directories.</li>
+ *   <li>A rule that contains a {@code /} elsewhere is matched against the pathname relative to the directory of the
+ *       ignore file; otherwise, it is matched against the name of the file at any depth.</li>
+ *   <li>{@code *}, {@code ?} and {@code [...]} match within a pathname component, and {@code **} matches any number of
+ *       components.</li>
+ * </ul>
+ * <p>
+ * The last rule that matches a pathname decides whether it is ignored.  The rules of {@code .ignore} follow those of
+ * {@code .gitignore}, and the rules of a directory take precedence over those of its ancestors.
+ * </p>
+ * <p>
+ * An instance of this class is immutable, so it may be shared by the threads that list the directories of a walk.
+ * </p>
+ */
+
+class IgnoreRules
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The names of ignore files, in ascending order of precedence. */
+	public static final	List<String>	FILENAMES	= List.of(".gitignore", ".ignore");
+
+	/** The name of the directory of a Git repository. */
+	public static final	String	GIT_DIRECTORY_NAME	= ".git";
+
+	private static final	char	SEPARATOR_CHAR	= '/';
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	IgnoreRules	parent;
+	private	String		directoryPathname;
+	private	List<Rule>	rules;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private IgnoreRules(
+		IgnoreRules	parent,
+		File		directory,
+		List<Rule>	rules)
+	{
+		// Initialise instance variables
+		this.parent = parent;
+		directoryPathname = getNormalisedPathname(directory);
+		if (!directoryPathname.endsWith(File.separator))
+			directoryPathname += File.separator;
+		this.rules = rules;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the rules that apply to the entries of the specified directory: the rules of its ignore files that are
+	 * named in {@code filenames}, followed by the rules of its ancestors.
+	 *
+	 * @param  directory
+	 *           the directory.
+	 * @param  filenames
+	 *           the names of the ignore files of {@code directory}, which should be a subset of {@link #FILENAMES}.
+	 * @param  parent
+	 *           the rules of the ancestors of {@code directory}, which may be {@code null}.
+	 * @return the rules that apply to the entries of {@code directory}; {@code parent} if {@code directory} has no
+	 *         ignore files that contain a rule.
+	 */
+
+	public static IgnoreRules forDirectory(
+		File			directory,
+		List<String>	filenames,
+		IgnoreRules		parent)
+	{
+		List<Rule> rules = new ArrayList<>();
+		for (String filename : FILENAMES)
+		{
+			if (filenames.contains(filename))
+				readRules(new File(directory, filename), rules);
+		}
+		return rules.isEmpty() ? parent : new IgnoreRules(parent, directory, rules);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the rules of the ancestors of the specified directory that apply to its entries.  The ancestors are
+	 * considered only if the directory is inside a Git repository, from the root of the repository to the parent of the
+	 * directory.
+	 *
+	 * @param  directory
+	 *           the directory.
+	 * @return the rules of the ancestors of {@code directory}, or {@code null} if there are none.
+	 */
+
+	public static IgnoreRules forAncestors(
+		File	directory)
+	{
+		// Find the ancestors up to the root of the enclosing repository
+		Deque<File> ancestors = new ArrayDeque<>();
+		File dir = new File(getNormalisedPathname(directory));
+		while (!new File(dir, GIT_DIRECTORY_NAME).exists())
+		{
+			dir = dir.getParentFile();
+			if (dir == null)
+				return null;
+			ancestors.addFirst(dir);
+		}
+
+		// Read the ignore files of the ancestors, from the root of the repository downwards
+		IgnoreRules rules = null;
+		for (File ancestor : ancestors)
+		{
+			List<String> filenames = new ArrayList<>();
+			for (String filename : FILENAMES)
+			{
+				if (new File(ancestor, filename).isFile())
+					filenames.add(filename);
+			}
+			rules = forDirectory(ancestor, filenames, rules);
+		}
+		return rules;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the absolute pathname of the specified file with its redundant components ({@code .} and {@code ..})
+	 * removed, so that the pathnames of the directories of rules and of the files that are tested against them are
+	 * comparable however the root of the walk was specified.
+	 */
+
+	private static String getNormalisedPathname(
+		File	file)
+	{
+		return file.getAbsoluteFile().toPath().normalize().toString();
+	}
+
+	//------------------------------------------------------------------
+
+	private static void readRules(
+		File		file,
+		List<Rule>	rules)
+	{
+		// Read lines of file; an ignore file that can't be read is disregarded
+		List<String> lines = null;
+		try
+		{
+			lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		}
+		catch (IOException | SecurityException e)
+		{
+			return;
+		}
+
+		// Parse rules
+		for (String line : lines)
+		{
+			Rule rule = parseRule(line);
+			if (rule != null)
+				rules.add(rule);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Parses a line of an ignore file.
+	 *
+	 * @return the rule of {@code line}, or {@code null} if the line does not contain a rule.
+	 */
+
+	private static Rule parseRule(
+		String	line)
+	{
+		// Ignore comment
+		if (line.startsWith("#"))
+			return null;
+
+		// Remove trailing spaces that are not escaped
+		int end = line.length();
+		while ((end > 0) && (line.charAt(end - 1) == ' ') && ((end < 2) || (line.charAt(end - 2) != '\\')))
+			--end;
+		String pattern = line.substring(0, end);
+
+		// Test for negation
+		boolean negated = pattern.startsWith("!");
+		if (negated)
+			pattern = pattern.substring(1);
+		else if (pattern.startsWith("\\!") || pattern.startsWith("\\#"))
+			pattern = pattern.substring(1);
+
+		// Test for restriction to directories
+		boolean directoryOnly = pattern.endsWith("/");
+		if (directoryOnly)
+			pattern = pattern.substring(0, pattern.length() - 1);
+		if (pattern.isEmpty())
+			return null;
+
+		// A pattern that contains a separator is anchored to the directory of the ignore file
+		boolean anchored = (pattern.indexOf(SEPARATOR_CHAR) >= 0);
+		if (pattern.charAt(0) == SEPARATOR_CHAR)
+			pattern = pattern.substring(1);
+
+		// Compile pattern
+		String regex = globToRegex(pattern);
+		if (regex == null)
+			return null;
+		return new Rule(Pattern.compile(anchored ? regex : "(?:.*/)?" + regex), negated, directoryOnly);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Converts the specified glob pattern of an ignore file to a regular expression.
+	 *
+	 * @return the regular expression that corresponds to {@code glob}, or {@code null} if {@code glob} is malformed.
+	 */
+
+	private static String globToRegex(
+		String	glob)
+	{
+		StringBuilder buffer = new StringBuilder(glob.length() * 2);
+		int length = glob.length();
+		int index = 0;
+		while (index < length)
+		{
+			char ch = glob.charAt(index);
+			switch (ch)
+			{
+				case '*':
+				{
+					boolean componentStart = (index == 0) || (glob.charAt(index - 1) == SEPARATOR_CHAR);
+					if (componentStart && glob.startsWith("**", index)
+							&& ((index + 2 == length) || (glob.charAt(index + 2) == SEPARATOR_CHAR)))
+					{
+						// '**/' matches any number of leading components; a trailing '**' matches everything
+						if (index + 2 == length)
+							buffer.append(".*");
+						else
+							buffer.append("(?:.*/)?");
+						index += 3;
+					}
+					else
+					{
+						buffer.append("[^/]*");
+						++index;
+					}
+					break;
+				}
+
+				case '?':
+					buffer.append("[^/]");
+					++index;
+					break;
+
+				case '[':
+				{
+					int endIndex = glob.indexOf(']', index + 2);
+					if (endIndex < 0)
+						return null;
+					String set = glob.substring(index + 1, endIndex);
+					buffer.append('[');
+					if (set.startsWith("!") || set.startsWith("^"))
+					{
+						buffer.append('^');
+						set = set.substring(1);
+					}
+					buffer.append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+					index = endIndex + 1;
+					break;
+				}
+
+				case '\\':
+					if (index + 1 < length)
+						++index;
+					buffer.append(Pattern.quote(Character.toString(glob.charAt(index++))));
+					break;
+
+				default:
+					buffer.append(Pattern.quote(Character.toString(ch)));
+					++index;
+					break;
+			}
+		}
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if the specified file or directory is ignored by these rules.
+	 *
+	 * @param  file
+	 *           the file or directory, which is beneath the directory of these rules.
+	 * @param  directory
+	 *           {@code true} if {@code file} is a directory.
+	 * @return {@code true} if {@code file} is ignored.
+	 */
+
+	public boolean isIgnored(
+		File	file,
+		boolean	directory)
+	{
+		String pathname = getNormalisedPathname(file);
+		for (IgnoreRules level = this; level != null; level = level.parent)
+		{
+			// Get pathname relative to directory of rules
+			if (!pathname.startsWith(level.directoryPathname))
+				continue;
+			String relativePathname = pathname.substring(level.directoryPathname.length());
+			if (File.separatorChar != SEPARATOR_CHAR)
+				relativePathname = relativePathname.replace(File.separatorChar, SEPARATOR_CHAR);
+
+			// The last matching rule decides
+			for (int i = level.rules.size() - 1; i >= 0; i--)
+			{
+				Rule rule = level.rules.get(i);
+				if ((directory || !rule.directoryOnly()) && rule.pattern().matcher(relativePathname).matches())
+					return !rule.negated();
+			}
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: RULE
+
+
+	private record Rule(
+		Pattern	pattern,
+		boolean	negated,
+		boolean	directoryOnly)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,280 @@
+/*====================================================================*\
+
+InterruptibleCharSequence.java
+
+Class: character sequence that interrupts a matcher when a time limit is exceeded or a search is cancelled.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.function.BooleanSupplier;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: CHARACTER SEQUENCE THAT INTERRUPTS A MATCHER WHEN A TIME LIMIT IS EXCEEDED OR A SEARCH IS CANCELLED
+
+
+/**
+ * This class wraps the text that is passed to a {@link java.util.regex.Matcher} so that a match that takes too long,
+ * typically because a pattern with nested quantifiers backtracks catastrophically, can be abandoned.  A matcher reads
+ * its text only through {@link #charAt(int)}; every {@link #CHECK_INTERVAL} reads, the sequence tests whether its time
+ * limit has been exceeded or the search has been cancelled, and throws an unchecked exception that unwinds the
+ * matcher if so.
+ * <p>
+ * The time limit is a budget that is consumed only while the timer of the sequence is running, so a search that stops
+ * at each match to prompt the user can suspend the timer while the user responds.  An instance of this class is not
+ * safe for use by more than one thread.
+ * </p>
+ */
+
+class InterruptibleCharSequence
+	implements CharSequence
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The number of reads of the sequence between tests of the time limit and cancellation. */
+	public static final	int	CHECK_INTERVAL	= 1 << 16;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	CharSequence	text;
+	private	long			timeLimit;
+	private	BooleanSupplier	cancelled;
+	private	long			remainingTime;
+	private	long			endTime;
+	private	boolean			timerRunning;
+	private	int				numReads;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an interruptible character sequence.  The timer of the sequence is initially
+	 * suspended.
+	 *
+	 * @param text
+	 *          the text that will be wrapped.
+	 * @param timeLimit
+	 *          the time, in nanoseconds, for which the timer may run before the sequence interrupts a matcher, or 0 for
+	 *          no limit.
+	 * @param cancelled
+	 *          the test of whether the search has been cancelled.
+	 */
+
+	public InterruptibleCharSequence(
+		CharSequence	text,
+		long			timeLimit,
+		BooleanSupplier	cancelled)
+	{
+		// Initialise instance variables
+		this.text = text;
+		this.timeLimit = timeLimit;
+		this.cancelled = cancelled;
+		remainingTime = timeLimit;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : CharSequence interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public int length()
+	{
+		return text.length();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws TimeLimitExceededException
+	 *           if the timer is running and the time limit has been exceeded.
+	 * @throws CancelledException
+	 *           if the search has been cancelled.
+	 */
+
+	@Override
+	public char charAt(
+		int	index)
+	{
+		if (++numReads == CHECK_INTERVAL)
+		{
+			numReads = 0;
+			check();
+		}
+		return text.charAt(index);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public CharSequence subSequence(
+		int	start,
+		int	end)
+	{
+		return text.subSequence(start, end);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : overriding methods
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		return text.toString();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public CharSequence getText()
+	{
+		return text;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the text that is wrapped by this sequence.  The time that remains on the timer is not changed.
+	 *
+	 * @param text
+	 *          the text that will be wrapped.
+	 */
+
+	public void setText(
+		CharSequence	text)
+	{
+		this.text = text;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Starts or resumes the timer of this sequence.
+	 */
+
+	public void resumeTimer()
+	{
+		endTime = System.nanoTime() + remainingTime;
+		timerRunning = true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Suspends the timer of this sequence, keeping the time that remains.
+	 */
+
+	public void suspendTimer()
+	{
+		if (timerRunning)
+		{
+			remainingTime = Math.max(0, endTime - System.nanoTime());
+			timerRunning = false;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Tests whether the search has been cancelled or the time limit has been exceeded.
+	 */
+
+	private void check()
+	{
+		if (cancelled.getAsBoolean())
+			throw new CancelledException();
+		if (timerRunning && (timeLimit > 0) && (System.nanoTime() - endTime > 0))
+			throw new TimeLimitExceededException();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: TIME-LIMIT-EXCEEDED EXCEPTION
+
+
+	/**
+	 * This class implements the exception that is thrown when the time limit of a sequence has been exceeded.
+	 */
+
+	public static class TimeLimitExceededException
+		extends RuntimeException
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private TimeLimitExceededException()
+		{
+			super(null, null, false, false);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: CANCELLED EXCEPTION
+
+
+	/**
+	 * This class implements the exception that is thrown when a sequence detects that the search has been cancelled.
+	 */
+
+	public static class CancelledException
+		extends RuntimeException
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CancelledException()
+		{
+			super(null, null, false, false);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -112,6 +112,7 @@ class MainWindow
 	private static final	String	NO_CANONICAL_PATHNAME_STR	= "Failed to get canonical pathname";
 	private static final	String	PROCESSING_ERROR_STR		= "Error processing file or directory";
 	private static final	String	ATTRIBUTES_NOT_SET_STR		= "File attributes not set";
+	private static final	String	TIMED_OUT_STR				= "Time limit for matching exceeded";
 
 	private static final	char	TAB_GLYPH_CHAR	= '\u2192';
 
@@ -557,9 +558,9 @@ class MainWindow
 	//------------------------------------------------------------------
 
 	public void initTextModel(
-		File			file,
-		StringBuffer	text,
-		boolean			visible)
+		File		file,
+		PieceTable	text,
+		boolean		visible)
 	{
 		// Perform any deferred edit
 		deferredEdit();
@@ -630,10 +631,10 @@ class MainWindow
 
 	//------------------------------------------------------------------
 
-	public void appendResult(
-		TextSearcher.FileResult	result)
+	public void appendResults(
+		List<TextSearcher.FileResult>	results)
 	{
-		getResultList().addFile(result);
+		getResultList().addResults(results);
 		updateResultAreaViewPosition();
 	}
 
@@ -933,6 +934,11 @@ class MainWindow
 			if (!files.isEmpty())
 				resultList.addFiles(UNPROCESSED_STR + ": " + ATTRIBUTES_NOT_SET_STR, files, true);
 
+			// Update results with files whose search exceeded the time limit
+			files = textSearcher.getTimedOutFiles();
+			if (!files.isEmpty())
+				resultList.addFiles(UNPROCESSED_STR + ": " + TIMED_OUT_STR, files, true);
+
 			// Update result area
 			updateResultAreaViewPosition();
 
@@ -1121,7 +1127,7 @@ class MainWindow
 		throws AppException
 	{
 		String text = AppConfig.INSTANCE.isCopyResultsAsListFile()
-											? getResultList().getText(ControlDialog.COMMENT_PREFIX_CHAR)
+											? getResultList().getText(FileSet.COMMENT_PREFIX_CHAR)
 											: getResultList().getText();
 		Utils.putClipboardText(text);
 	}
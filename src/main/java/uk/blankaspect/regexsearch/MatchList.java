@@ -0,0 +1,228 @@
+/*====================================================================*\
+
+MatchList.java
+
+Class: list of the matches in a file.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Arrays;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: LIST OF THE MATCHES IN A FILE
+
+
+/**
+ * This class holds the matches of a pattern in the text of a file as compact tuples of offset, length, line and
+ * column, which are stored in parallel arrays.  The offset of a match is the index of its first character in the text
+ * of the file after its line separators have been changed to LFs.  Lines and columns are zero-based.
+ * <p>
+ * The line and column of a match are computed incrementally as matches are added in ascending order of offset: only
+ * the text between the previous match and the next one is scanned for LFs.  The text may be presented in consecutive
+ * windows, as it is by a {@link StreamingMatcher}, if the text that is discarded from the start of a window is first
+ * passed to {@link #discard(CharSequence, int)}.
+ * </p>
+ */
+
+class MatchList
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int	INITIAL_CAPACITY	= 16;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int		numMatches;
+	private	long[]	offsets;
+	private	int[]	lengths;
+	private	int[]	lineIndices;
+	private	int[]	columnIndices;
+	private	long	textOffset;
+	private	int		scanIndex;
+	private	int		lineIndex;
+	private	long	lineOffset;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an empty list of matches.
+	 */
+
+	public MatchList()
+	{
+		// Initialise instance variables
+		offsets = new long[INITIAL_CAPACITY];
+		lengths = new int[INITIAL_CAPACITY];
+		lineIndices = new int[INITIAL_CAPACITY];
+		columnIndices = new int[INITIAL_CAPACITY];
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public int getNumMatches()
+	{
+		return numMatches;
+	}
+
+	//------------------------------------------------------------------
+
+	public long getOffset(
+		int	index)
+	{
+		return offsets[index];
+	}
+
+	//------------------------------------------------------------------
+
+	public int getLength(
+		int	index)
+	{
+		return lengths[index];
+	}
+
+	//------------------------------------------------------------------
+
+	public int getLineIndex(
+		int	index)
+	{
+		return lineIndices[index];
+	}
+
+	//------------------------------------------------------------------
+
+	public int getColumnIndex(
+		int	index)
+	{
+		return columnIndices[index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds a match to the end of this list.  The match must not start before the previous match.
+	 *
+	 * @param text
+	 *          the current text or window of text.
+	 * @param startIndex
+	 *          the index of the start of the match in {@code text}.
+	 * @param endIndex
+	 *          the index of the end of the match in {@code text}.
+	 */
+
+	public void add(
+		CharSequence	text,
+		int				startIndex,
+		int				endIndex)
+	{
+		// Count the lines between the previous match and this one
+		scan(text, startIndex);
+
+		// Increase capacity of arrays
+		if (numMatches == offsets.length)
+		{
+			int capacity = offsets.length + (offsets.length >> 1);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			lineIndices = Arrays.copyOf(lineIndices, capacity);
+			columnIndices = Arrays.copyOf(columnIndices, capacity);
+		}
+
+		// Add match
+		long offset = textOffset + startIndex;
+		offsets[numMatches] = offset;
+		lengths[numMatches] = endIndex - startIndex;
+		lineIndices[numMatches] = lineIndex;
+		columnIndices[numMatches] = (int)(offset - lineOffset);
+		++numMatches;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Records that the specified number of characters will be discarded from the start of the current window of text,
+	 * so that the index of the next match will be relative to the remainder of the window.
+	 *
+	 * @param text
+	 *          the current window of text.
+	 * @param length
+	 *          the number of characters that will be discarded from the start of {@code text}.
+	 */
+
+	public void discard(
+		CharSequence	text,
+		int				length)
+	{
+		scan(text, length);
+		textOffset += length;
+		scanIndex -= length;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reduces the capacity of the arrays of this list to the number of matches.
+	 */
+
+	public void trimToSize()
+	{
+		if (numMatches < offsets.length)
+		{
+			offsets = Arrays.copyOf(offsets, numMatches);
+			lengths = Arrays.copyOf(lengths, numMatches);
+			lineIndices = Arrays.copyOf(lineIndices, numMatches);
+			columnIndices = Arrays.copyOf(columnIndices, numMatches);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Counts the LFs in the specified text from the index up to which it has already been scanned to the specified
+	 * index.
+	 */
+
+	private void scan(
+		CharSequence	text,
+		int				endIndex)
+	{
+		for (int i = scanIndex; i < endIndex; i++)
+		{
+			if (text.charAt(i) == '\n')
+			{
+				++lineIndex;
+				lineOffset = textOffset + i + 1;
+			}
+		}
+		scanIndex = Math.max(scanIndex, endIndex);
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
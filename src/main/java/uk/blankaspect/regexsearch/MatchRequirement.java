@@ -0,0 +1,806 @@
+/*====================================================================*\
+
+MatchRequirement.java
+
+Class: literals that every match of a search target must contain.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import java.util.regex.Pattern;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: LITERALS THAT EVERY MATCH OF A SEARCH TARGET MUST CONTAIN
+
+
+/**
+ * This class holds the literals that every match of a search target must contain, so that text that does not contain
+ * all of them can be skipped without being matched against the compiled pattern.
+ * <p>
+ * The literals are extracted from the target by a conservative analysis of its syntax.  Only literals that are
+ * certainly required are extracted: an alternation, an optional element or a construct that the analysis does not
+ * recognise contributes no literals.  If the target contains an inline flag (for example, {@code (?i)} or {@code
+ * (?x)}), no literals are extracted.  If no literal can be extracted, the requirement is {@linkplain #isEmpty() empty}
+ * and every text may contain a match.
+ * </p>
+ * <p>
+ * When case is ignored, characters are compared in the same way as by a pattern that is compiled with the flags
+ * {@link Pattern#CASE_INSENSITIVE} and {@link Pattern#UNICODE_CASE}.
+ * </p>
+ * <p>
+ * An instance of this class is immutable, so it may be shared by several threads.
+ * </p>
+ */
+
+class MatchRequirement
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** A requirement that has no literals. */
+	public static final	MatchRequirement	NONE	= new MatchRequirement(Collections.emptyList(), false);
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	List<String>	literals;
+	private	boolean			ignoreCase;
+	private	char[][]		foldedLiterals;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private MatchRequirement(
+		List<String>	literals,
+		boolean			ignoreCase)
+	{
+		// Initialise instance variables
+		this.literals = Collections.unmodifiableList(literals);
+		this.ignoreCase = ignoreCase;
+
+		// Fold literals
+		foldedLiterals = new char[literals.size()][];
+		for (int i = 0; i < foldedLiterals.length; i++)
+		{
+			char[] chars = literals.get(i).toCharArray();
+			if (ignoreCase)
+			{
+				for (int j = 0; j < chars.length; j++)
+					chars[j] = fold(chars[j]);
+			}
+			foldedLiterals[i] = chars;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a requirement for the specified search target.
+	 *
+	 * @param  target
+	 *           the search target.
+	 * @param  flags
+	 *           the flags with which {@code target} is compiled to a {@link Pattern}.
+	 * @return the requirement for {@code target}, which is {@link #NONE} if no literal can be extracted from {@code
+	 *         target}.
+	 */
+
+	public static MatchRequirement create(
+		String	target,
+		int		flags)
+	{
+		// Extract literals
+		List<String> literals = new ArrayList<>();
+		boolean ignoreCase = ((flags & Pattern.CASE_INSENSITIVE) != 0);
+		if ((flags & Pattern.LITERAL) != 0)
+		{
+			// When case is ignored, a supplementary character is folded as a code point, so split the literal at it
+			if (ignoreCase)
+			{
+				int startIndex = 0;
+				for (int i = 0; i < target.length(); i++)
+				{
+					if (Character.isSurrogate(target.charAt(i)))
+					{
+						literals.add(target.substring(startIndex, i));
+						startIndex = i + 1;
+					}
+				}
+				literals.add(target.substring(startIndex));
+			}
+			else
+				literals.add(target);
+		}
+		else if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) == 0)
+		{
+			try
+			{
+				new Parser(target).parse(literals);
+			}
+			catch (UnsupportedSyntaxException e)
+			{
+				literals.clear();
+			}
+		}
+
+		// Remove empty and duplicate literals, and sort remaining literals in descending order of length
+		Set<String> uniqueLiterals = new LinkedHashSet<>();
+		for (String literal : literals)
+		{
+			if (!literal.isEmpty())
+				uniqueLiterals.add(literal);
+		}
+		if (uniqueLiterals.isEmpty())
+			return NONE;
+		literals = new ArrayList<>(uniqueLiterals);
+		literals.sort(Comparator.comparingInt(String::length).reversed());
+
+		// Create requirement
+		return new MatchRequirement(literals, ignoreCase);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the character to which the specified character is folded when case is ignored.  This is the same
+	 * folding as that of a pattern that is compiled with {@link Pattern#CASE_INSENSITIVE} and {@link
+	 * Pattern#UNICODE_CASE}.
+	 */
+
+	private static char fold(
+		char	ch)
+	{
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if this requirement has no literals.
+	 *
+	 * @return {@code true} if this requirement has no literals.
+	 */
+
+	public boolean isEmpty()
+	{
+		return literals.isEmpty();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the literals of this requirement in descending order of length.
+	 *
+	 * @return an unmodifiable list of the literals of this requirement.
+	 */
+
+	public List<String> getLiterals()
+	{
+		return literals;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if case is ignored when the literals of this requirement are compared with text.
+	 *
+	 * @return {@code true} if case is ignored.
+	 */
+
+	public boolean isIgnoreCase()
+	{
+		return ignoreCase;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified text contains all the literals of this requirement.  If this requirement
+	 * is empty, {@code true} is returned.
+	 *
+	 * @param  text
+	 *           the text that will be tested.
+	 * @return {@code true} if {@code text} contains all the literals of this requirement.
+	 */
+
+	public boolean mayMatch(
+		CharSequence	text)
+	{
+		for (char[] literal : foldedLiterals)
+		{
+			if (!contains(text, literal))
+				return false;
+		}
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean contains(
+		CharSequence	text,
+		char[]			literal)
+	{
+		char ch0 = literal[0];
+		int endIndex = text.length() - literal.length;
+		for (int i = 0; i <= endIndex; i++)
+		{
+			if (matches(text.charAt(i), ch0))
+			{
+				int j = 1;
+				while ((j < literal.length) && matches(text.charAt(i + j), literal[j]))
+					++j;
+				if (j == literal.length)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean matches(
+		char	ch,
+		char	literalChar)
+	{
+		return (ch == literalChar) || (ignoreCase && (fold(ch) == literalChar));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: UNSUPPORTED-SYNTAX EXCEPTION
+
+
+	/**
+	 * This exception is thrown by the parser when it encounters a construct whose effect on the required literals it
+	 * does not know.
+	 */
+
+	private static class UnsupportedSyntaxException
+		extends Exception
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private UnsupportedSyntaxException()
+		{
+			super(null, null, false, false);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: PARSER OF A REGULAR EXPRESSION
+
+
+	/**
+	 * This class parses a regular expression and extracts the literals that every match must contain.  A literal is a
+	 * maximal run of literal characters that are matched consecutively; a construct that is not a literal character
+	 * ends the run.
+	 */
+
+	private static class Parser
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	regex;
+		private	int		index;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Parser(
+			String	regex)
+		{
+			// Initialise instance variables
+			this.regex = regex;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Parses the regular expression and adds the literals that every match must contain to the specified list.
+		 */
+
+		private void parse(
+			List<String>	literals)
+			throws UnsupportedSyntaxException
+		{
+			List<String> sequenceLiterals = parseAlternation();
+			if (index < regex.length())
+				throw new UnsupportedSyntaxException();
+			literals.addAll(sequenceLiterals);
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Parses an alternation up to the end of the regular expression or a closing parenthesis, and returns the
+		 * literals that every match of it must contain.  An alternation of more than one branch contributes no
+		 * literals.
+		 */
+
+		private List<String> parseAlternation()
+			throws UnsupportedSyntaxException
+		{
+			List<String> literals = parseSequence();
+			boolean alternation = false;
+			while ((index < regex.length()) && (regex.charAt(index) == '|'))
+			{
+				++index;
+				parseSequence();
+				alternation = true;
+			}
+			return alternation ? new ArrayList<>() : literals;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Parses a sequence of elements up to the end of the regular expression, a '|' or a closing parenthesis, and
+		 * returns the literals that every match of it must contain.
+		 */
+
+		private List<String> parseSequence()
+			throws UnsupportedSyntaxException
+		{
+			List<String> literals = new ArrayList<>();
+			StringBuilder run = new StringBuilder();
+			while (index < regex.length())
+			{
+				char ch = regex.charAt(index);
+				if ((ch == '|') || (ch == ')'))
+					break;
+
+				// Parse element
+				String element = null;
+				List<String> groupLiterals = null;
+				switch (ch)
+				{
+					case '(':
+						++index;
+						groupLiterals = parseGroup();
+						break;
+
+					case '[':
+						skipCharClass();
+						break;
+
+					case '\\':
+						element = parseEscape();
+						break;
+
+					case '.':
+					case '^':
+					case '$':
+						++index;
+						break;
+
+					case '*':
+					case '+':
+					case '?':
+					case '{':
+						// A quantifier that does not follow an element is not expected
+						throw new UnsupportedSyntaxException();
+
+					default:
+						++index;
+						element = Character.isSurrogate(ch) ? null : Character.toString(ch);
+						break;
+				}
+
+				// Parse quantifier
+				int minCount = parseQuantifier();
+
+				// Update literals
+				if (element == null)
+				{
+					endRun(run, literals);
+					if ((groupLiterals != null) && (minCount > 0))
+						literals.addAll(groupLiterals);
+				}
+				else
+				{
+					// A quantifier applies only to the last character of an element
+					if (minCount == 1)
+						run.append(element);
+					else
+					{
+						run.append(element, 0, element.length() - 1);
+						if (minCount > 0)
+							run.append(element.charAt(element.length() - 1));
+						endRun(run, literals);
+					}
+				}
+			}
+			endRun(run, literals);
+			return literals;
+		}
+
+		//--------------------------------------------------------------
+
+		private void endRun(
+			StringBuilder	run,
+			List<String>	literals)
+		{
+			if (!run.isEmpty())
+			{
+				literals.add(run.toString());
+				run.setLength(0);
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Parses a group whose opening parenthesis has been consumed, and returns the literals that every match of the
+		 * group must contain.
+		 */
+
+		private List<String> parseGroup()
+			throws UnsupportedSyntaxException
+		{
+			boolean lookaround = false;
+			if ((index < regex.length()) && (regex.charAt(index) == '?'))
+			{
+				++index;
+				char ch = charAt(index++);
+				switch (ch)
+				{
+					case ':':
+					case '>':
+						break;
+
+					case '=':
+					case '!':
+						lookaround = true;
+						break;
+
+					case '<':
+						ch = charAt(index);
+						if ((ch == '=') || (ch == '!'))
+						{
+							++index;
+							lookaround = true;
+						}
+						else
+						{
+							// Named group
+							while (charAt(index) != '>')
+								++index;
+							++index;
+						}
+						break;
+
+					default:
+						// Inline flags may change the way in which literals are matched
+						throw new UnsupportedSyntaxException();
+				}
+			}
+
+			List<String> literals = parseAlternation();
+			if (charAt(index) != ')')
+				throw new UnsupportedSyntaxException();
+			++index;
+			return lookaround ? new ArrayList<>() : literals;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Parses an escape sequence and returns the literal character that it denotes, or {@code null} if it does not
+		 * denote a single literal character.  A quoted sequence (\Q...\E) is returned as a string of literal
+		 * characters.
+		 */
+
+		private String parseEscape()
+			throws UnsupportedSyntaxException
+		{
+			++index;
+			char ch = charAt(index++);
+			switch (ch)
+			{
+				case 't':
+					return "\t";
+
+				case 'n':
+					return "\n";
+
+				case 'r':
+					return "\r";
+
+				case 'f':
+					return "\f";
+
+				case 'a':
+					return "\u0007";
+
+				case 'e':
+					return "\u001B";
+
+				case 'Q':
+				{
+					int endIndex = regex.indexOf("\\E", index);
+					if (endIndex < 0)
+						endIndex = regex.length();
+					String quoted = regex.substring(index, endIndex);
+					index = Math.min(endIndex + 2, regex.length());
+					for (int i = 0; i < quoted.length(); i++)
+					{
+						if (Character.isSurrogate(quoted.charAt(i)))
+							return null;
+					}
+					return quoted.isEmpty() ? null : quoted;
+				}
+
+				case 'x':
+				{
+					if (charAt(index) == '{')
+					{
+						skipTo('}');
+						return null;
+					}
+					return hexChar(2);
+				}
+
+				case 'u':
+					return hexChar(4);
+
+				case 'p':
+				case 'P':
+				case 'N':
+					if (charAt(index) == '{')
+						skipTo('}');
+					else
+						++index;
+					return null;
+
+				case 'k':
+					skipTo('>');
+					return null;
+
+				case 'c':
+					++index;
+					return null;
+
+				case '0':
+				{
+					// Octal escape
+					int endIndex = Math.min(index + 3, regex.length());
+					while ((index < endIndex) && (regex.charAt(index) >= '0') && (regex.charAt(index) <= '7'))
+						++index;
+					return null;
+				}
+
+				default:
+					// A back reference may be followed by digits that are part of the group number
+					if ((ch >= '1') && (ch <= '9') && (index < regex.length())
+							&& Character.isDigit(regex.charAt(index)))
+						throw new UnsupportedSyntaxException();
+
+					// An escaped character that is not a letter or digit is a literal
+					if (!Character.isLetterOrDigit(ch) && !Character.isSurrogate(ch))
+						return Character.toString(ch);
+					return null;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		private String hexChar(
+			int	numDigits)
+			throws UnsupportedSyntaxException
+		{
+			if (index + numDigits > regex.length())
+				throw new UnsupportedSyntaxException();
+			try
+			{
+				char ch = (char)Integer.parseInt(regex.substring(index, index + numDigits), 16);
+				index += numDigits;
+				return Character.isSurrogate(ch) ? null : Character.toString(ch);
+			}
+			catch (NumberFormatException e)
+			{
+				throw new UnsupportedSyntaxException();
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Skips a character class, including any nested classes.
+		 */
+
+		private void skipCharClass()
+			throws UnsupportedSyntaxException
+		{
+			int depth = 0;
+			while (true)
+			{
+				char ch = charAt(index++);
+				switch (ch)
+				{
+					case '[':
+					{
+						++depth;
+
+						// A ']' at the start of a class is a literal
+						if (charAt(index) == '^')
+							++index;
+						if (charAt(index) == ']')
+							++index;
+						break;
+					}
+
+					case ']':
+						if (--depth == 0)
+							return;
+						break;
+
+					case '\\':
+						if (charAt(index) == 'Q')
+						{
+							int endIndex = regex.indexOf("\\E", index);
+							if (endIndex < 0)
+								throw new UnsupportedSyntaxException();
+							index = endIndex + 2;
+						}
+						else
+							++index;
+						break;
+
+					default:
+						// do nothing
+						break;
+				}
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Parses an optional quantifier and returns the minimum number of times that the preceding element must be
+		 * matched.
+		 */
+
+		private int parseQuantifier()
+			throws UnsupportedSyntaxException
+		{
+			if (index >= regex.length())
+				return 1;
+
+			int minCount = 1;
+			switch (regex.charAt(index))
+			{
+				case '?':
+				case '*':
+					++index;
+					minCount = 0;
+					break;
+
+				case '+':
+					++index;
+					minCount = 2;
+					break;
+
+				case '{':
+				{
+					int endIndex = regex.indexOf('}', index);
+					if (endIndex < 0)
+						throw new UnsupportedSyntaxException();
+					String str = regex.substring(index + 1, endIndex);
+					int commaIndex = str.indexOf(',');
+					try
+					{
+						int min = Integer.parseInt((commaIndex < 0) ? str : str.substring(0, commaIndex));
+						int max = ((commaIndex < 0) || (commaIndex == str.length() - 1))
+										? Integer.MAX_VALUE
+										: Integer.parseInt(str.substring(commaIndex + 1));
+						if (commaIndex < 0)
+							max = min;
+						minCount = (min == 0) ? 0 : ((min == 1) && (max == 1)) ? 1 : 2;
+					}
+					catch (NumberFormatException e)
+					{
+						throw new UnsupportedSyntaxException();
+					}
+					index = endIndex + 1;
+					break;
+				}
+
+				default:
+					return 1;
+			}
+
+			// Skip lazy or possessive modifier
+			if ((index < regex.length()) && ((regex.charAt(index) == '?') || (regex.charAt(index) == '+')))
+				++index;
+
+			// A quantifier that is followed by another quantifier is not expected
+			if ((index < regex.length()) && ("?*+{".indexOf(regex.charAt(index)) >= 0))
+				throw new UnsupportedSyntaxException();
+
+			return minCount;
+		}
+
+		//--------------------------------------------------------------
+
+		private void skipTo(
+			char	endChar)
+			throws UnsupportedSyntaxException
+		{
+			while (charAt(index) != endChar)
+				++index;
+			++index;
+		}
+
+		//--------------------------------------------------------------
+
+		private char charAt(
+			int	index)
+			throws UnsupportedSyntaxException
+		{
+			if (index >= regex.length())
+				throw new UnsupportedSyntaxException();
+			return regex.charAt(index);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
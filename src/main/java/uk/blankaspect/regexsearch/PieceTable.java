@@ -0,0 +1,687 @@
+/*====================================================================*\
+
+PieceTable.java
+
+Class: editable sequence of characters that is stored as a table of pieces of immutable buffers.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Arrays;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: EDITABLE SEQUENCE OF CHARACTERS THAT IS STORED AS A TABLE OF PIECES OF IMMUTABLE BUFFERS
+
+
+/**
+ * This class implements an editable sequence of characters as a <i>piece table</i>.  The text is never moved: it is
+ * the concatenation of a sequence of <i>pieces</i>, each of which is a span of either the original text or an
+ * append-only buffer to which the text of each replacement is added.  A replacement splits the pieces at its ends,
+ * removes the pieces between them and inserts a piece for the new text.
+ * <p>
+ * The pieces are the nodes of a randomised balanced binary tree (a treap) in which each node holds the number of
+ * characters and the number of LFs in its subtree.  A replacement, the location of a character, the number of LFs
+ * before an index and the index of the <i>n</i>th LF therefore take a time that is logarithmic in the number of pieces;
+ * the LFs within a piece are found by a binary search of the indices of the LFs in its buffer, which are recorded as
+ * the text is added to the buffer.
+ * </p>
+ * <p>
+ * Successive calls to {@link #charAt(int)} at nearby indices, such as those of a {@link java.util.regex.Matcher} or of
+ * a pass over a line, take constant time: the piece of the most recent access is cached in an immutable cursor.  A
+ * piece table may be read concurrently by several threads, provided that it is not modified at the same time.
+ * </p>
+ */
+
+class PieceTable
+	implements CharSequence
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		INITIAL_NEWLINE_ARRAY_LENGTH	= 64;
+
+	private static final	long	PRIORITY_SEED	= 0x9E3779B97F4A7C15L;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	String			original;
+	private	int[]			originalNewlines;
+	private	StringBuilder	added;
+	private	int[]			addedNewlines;
+	private	int				numAddedNewlines;
+	private	Node			root;
+	private	long			priorityState;
+	private	Cursor			cursor;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a piece table whose text is a copy of the specified text.
+	 *
+	 * @param text
+	 *          the initial text of the piece table.
+	 */
+
+	public PieceTable(
+		CharSequence	text)
+	{
+		// Initialise instance variables
+		original = text.toString();
+		originalNewlines = findNewlines(original);
+		added = new StringBuilder();
+		addedNewlines = new int[INITIAL_NEWLINE_ARRAY_LENGTH];
+		priorityState = PRIORITY_SEED;
+
+		// Create piece for the original text
+		if (!original.isEmpty())
+			root = createNode(false, 0, original.length());
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static int[] findNewlines(
+		String	text)
+	{
+		int numNewlines = 0;
+		int index = -1;
+		while ((index = text.indexOf('\n', index + 1)) >= 0)
+			++numNewlines;
+
+		int[] newlines = new int[numNewlines];
+		numNewlines = 0;
+		index = -1;
+		while ((index = text.indexOf('\n', index + 1)) >= 0)
+			newlines[numNewlines++] = index;
+		return newlines;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first element of the specified array, between index 0 and the specified end index, that
+	 * is greater than or equal to the specified value.
+	 */
+
+	private static int lowerBound(
+		int[]	values,
+		int		endIndex,
+		int		value)
+	{
+		int index = Arrays.binarySearch(values, 0, endIndex, value);
+		return (index < 0) ? -1 - index : index;
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getLength(
+		Node	node)
+	{
+		return (node == null) ? 0 : node.totalLength;
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getNumNewlines(
+		Node	node)
+	{
+		return (node == null) ? 0 : node.totalNewlines;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Node update(
+		Node	node)
+	{
+		node.totalLength = getLength(node.left) + node.length + getLength(node.right);
+		node.totalNewlines = getNumNewlines(node.left) + node.numNewlines + getNumNewlines(node.right);
+		return node;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Node merge(
+		Node	left,
+		Node	right)
+	{
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.priority > right.priority)
+		{
+			left.right = merge(left.right, right);
+			return update(left);
+		}
+		right.left = merge(left, right.left);
+		return update(right);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : CharSequence interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public int length()
+	{
+		return getLength(root);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public char charAt(
+		int	index)
+	{
+		Cursor cursor = this.cursor;
+		if ((cursor == null) || (index < cursor.startIndex) || (index >= cursor.endIndex))
+		{
+			if ((index < 0) || (index >= length()))
+				throw new StringIndexOutOfBoundsException(index);
+			cursor = findPiece(index);
+			this.cursor = cursor;
+		}
+		return cursor.buffer.charAt(cursor.bufferOffset + index);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public CharSequence subSequence(
+		int	start,
+		int	end)
+	{
+		if ((start < 0) || (end > length()) || (start > end))
+			throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+
+		char[] chars = new char[end - start];
+		getChars(root, 0, start, end, chars);
+		return new String(chars);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public String toString()
+	{
+		return subSequence(0, length()).toString();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of LFs in the text.
+	 *
+	 * @return the number of LFs in the text.
+	 */
+
+	public int getNumNewlines()
+	{
+		return getNumNewlines(root);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of LFs before the specified index of the text.
+	 *
+	 * @param  index
+	 *           the index of the text.
+	 * @return the number of LFs before {@code index}.
+	 */
+
+	public int getNumNewlinesBefore(
+		int	index)
+	{
+		int numNewlines = 0;
+		Node node = root;
+		while (node != null)
+		{
+			int leftLength = getLength(node.left);
+			if (index <= leftLength)
+				node = node.left;
+			else
+			{
+				numNewlines += getNumNewlines(node.left);
+				index -= leftLength;
+				if (index <= node.length)
+				{
+					numNewlines += countNewlines(node, index);
+					break;
+				}
+				numNewlines += node.numNewlines;
+				index -= node.length;
+				node = node.right;
+			}
+		}
+		return numNewlines;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the LF with the specified ordinal.
+	 *
+	 * @param  ordinal
+	 *           the zero-based ordinal of the LF.
+	 * @return the index of the LF whose ordinal is {@code ordinal}.
+	 * @throws IndexOutOfBoundsException
+	 *           if {@code ordinal} is negative or not less than the number of LFs in the text.
+	 */
+
+	public int getNewlineIndex(
+		int	ordinal)
+	{
+		if ((ordinal < 0) || (ordinal >= getNumNewlines()))
+			throw new IndexOutOfBoundsException(ordinal);
+
+		int index = 0;
+		Node node = root;
+		while (true)
+		{
+			int leftNewlines = getNumNewlines(node.left);
+			if (ordinal < leftNewlines)
+				node = node.left;
+			else
+			{
+				ordinal -= leftNewlines;
+				index += getLength(node.left);
+				if (ordinal < node.numNewlines)
+					return index + getNewlines(node)[node.firstNewline + ordinal] - node.start;
+				ordinal -= node.numNewlines;
+				index += node.length;
+				node = node.right;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Replaces the specified range of the text with the specified string.
+	 *
+	 * @param startIndex
+	 *          the start index of the range that will be replaced.
+	 * @param endIndex
+	 *          the end index (exclusive) of the range that will be replaced.
+	 * @param str
+	 *          the replacement.
+	 */
+
+	public void replace(
+		int		startIndex,
+		int		endIndex,
+		String	str)
+	{
+		if ((startIndex < 0) || (endIndex > length()) || (startIndex > endIndex))
+		{
+			throw new StringIndexOutOfBoundsException("start " + startIndex + ", end " + endIndex + ", length "
+														+ length());
+		}
+
+		// Invalidate cursor
+		cursor = null;
+
+		// Split the pieces at the ends of the range
+		Node[] nodes = split(root, startIndex);
+		Node head = nodes[0];
+		nodes = split(nodes[1], endIndex - startIndex);
+		Node tail = nodes[1];
+
+		// Append the replacement to the buffer of added text, and create a piece for it
+		Node node = null;
+		if (!str.isEmpty())
+		{
+			int start = added.length();
+			added.append(str);
+			for (int i = 0; i < str.length(); i++)
+			{
+				if (str.charAt(i) == '\n')
+				{
+					if (numAddedNewlines == addedNewlines.length)
+						addedNewlines = Arrays.copyOf(addedNewlines, 2 * addedNewlines.length);
+					addedNewlines[numAddedNewlines++] = start + i;
+				}
+			}
+			node = createNode(true, start, str.length());
+		}
+
+		// Join the pieces before the range, the new piece and the pieces after the range
+		root = merge(merge(head, node), tail);
+	}
+
+	//------------------------------------------------------------------
+
+	private Node createNode(
+		boolean	added,
+		int		start,
+		int		length)
+	{
+		// Generate priority with xorshift generator
+		long state = priorityState;
+		state ^= state << 13;
+		state ^= state >>> 7;
+		state ^= state << 17;
+		priorityState = state;
+
+		// Create node
+		Node node = new Node(added, start, length, (int)state);
+		setNewlines(node);
+		return update(node);
+	}
+
+	//------------------------------------------------------------------
+
+	private int[] getNewlines(
+		Node	node)
+	{
+		return node.added ? addedNewlines : originalNewlines;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the range of the indices of the LFs of the specified piece.
+	 */
+
+	private void setNewlines(
+		Node	node)
+	{
+		int[] newlines = getNewlines(node);
+		int numNewlines = node.added ? numAddedNewlines : newlines.length;
+		node.firstNewline = lowerBound(newlines, numNewlines, node.start);
+		node.numNewlines = lowerBound(newlines, numNewlines, node.start + node.length) - node.firstNewline;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of LFs that are before the specified offset within the specified piece.
+	 */
+
+	private int countNewlines(
+		Node	node,
+		int		offset)
+	{
+		if (offset == node.length)
+			return node.numNewlines;
+		int[] newlines = getNewlines(node);
+		return lowerBound(newlines, node.firstNewline + node.numNewlines, node.start + offset) - node.firstNewline;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Splits the specified tree into a tree that contains the specified number of characters and a tree that contains
+	 * the remaining characters.  A piece that straddles the split is divided into two pieces.
+	 *
+	 * @return an array whose elements are the left and right trees.
+	 */
+
+	private Node[] split(
+		Node	node,
+		int		length)
+	{
+		if (node == null)
+			return new Node[2];
+
+		int leftLength = getLength(node.left);
+		if (length <= leftLength)
+		{
+			Node[] nodes = split(node.left, length);
+			node.left = nodes[1];
+			nodes[1] = update(node);
+			return nodes;
+		}
+
+		int rightStartIndex = leftLength + node.length;
+		if (length >= rightStartIndex)
+		{
+			Node[] nodes = split(node.right, length - rightStartIndex);
+			node.right = nodes[0];
+			nodes[0] = update(node);
+			return nodes;
+		}
+
+		// Divide the piece: the node keeps its head, and a new node for its tail is joined to its right subtree
+		int headLength = length - leftLength;
+		Node tail = createNode(node.added, node.start + headLength, node.length - headLength);
+		Node right = merge(tail, node.right);
+		node.length = headLength;
+		node.right = null;
+		setNewlines(node);
+		return new Node[] { update(node), right };
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a cursor for the piece that contains the specified index.
+	 */
+
+	private Cursor findPiece(
+		int	index)
+	{
+		int startIndex = 0;
+		Node node = root;
+		while (true)
+		{
+			int leftLength = getLength(node.left);
+			if (index < leftLength)
+				node = node.left;
+			else
+			{
+				index -= leftLength;
+				startIndex += leftLength;
+				if (index < node.length)
+				{
+					return new Cursor(startIndex, startIndex + node.length, node.added ? added : original,
+									  node.start - startIndex);
+				}
+				index -= node.length;
+				startIndex += node.length;
+				node = node.right;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Copies the characters of the specified subtree that lie in the specified range of the text to the specified
+	 * array.
+	 *
+	 * @param node
+	 *          the root of the subtree.
+	 * @param index
+	 *          the index of the first character of the subtree in the text.
+	 * @param startIndex
+	 *          the start index of the range in the text.
+	 * @param endIndex
+	 *          the end index (exclusive) of the range in the text.
+	 * @param chars
+	 *          the array to which the characters will be copied; element 0 corresponds to {@code startIndex}.
+	 */
+
+	private void getChars(
+		Node	node,
+		int		index,
+		int		startIndex,
+		int		endIndex,
+		char[]	chars)
+	{
+		while ((node != null) && (index < endIndex) && (index + node.totalLength > startIndex))
+		{
+			// Copy characters of left subtree
+			getChars(node.left, index, startIndex, endIndex, chars);
+
+			// Copy characters of piece
+			int pieceIndex = index + getLength(node.left);
+			int start = Math.max(startIndex, pieceIndex);
+			int end = Math.min(endIndex, pieceIndex + node.length);
+			if (start < end)
+			{
+				int bufferStart = node.start + start - pieceIndex;
+				int bufferEnd = node.start + end - pieceIndex;
+				if (node.added)
+					added.getChars(bufferStart, bufferEnd, chars, start - startIndex);
+				else
+					original.getChars(bufferStart, bufferEnd, chars, start - startIndex);
+			}
+
+			// Continue with right subtree
+			index = pieceIndex + node.length;
+			node = node.right;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: PIECE
+
+
+	/**
+	 * This class implements a piece of the text, which is a node of the tree of pieces.
+	 */
+
+	private static class Node
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		/** Flag: if {@code true}, the piece is a span of the added text; otherwise, it is a span of the original. */
+		private	boolean	added;
+
+		/** The index of the start of the piece in its buffer. */
+		private	int		start;
+
+		/** The length of the piece. */
+		private	int		length;
+
+		/** The index of the first LF of the piece in the array of the indices of the LFs of its buffer. */
+		private	int		firstNewline;
+
+		/** The number of LFs in the piece. */
+		private	int		numNewlines;
+
+		private	int		priority;
+		private	Node	left;
+		private	Node	right;
+
+		/** The number of characters in the subtree whose root is this node. */
+		private	int		totalLength;
+
+		/** The number of LFs in the subtree whose root is this node. */
+		private	int		totalNewlines;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Node(
+			boolean	added,
+			int		start,
+			int		length,
+			int		priority)
+		{
+			// Initialise instance variables
+			this.added = added;
+			this.start = start;
+			this.length = length;
+			this.priority = priority;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: CURSOR
+
+
+	/**
+	 * This class implements an immutable reference to the piece of the most recent access to a character.
+	 */
+
+	private static class Cursor
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		/** The index of the start of the piece in the text. */
+		private final	int				startIndex;
+
+		/** The index of the end of the piece in the text. */
+		private final	int				endIndex;
+
+		/** The buffer of the piece. */
+		private final	CharSequence	buffer;
+
+		/** The offset that is added to an index of the text to give the corresponding index of the buffer. */
+		private final	int				bufferOffset;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Cursor(
+			int				startIndex,
+			int				endIndex,
+			CharSequence	buffer,
+			int				bufferOffset)
+		{
+			// Initialise instance variables
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.buffer = buffer;
+			this.bufferOffset = bufferOffset;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -152,6 +152,26 @@ class PreferencesDialog
 	private static final	String	COPY_RESULTS_AS_LIST_FILE_STR	= "Copy search results as list file";
 	private static final	String	DEFAULT_ENCODING_STR			= "<default encoding>";
 
+	// Search panel
+	private static final	int		NUM_SEARCH_THREADS_FIELD_LENGTH		= 2;
+	private static final	int		STREAMING_FILE_SIZE_FIELD_LENGTH	= 7;
+	private static final	int		MAX_MATCH_SPAN_FIELD_LENGTH			= 7;
+	private static final	int		READ_AHEAD_SIZE_FIELD_LENGTH		= 5;
+	private static final	int		MATCH_TIME_LIMIT_FIELD_LENGTH		= 4;
+
+	private static final	String	NUM_SEARCH_THREADS_STR	= "Number of threads for unprompted search";
+	private static final	String	AUTOMATIC_STR			= "(0 = number of processors)";
+	private static final	String	STREAMING_FILE_SIZE_STR	= "Minimum size of file for streaming find";
+	private static final	String	MEBIBYTES_STR			= "MiB";
+	private static final	String	MAX_MATCH_SPAN_STR		= "Maximum length of match in streaming find";
+	private static final	String	READ_AHEAD_SIZE_STR		= "Memory for reading ahead in prompted search";
+	private static final	String	NO_READ_AHEAD_STR		= "(0 = no read-ahead)";
+	private static final	String	MATCH_TIME_LIMIT_STR	= "Time limit for matching in a file";
+	private static final	String	SECONDS_STR				= "seconds";
+	private static final	String	NO_TIME_LIMIT_STR		= "(0 = no limit)";
+	private static final	String	INDEX_FILES_STR			= "Index files for repeated searches";
+	private static final	String	IGNORE_FILES_STR		= "Honour .gitignore and .ignore files";
+
 	// Appearance panel
 	private static final	int		PARAMETER_EDITOR_WIDTH_FIELD_LENGTH		= 3;
 	private static final	int		PARAMETER_EDITOR_HEIGHT_FIELD_LENGTH	= 2;
@@ -270,6 +290,15 @@ class PreferencesDialog
 	private	BooleanComboBox							hideControlDialogComboBox;
 	private	BooleanComboBox							copyResultsAsListFileComboBox;
 
+	// Search panel
+	private	FIntegerSpinner							numSearchThreadsSpinner;
+	private	FIntegerSpinner							streamingFileSizeSpinner;
+	private	FIntegerSpinner							maxMatchSpanSpinner;
+	private	FIntegerSpinner							readAheadSizeSpinner;
+	private	FIntegerSpinner							matchTimeLimitSpinner;
+	private	BooleanComboBox							indexFilesComboBox;
+	private	BooleanComboBox							ignoreFilesComboBox;
+
 	// Appearance panel
 	private	FComboBox<String>						lookAndFeelComboBox;
 	private	FComboBox<TextRendering.Antialiasing>	textAntialiasingComboBox;
@@ -1118,6 +1147,380 @@ class PreferencesDialog
 
 	//------------------------------------------------------------------
 
+	private JPanel createPanelSearch()
+	{
+		//----  Control panel
+
+		GridBagLayout gridBag = new GridBagLayout();
+		GridBagConstraints gbc = new GridBagConstraints();
+
+		JPanel controlPanel = new JPanel(gridBag);
+		GuiUtils.setPaddedLineBorder(controlPanel);
+
+		int gridY = 0;
+
+		AppConfig config = AppConfig.INSTANCE;
+
+		// Label: number of search threads
+		JLabel numSearchThreadsLabel = new FLabel(NUM_SEARCH_THREADS_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(numSearchThreadsLabel, gbc);
+		controlPanel.add(numSearchThreadsLabel);
+
+		// Panel: number of search threads
+		JPanel numSearchThreadsPanel = new JPanel(gridBag);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(numSearchThreadsPanel, gbc);
+		controlPanel.add(numSearchThreadsPanel);
+
+		// Spinner: number of search threads
+		numSearchThreadsSpinner = new FIntegerSpinner(config.getNumSearchThreads(), AppConfig.MIN_NUM_SEARCH_THREADS,
+													  AppConfig.MAX_NUM_SEARCH_THREADS,
+													  NUM_SEARCH_THREADS_FIELD_LENGTH);
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(numSearchThreadsSpinner, gbc);
+		numSearchThreadsPanel.add(numSearchThreadsSpinner);
+
+		// Label: automatic number of search threads
+		JLabel automaticLabel = new FLabel(AUTOMATIC_STR);
+
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 6, 0, 0);
+		gridBag.setConstraints(automaticLabel, gbc);
+		numSearchThreadsPanel.add(automaticLabel);
+
+		// Label: minimum size of file for streaming find
+		JLabel streamingFileSizeLabel = new FLabel(STREAMING_FILE_SIZE_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(streamingFileSizeLabel, gbc);
+		controlPanel.add(streamingFileSizeLabel);
+
+		// Panel: minimum size of file for streaming find
+		JPanel streamingFileSizePanel = new JPanel(gridBag);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(streamingFileSizePanel, gbc);
+		controlPanel.add(streamingFileSizePanel);
+
+		// Spinner: minimum size of file for streaming find
+		streamingFileSizeSpinner = new FIntegerSpinner(config.getStreamingFileSize(), AppConfig.MIN_STREAMING_FILE_SIZE,
+													   AppConfig.MAX_STREAMING_FILE_SIZE,
+													   STREAMING_FILE_SIZE_FIELD_LENGTH);
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(streamingFileSizeSpinner, gbc);
+		streamingFileSizePanel.add(streamingFileSizeSpinner);
+
+		// Label: units of minimum size of file for streaming find
+		JLabel mebibytesLabel = new FLabel(MEBIBYTES_STR);
+
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 6, 0, 0);
+		gridBag.setConstraints(mebibytesLabel, gbc);
+		streamingFileSizePanel.add(mebibytesLabel);
+
+		// Label: maximum length of match in streaming find
+		JLabel maxMatchSpanLabel = new FLabel(MAX_MATCH_SPAN_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(maxMatchSpanLabel, gbc);
+		controlPanel.add(maxMatchSpanLabel);
+
+		// Spinner: maximum length of match in streaming find
+		maxMatchSpanSpinner = new FIntegerSpinner(config.getMaxMatchSpan(), AppConfig.MIN_MAX_MATCH_SPAN,
+												  AppConfig.MAX_MAX_MATCH_SPAN, MAX_MATCH_SPAN_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(maxMatchSpanSpinner, gbc);
+		controlPanel.add(maxMatchSpanSpinner);
+
+		// Label: memory for reading ahead in prompted search
+		JLabel readAheadSizeLabel = new FLabel(READ_AHEAD_SIZE_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(readAheadSizeLabel, gbc);
+		controlPanel.add(readAheadSizeLabel);
+
+		// Panel: memory for reading ahead in prompted search
+		JPanel readAheadSizePanel = new JPanel(gridBag);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(readAheadSizePanel, gbc);
+		controlPanel.add(readAheadSizePanel);
+
+		// Spinner: memory for reading ahead in prompted search
+		readAheadSizeSpinner = new FIntegerSpinner(config.getReadAheadSize(), AppConfig.MIN_READ_AHEAD_SIZE,
+												   AppConfig.MAX_READ_AHEAD_SIZE, READ_AHEAD_SIZE_FIELD_LENGTH);
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(readAheadSizeSpinner, gbc);
+		readAheadSizePanel.add(readAheadSizeSpinner);
+
+		// Label: units of memory for reading ahead in prompted search
+		JLabel readAheadMebibytesLabel = new FLabel(MEBIBYTES_STR + " " + NO_READ_AHEAD_STR);
+
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 6, 0, 0);
+		gridBag.setConstraints(readAheadMebibytesLabel, gbc);
+		readAheadSizePanel.add(readAheadMebibytesLabel);
+
+		// Label: time limit for matching in a file
+		JLabel matchTimeLimitLabel = new FLabel(MATCH_TIME_LIMIT_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(matchTimeLimitLabel, gbc);
+		controlPanel.add(matchTimeLimitLabel);
+
+		// Panel: time limit for matching in a file
+		JPanel matchTimeLimitPanel = new JPanel(gridBag);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(matchTimeLimitPanel, gbc);
+		controlPanel.add(matchTimeLimitPanel);
+
+		// Spinner: time limit for matching in a file
+		matchTimeLimitSpinner = new FIntegerSpinner(config.getMatchTimeLimit(), AppConfig.MIN_MATCH_TIME_LIMIT,
+													AppConfig.MAX_MATCH_TIME_LIMIT, MATCH_TIME_LIMIT_FIELD_LENGTH);
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(matchTimeLimitSpinner, gbc);
+		matchTimeLimitPanel.add(matchTimeLimitSpinner);
+
+		// Label: units of time limit for matching in a file
+		JLabel matchTimeLimitSecondsLabel = new FLabel(SECONDS_STR + " " + NO_TIME_LIMIT_STR);
+
+		gbc.gridx = 1;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 6, 0, 0);
+		gridBag.setConstraints(matchTimeLimitSecondsLabel, gbc);
+		matchTimeLimitPanel.add(matchTimeLimitSecondsLabel);
+
+		// Label: index files
+		JLabel indexFilesLabel = new FLabel(INDEX_FILES_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(indexFilesLabel, gbc);
+		controlPanel.add(indexFilesLabel);
+
+		// Combo box: index files
+		indexFilesComboBox = new BooleanComboBox(config.isIndexFiles());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(indexFilesComboBox, gbc);
+		controlPanel.add(indexFilesComboBox);
+
+		// Label: honour ignore files
+		JLabel ignoreFilesLabel = new FLabel(IGNORE_FILES_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(ignoreFilesLabel, gbc);
+		controlPanel.add(ignoreFilesLabel);
+
+		// Combo box: honour ignore files
+		ignoreFilesComboBox = new BooleanComboBox(config.isHonourIgnoreFiles());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(ignoreFilesComboBox, gbc);
+		controlPanel.add(ignoreFilesComboBox);
+
+
+		//----  Outer panel
+
+		JPanel outerPanel = new JPanel(gridBag);
+		outerPanel.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+
+		gbc.gridx = 0;
+		gbc.gridy = 0;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(controlPanel, gbc);
+		outerPanel.add(controlPanel);
+
+		return outerPanel;
+	}
+
+	//------------------------------------------------------------------
+
 	private JPanel createPanelAppearance()
 	{
 		// Reset fixed-width labels
@@ -2148,6 +2551,13 @@ class PreferencesDialog
 
 	//------------------------------------------------------------------
 
+	private void validatePreferencesSearch()
+	{
+		// do nothing
+	}
+
+	//------------------------------------------------------------------
+
 	private void validatePreferencesAppearance()
 		throws AppException
 	{
@@ -2239,6 +2649,20 @@ class PreferencesDialog
 
 	//------------------------------------------------------------------
 
+	private void setPreferencesSearch()
+	{
+		AppConfig config = AppConfig.INSTANCE;
+		config.setNumSearchThreads(numSearchThreadsSpinner.getIntValue());
+		config.setStreamingFileSize(streamingFileSizeSpinner.getIntValue());
+		config.setMaxMatchSpan(maxMatchSpanSpinner.getIntValue());
+		config.setReadAheadSize(readAheadSizeSpinner.getIntValue());
+		config.setMatchTimeLimit(matchTimeLimitSpinner.getIntValue());
+		config.setIndexFiles(indexFilesComboBox.getSelectedValue());
+		config.setHonourIgnoreFiles(ignoreFilesComboBox.getSelectedValue());
+	}
+
+	//------------------------------------------------------------------
+
 	private void setPreferencesAppearance()
 	{
 		AppConfig config = AppConfig.INSTANCE;
@@ -2344,6 +2768,37 @@ class PreferencesDialog
 			//----------------------------------------------------------
 		},
 
+		SEARCH
+		(
+			"Search"
+		)
+		{
+			@Override
+			protected JPanel createPanel(PreferencesDialog dialog)
+			{
+				return dialog.createPanelSearch();
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected void validatePreferences(PreferencesDialog dialog)
+				throws AppException
+			{
+				dialog.validatePreferencesSearch();
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected void setPreferences(PreferencesDialog dialog)
+			{
+				dialog.setPreferencesSearch();
+			}
+
+			//----------------------------------------------------------
+		},
+
 		APPEARANCE
 		(
 			"Appearance"
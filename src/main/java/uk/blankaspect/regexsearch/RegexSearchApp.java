@@ -18,6 +18,8 @@ package uk.blankaspect.regexsearch;
 // IMPORTS
 
 
+import java.awt.GraphicsEnvironment;
+
 import java.io.File;
 import java.io.IOException;
 
@@ -99,7 +101,10 @@ public class RegexSearchApp
 	public static void main(
 		String[]	args)
 	{
-		INSTANCE.start();
+		if (args.length > 0)
+			BatchSearch.main(args);
+		else
+			INSTANCE.start();
 	}
 
 	//------------------------------------------------------------------
@@ -159,7 +164,10 @@ public class RegexSearchApp
 		Object	message,
 		int		messageKind)
 	{
-		JOptionPane.showMessageDialog(mainWindow, message, title, messageKind);
+		if (GraphicsEnvironment.isHeadless())
+			System.err.println(title + ": " + message);
+		else
+			JOptionPane.showMessageDialog(mainWindow, message, title, messageKind);
 	}
 
 	//------------------------------------------------------------------
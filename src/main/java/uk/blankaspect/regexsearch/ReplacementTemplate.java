@@ -0,0 +1,528 @@
+/*====================================================================*\
+
+ReplacementTemplate.java
+
+Class: compiled replacement expression.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.regex.Matcher;
+
+import uk.blankaspect.common.exception.AppException;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: COMPILED REPLACEMENT EXPRESSION
+
+
+/**
+ * This class implements a compiled replacement expression.  The expression is parsed once, when the template is
+ * compiled, into a sequence of <i>segments</i>, each of which is either literal text, in which the escape sequences
+ * have already been resolved, or a reference to a group of the search pattern, optionally with a conversion of the
+ * case of its letters.  A replacement is then created for each match by appending the segments to a buffer, without
+ * parsing the expression again.
+ * <p>
+ * The escape character of the expression is that of the application configuration at the time that the template is
+ * compiled.  A reference to a group is resolved against the number of groups of the pattern with which the template is
+ * compiled: the longest sequence of digits that denotes a group of the pattern is the index of the group.
+ * </p>
+ * <p>
+ * An instance of this class is immutable, so it may be shared by several threads.
+ * </p>
+ */
+
+class ReplacementTemplate
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		UNICODE_ESCAPE_LENGTH	= 4;
+
+	private static final	String	HEX_DIGITS	= "0123456789ABCDEF";
+
+	private static final	String	DANGLING_ESCAPE_STR			= "The replacement string has a dangling '%s'.";
+	private static final	String	ILLEGAL_ESCAPE_STR			= "\" is not a legal escape sequence.";
+	private static final	String	ILLEGAL_UNICODE_ESCAPE_STR	= "The Unicode escape is invalid.";
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Segment[]	segments;
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: STATES OF PARSER
+
+
+	private enum ParserState
+	{
+		NEXT_CHAR,
+		ESCAPE,
+		GROUP_QUALIFIER,
+		GROUP_INDEX,
+		UNICODE_ESCAPE,
+		DONE
+	}
+
+	//==================================================================
+
+
+	// ENUMERATION: TEXT CASE
+
+
+	private enum Case
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		LOWER   ('L'),
+		UPPER   ('U');
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	char	key;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Case(
+			char	key)
+		{
+			this.key = key;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		public static Case forKey(
+			char	key)
+		{
+			return Arrays.stream(values()).filter(value -> value.key == key).findFirst().orElse(null);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		public String apply(
+			String	text)
+		{
+			return switch (this)
+			{
+				case LOWER -> text.toLowerCase();
+				case UPPER -> text.toUpperCase();
+			};
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// ENUMERATION: ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		INVALID_REPLACEMENT_STRING
+		("The replacement string is invalid.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private ReplacementTemplate(
+		List<Segment>	segments)
+	{
+		// Initialise instance variables
+		this.segments = segments.toArray(Segment[]::new);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles the specified replacement expression.
+	 *
+	 * @param  expression
+	 *           the replacement expression.
+	 * @param  regex
+	 *           if {@code true}, the search target is a regular expression, and the expression may contain references
+	 *           to groups.
+	 * @param  groupCount
+	 *           the number of capturing groups of the search pattern.
+	 * @return a template for {@code expression}.
+	 * @throws TextSearcher.SyntaxException
+	 *           if {@code expression} is not a valid replacement expression.
+	 */
+
+	public static ReplacementTemplate compile(
+		String	expression,
+		boolean	regex,
+		int		groupCount)
+		throws AppException
+	{
+		List<Segment> segments = new ArrayList<>();
+		StringBuilder buffer = new StringBuilder();
+		int index = 0;
+		int endIndex = expression.length();
+		char escapeChar = AppConfig.INSTANCE.getReplacementEscapeChar();
+		Case textCase = null;
+		char ch = 0;
+		ParserState state = ParserState.NEXT_CHAR;
+		while (state != ParserState.DONE)
+		{
+			switch (state)
+			{
+				case NEXT_CHAR:
+				{
+					if (index < endIndex)
+					{
+						ch = expression.charAt(index++);
+						if (ch == escapeChar)
+							state = ParserState.ESCAPE;
+						else
+							buffer.append(ch);
+					}
+					else
+						state = ParserState.DONE;
+					break;
+				}
+
+				case ESCAPE:
+				{
+					if (index >= endIndex)
+					{
+						String str = String.format(DANGLING_ESCAPE_STR, escapeChar);
+						throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING, str, index - 1);
+					}
+					textCase = null;
+					ch = expression.charAt(index);
+					if (regex && (ch >= '0') && (ch <= '9'))
+						state = ParserState.GROUP_INDEX;
+					else
+					{
+						if (ch == escapeChar)
+						{
+							buffer.append(escapeChar);
+							state = ParserState.NEXT_CHAR;
+						}
+						else
+						{
+							switch (ch)
+							{
+								case 'n':
+									buffer.append('\n');
+									state = ParserState.NEXT_CHAR;
+									break;
+
+								case 't':
+									buffer.append('\t');
+									state = ParserState.NEXT_CHAR;
+									break;
+
+								case 'u':
+									state = ParserState.UNICODE_ESCAPE;
+									break;
+
+								default:
+									textCase = Case.forKey(ch);
+									if (!regex || (textCase == null))
+									{
+										throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
+																			   "\"" + escapeChar + ch
+																					+ ILLEGAL_ESCAPE_STR,
+																			   index - 1);
+									}
+									state = ParserState.GROUP_QUALIFIER;
+									break;
+							}
+						}
+						++index;
+					}
+					break;
+				}
+
+				case GROUP_QUALIFIER:
+				{
+					if (index >= endIndex)
+					{
+						throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
+															   "\"" + escapeChar + textCase.key + ILLEGAL_ESCAPE_STR,
+															   index - 2);
+					}
+					ch = expression.charAt(index);
+					if ((ch < '0') || (ch > '9'))
+					{
+						throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
+															   "\"" + escapeChar + textCase.key + ch
+																	+ ILLEGAL_ESCAPE_STR,
+															   index - 2);
+					}
+					state = ParserState.GROUP_INDEX;
+					break;
+				}
+
+				case GROUP_INDEX:
+				{
+					// Parse the longest index that does not exceed the number of groups
+					int value = ch - '0';
+					while (++index < endIndex)
+					{
+						ch = expression.charAt(index);
+						if ((ch < '0') || (ch > '9'))
+							break;
+						int newValue = value * 10 + ch - '0';
+						if (newValue > groupCount)
+							break;
+						value = newValue;
+					}
+
+					// Add a segment for any preceding literal text and a segment for the group; a reference to a
+					// nonexistent group is ignored
+					if (value <= groupCount)
+					{
+						if (!buffer.isEmpty())
+						{
+							segments.add(new Segment(buffer.toString(), 0, null));
+							buffer.setLength(0);
+						}
+						segments.add(new Segment(null, value, textCase));
+					}
+					state = ParserState.NEXT_CHAR;
+					break;
+				}
+
+				case UNICODE_ESCAPE:
+				{
+					int startIndex = index - 2;
+					int value = 0;
+					for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++)
+					{
+						if (index >= endIndex)
+						{
+							throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
+																   ILLEGAL_UNICODE_ESCAPE_STR, startIndex);
+						}
+						ch = Character.toUpperCase(expression.charAt(index++));
+						int digitValue = HEX_DIGITS.indexOf(ch);
+						if (digitValue < 0)
+						{
+							throw new TextSearcher.SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
+																   ILLEGAL_UNICODE_ESCAPE_STR, startIndex);
+						}
+						value <<= 4;
+						value += digitValue;
+					}
+					buffer.append((char)value);
+					state = ParserState.NEXT_CHAR;
+					break;
+				}
+
+				case DONE:
+					// do nothing
+					break;
+			}
+		}
+
+		// Add a segment for any remaining literal text
+		if (!buffer.isEmpty())
+			segments.add(new Segment(buffer.toString(), 0, null));
+
+		// Create template
+		return new ReplacementTemplate(segments);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Tests whether the specified replacement expression is valid.
+	 *
+	 * @param  expression
+	 *           the replacement expression.
+	 * @param  regex
+	 *           if {@code true}, the search target is a regular expression, and the expression may contain references
+	 *           to groups.
+	 * @throws TextSearcher.SyntaxException
+	 *           if {@code expression} is not a valid replacement expression.
+	 */
+
+	public static void validate(
+		String	expression,
+		boolean	regex)
+		throws AppException
+	{
+		compile(expression, regex, 0);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Appends the replacement for the current match of the specified matcher to the specified buffer.
+	 *
+	 * @param matcher
+	 *          the matcher whose current match will be replaced.  Its pattern must have at least as many groups as the
+	 *          pattern with which this template was compiled.
+	 * @param input
+	 *          the input sequence of {@code matcher}.
+	 * @param buffer
+	 *          the buffer to which the replacement will be appended.
+	 */
+
+	public void append(
+		Matcher			matcher,
+		CharSequence	input,
+		StringBuilder	buffer)
+	{
+		for (Segment segment : segments)
+		{
+			// Literal text
+			if (segment.text != null)
+				buffer.append(segment.text);
+
+			// Group, if it participated in the match
+			else
+			{
+				int start = matcher.start(segment.groupIndex);
+				if (start >= 0)
+				{
+					int end = matcher.end(segment.groupIndex);
+					if (segment.textCase == null)
+						buffer.append(input, start, end);
+					else
+						buffer.append(segment.textCase.apply(input.subSequence(start, end).toString()));
+				}
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the replacement for the current match of the specified matcher.
+	 *
+	 * @param  matcher
+	 *           the matcher whose current match will be replaced.  Its pattern must have at least as many groups as the
+	 *           pattern with which this template was compiled.
+	 * @param  input
+	 *           the input sequence of {@code matcher}.
+	 * @return the replacement for the current match of {@code matcher}.
+	 */
+
+	public String apply(
+		Matcher			matcher,
+		CharSequence	input)
+	{
+		if ((segments.length == 1) && (segments[0].text != null))
+			return segments[0].text;
+		if (segments.length == 0)
+			return "";
+
+		StringBuilder buffer = new StringBuilder();
+		append(matcher, input, buffer);
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: SEGMENT OF TEMPLATE: LITERAL TEXT, OR A REFERENCE TO A GROUP IF THE TEXT IS NULL
+
+
+	private record Segment(
+		String	text,
+		int		groupIndex,
+		Case	textCase)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -19,9 +19,17 @@ package uk.blankaspect.regexsearch;
 
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -36,6 +44,22 @@ import uk.blankaspect.ui.swing.textarea.TextArea;
 // CLASS: LIST OF SEARCH RESULTS
 
 
+/**
+ * This class implements the list of the results of a search that is displayed in the result area of the main window.
+ * <p>
+ * The lines of the list are held in parallel arrays rather than as an object per line, so that a list of hundreds of
+ * thousands of results remains compact.  A pathname is stored as the index of its parent directory in a table of
+ * directories and its name, so the directories of a tree are stored once.  The text of a line is composed only when
+ * it is displayed or written.
+ * </p>
+ * <p>
+ * If the matches of a search were listed, the result of each file is followed by a line for each of its matches.  The
+ * matches of a file are held in a {@link MatchList}; the line of a match has the pathname of the file, and it refers to
+ * the match by the index of its list and the index of the match in the list, which are held in two columns of their
+ * own.  The columns of the numbers of matches and replacements are used only by the lines of files.
+ * </p>
+ */
+
 class ResultList
 	implements TextArea.IModel
 {
@@ -46,17 +70,41 @@ class ResultList
 
 	private static final	String	FOUND_STR				= "found ";
 	private static final	String	REPLACED_STR			= "replaced ";
+	private static final	String	OFFSET_STR				= "offset ";
+	private static final	String	LENGTH_STR				= "length ";
 	private static final	String	NUM_FILES_STR			= "Number of files searched";
 	private static final	String	NUM_MATCHED_FILES_STR	= "Number of files containing matches";
 	private static final	String	NUM_MATCHES_STR			= "Number of matches";
 	private static final	String	NUM_REPLACEMENTS_STR	= "Number of replacements";
+	private static final	String	NUM_PRUNED_DIRS_STR		= "Number of directories skipped";
 	private static final	String	COLON_STR				= " : ";
 
+	private static final	int		INITIAL_CAPACITY	= 64;
+
+	// Kinds of line
+	private static final	byte	KIND_BLANK		= 0;
+	private static final	byte	KIND_TEXT		= 1;
+	private static final	byte	KIND_RESULT		= 2;
+	private static final	byte	KIND_FILE		= 3;
+	private static final	byte	KIND_MATCH		= 4;
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	List<Element>			elements;
+	private	int						numLines;
+	private	int						numResults;
+	private	byte[]					kinds;
+	private	int[]					directoryIndices;
+	private	String[]				names;
+	private	int[]					numMatches;
+	private	int[]					numReplacements;
+	private	int[]					matchListIndices;
+	private	int[]					matchIndices;
+	private	BitSet					selected;
+	private	List<String>			directories;
+	private	Map<String, Integer>	directoryIndexMap;
+	private	List<MatchList>			matchLists;
 	private	List<File>				files;
 	private	List<ChangeListener>	changeListeners;
 	private	ChangeEvent				changeEvent;
@@ -67,10 +115,9 @@ class ResultList
 
 	public ResultList()
 	{
-		elements = new ArrayList<>();
 		files = new ArrayList<>();
 		changeListeners = new ArrayList<>();
-		updateFiles();
+		clear();
 	}
 
 	//------------------------------------------------------------------
@@ -82,7 +129,7 @@ class ResultList
 	@Override
 	public int getNumLines()
 	{
-		return elements.size();
+		return numLines;
 	}
 
 	//------------------------------------------------------------------
@@ -92,18 +139,20 @@ class ResultList
 		int	startIndex,
 		int	endIndex)
 	{
-		if ((startIndex < 0) || (startIndex > elements.size()))
-			startIndex = elements.size();
-		if ((endIndex < 0) || (endIndex > elements.size()))
-			endIndex = elements.size();
+		if ((startIndex < 0) || (startIndex > numLines))
+			startIndex = numLines;
+		if ((endIndex < 0) || (endIndex > numLines))
+			endIndex = numLines;
 
 		TextArea.Line[] lines = new TextArea.Line[endIndex - startIndex];
+		StringBuilder buffer = new StringBuilder(128);
 		int index = 0;
 		for (int i = startIndex; i < endIndex; i++)
 		{
-			Element element = elements.get(i);
-			int endOffset = (element.selected && (element.pathname != null)) ? element.pathname.length() : 0;
-			lines[index++] = new TextArea.Line(elements.get(i).toString(), 0, endOffset, false);
+			buffer.setLength(0);
+			int pathnameLength = appendLine(buffer, i, false, '\0');
+			int endOffset = selected.get(i) ? pathnameLength : 0;
+			lines[index++] = new TextArea.Line(buffer.toString(), 0, endOffset, false);
 		}
 		return lines;
 	}
@@ -113,13 +162,17 @@ class ResultList
 	@Override
 	public String getText()
 	{
-		StringBuilder buffer = new StringBuilder();
-		for (Element element : elements)
+		StringWriter writer = new StringWriter();
+		try
 		{
-			buffer.append(element);
-			buffer.append('\n');
+			write(writer);
 		}
-		return buffer.toString();
+		catch (IOException e)
+		{
+			// A StringWriter does not throw an exception
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
 	}
 
 	//------------------------------------------------------------------
@@ -129,7 +182,7 @@ class ResultList
 		String	text)
 	{
 		if (text == null)
-			elements.clear();
+			clear();
 	}
 
 	//------------------------------------------------------------------
@@ -147,12 +200,7 @@ class ResultList
 
 	public boolean isSearchedFiles()
 	{
-		for (Element element : elements)
-		{
-			if (element.searchedFile)
-				return true;
-		}
-		return false;
+		return (numResults > 0);
 	}
 
 	//------------------------------------------------------------------
@@ -160,31 +208,49 @@ class ResultList
 	public String getSearchedPathname(
 		int	index)
 	{
-		String pathname = null;
-		if ((index >= 0) && (index < elements.size()))
-		{
-			Element element = elements.get(index);
-			if (element.searchedFile)
-				pathname = element.pathname;
-		}
-		return pathname;
+		return ((index >= 0) && (index < numLines) && ((kinds[index] == KIND_RESULT) || (kinds[index] == KIND_MATCH)))
+					? getPathname(index)
+					: null;
 	}
 
 	//------------------------------------------------------------------
 
-	public void addFile(
-		TextSearcher.FileResult	result)
+	/**
+	 * Appends the specified results of searched files, followed by any matches that were listed for each file, to this
+	 * list, and notifies the listeners of the list once for all of them.
+	 *
+	 * @param results
+	 *          the results that will be appended.
+	 */
+
+	public void addResults(
+		List<TextSearcher.FileResult>	results)
 	{
-		StringBuilder buffer = new StringBuilder(32);
-		buffer.append(FOUND_STR);
-		buffer.append(result.numMatches());
-		if (result.numReplacements() >= 0)
+		ensureCapacity(numLines + results.size());
+		for (TextSearcher.FileResult result : results)
 		{
-			buffer.append(", ");
-			buffer.append(REPLACED_STR);
-			buffer.append(result.numReplacements());
+			int index = addPathname(KIND_RESULT, Utils.getPathname(result.file()));
+			numMatches[index] = result.numMatches();
+			numReplacements[index] = result.numReplacements();
+			++numResults;
+
+			// Add a line for each match; it shares the pathname of the result
+			MatchList matches = result.matches();
+			if (matches != null)
+			{
+				int matchListIndex = matchLists.size();
+				matchLists.add(matches);
+				ensureCapacity(numLines + matches.getNumMatches() + results.size());
+				for (int i = 0; i < matches.getNumMatches(); i++)
+				{
+					int matchIndex = addLine(KIND_MATCH);
+					directoryIndices[matchIndex] = directoryIndices[index];
+					names[matchIndex] = names[index];
+					matchListIndices[matchIndex] = matchListIndex;
+					matchIndices[matchIndex] = i;
+				}
+			}
 		}
-		elements.add(new Element(Utils.getPathname(result.file()), buffer.toString(), true));
 		fireStateChanged();
 	}
 
@@ -193,15 +259,17 @@ class ResultList
 	public void addAggregate(
 		TextSearcher.AggregateResult	result)
 	{
-		if (!elements.isEmpty())
-			elements.add(new Element());
+		if (numLines > 0)
+			addLine(KIND_BLANK);
 		if (result.numFiles() >= 0)
-			elements.add(new Element(NUM_FILES_STR + COLON_STR + result.numFiles()));
+			addText(NUM_FILES_STR + COLON_STR + result.numFiles());
 		if (result.numMatchedFiles() >= 0)
-			elements.add(new Element(NUM_MATCHED_FILES_STR + COLON_STR + result.numMatchedFiles()));
-		elements.add(new Element(NUM_MATCHES_STR + COLON_STR + result.numMatches()));
+			addText(NUM_MATCHED_FILES_STR + COLON_STR + result.numMatchedFiles());
+		addText(NUM_MATCHES_STR + COLON_STR + result.numMatches());
 		if (result.numReplacements() >= 0)
-			elements.add(new Element(NUM_REPLACEMENTS_STR + COLON_STR + result.numReplacements()));
+			addText(NUM_REPLACEMENTS_STR + COLON_STR + result.numReplacements());
+		if (result.numPrunedDirectories() > 0)
+			addText(NUM_PRUNED_DIRS_STR + COLON_STR + result.numPrunedDirectories());
 		fireStateChanged();
 	}
 
@@ -212,11 +280,12 @@ class ResultList
 		List<File>	files,
 		boolean		fullPathname)
 	{
-		if (!elements.isEmpty())
-			elements.add(new Element());
-		elements.add(new Element("[ " + text + " ]"));
+		if (numLines > 0)
+			addLine(KIND_BLANK);
+		addText("[ " + text + " ]");
+		ensureCapacity(numLines + files.size());
 		for (File file : files)
-			elements.add(new Element(fullPathname ? Utils.getPathname(file) : file.getPath(), null, false));
+			addPathname(KIND_FILE, fullPathname ? Utils.getPathname(file) : file.getPath());
 		fireStateChanged();
 	}
 
@@ -224,7 +293,7 @@ class ResultList
 
 	public boolean isEmpty()
 	{
-		return elements.isEmpty();
+		return (numLines == 0);
 	}
 
 	//------------------------------------------------------------------
@@ -232,13 +301,58 @@ class ResultList
 	public String getText(
 		char	commentPrefix)
 	{
-		StringBuilder buffer = new StringBuilder();
-		for (Element element : elements)
+		StringWriter writer = new StringWriter();
+		try
 		{
-			buffer.append(element.toString(commentPrefix));
-			buffer.append('\n');
+			write(writer, commentPrefix);
+		}
+		catch (IOException e)
+		{
+			// A StringWriter does not throw an exception
+			throw new UncheckedIOException(e);
 		}
-		return buffer.toString();
+		return writer.toString();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes the lines of this list, as they are displayed, to the specified writer.  The text of each line is composed
+	 * as it is written.
+	 *
+	 * @param  writer
+	 *           the writer to which the lines will be written.
+	 * @throws IOException
+	 *           if an error occurs when writing to {@code writer}.
+	 */
+
+	public void write(
+		Writer	writer)
+		throws IOException
+	{
+		write(writer, false, '\0');
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes the lines of this list to the specified writer in the form of a list file, in which any text other than a
+	 * pathname is a comment.  The text of each line is composed as it is written.
+	 *
+	 * @param  writer
+	 *           the writer to which the lines will be written.
+	 * @param  commentPrefix
+	 *           the character that introduces a comment.
+	 * @throws IOException
+	 *           if an error occurs when writing to {@code writer}.
+	 */
+
+	public void write(
+		Writer	writer,
+		char	commentPrefix)
+		throws IOException
+	{
+		write(writer, true, commentPrefix);
 	}
 
 	//------------------------------------------------------------------
@@ -247,7 +361,7 @@ class ResultList
 		int		index,
 		boolean	selected)
 	{
-		elements.get(index).selected = selected;
+		this.selected.set(index, selected);
 	}
 
 	//------------------------------------------------------------------
@@ -255,10 +369,10 @@ class ResultList
 	public void updateFiles()
 	{
 		files.clear();
-		for (Element element : elements)
+		for (int i = 0; i < numLines; i++)
 		{
-			if (element.searchedFile)
-				files.add(new File(PathnameUtils.parsePathname(element.pathname)));
+			if (kinds[i] == KIND_RESULT)
+				files.add(new File(PathnameUtils.parsePathname(getPathname(i))));
 		}
 	}
 
@@ -284,101 +398,194 @@ class ResultList
 
 	//------------------------------------------------------------------
 
-////////////////////////////////////////////////////////////////////////
-//  Member classes : non-inner classes
-////////////////////////////////////////////////////////////////////////
-
-
-	// CLASS: ELEMENT
-
-
-	private static class Element
+	private void clear()
 	{
+		numLines = 0;
+		numResults = 0;
+		kinds = new byte[INITIAL_CAPACITY];
+		directoryIndices = new int[INITIAL_CAPACITY];
+		names = new String[INITIAL_CAPACITY];
+		numMatches = new int[INITIAL_CAPACITY];
+		numReplacements = new int[INITIAL_CAPACITY];
+		matchListIndices = new int[INITIAL_CAPACITY];
+		matchIndices = new int[INITIAL_CAPACITY];
+		selected = new BitSet();
+		directories = new ArrayList<>();
+		directoryIndexMap = new HashMap<>();
+		matchLists = new ArrayList<>();
+	}
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
-
-		private	String	pathname;
-		private	String	text;
-		private	boolean	searchedFile;
-		private	boolean	selected;
-
-	////////////////////////////////////////////////////////////////////
-	//  Constructors
-	////////////////////////////////////////////////////////////////////
+	//------------------------------------------------------------------
 
-		private Element()
+	private void ensureCapacity(
+		int	capacity)
+	{
+		if (capacity > kinds.length)
 		{
+			capacity = Math.max(capacity, kinds.length + (kinds.length >> 1));
+			kinds = Arrays.copyOf(kinds, capacity);
+			directoryIndices = Arrays.copyOf(directoryIndices, capacity);
+			names = Arrays.copyOf(names, capacity);
+			numMatches = Arrays.copyOf(numMatches, capacity);
+			numReplacements = Arrays.copyOf(numReplacements, capacity);
+			matchListIndices = Arrays.copyOf(matchListIndices, capacity);
+			matchIndices = Arrays.copyOf(matchIndices, capacity);
 		}
+	}
 
-		//--------------------------------------------------------------
-
-		private Element(
-			String	text)
-		{
-			this.text = text;
-		}
+	//------------------------------------------------------------------
 
-		//--------------------------------------------------------------
+	private int addLine(
+		byte	kind)
+	{
+		ensureCapacity(numLines + 1);
+		kinds[numLines] = kind;
+		return numLines++;
+	}
 
-		private Element(
-			String	pathname,
-			String	text,
-			boolean	searchedFile)
-		{
-			this.pathname = pathname;
-			this.text = text;
-			this.searchedFile = searchedFile;
-		}
+	//------------------------------------------------------------------
 
-		//--------------------------------------------------------------
+	private void addText(
+		String	text)
+	{
+		names[addLine(KIND_TEXT)] = text;
+	}
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods : overriding methods
-	////////////////////////////////////////////////////////////////////
+	//------------------------------------------------------------------
 
-		@Override
-		public String toString()
+	/**
+	 * Adds a line with the specified pathname to this list.  The pathname is split into its parent directory, which is
+	 * added to the table of directories if it is not already there, and its name.
+	 *
+	 * @param  kind
+	 *           the kind of the line.
+	 * @param  pathname
+	 *           the pathname.
+	 * @return the index of the new line.
+	 */
+
+	private int addPathname(
+		byte	kind,
+		String	pathname)
+	{
+		int separatorIndex = pathname.lastIndexOf(File.separatorChar) + 1;
+		String directory = pathname.substring(0, separatorIndex);
+		Integer directoryIndex = directoryIndexMap.get(directory);
+		if (directoryIndex == null)
 		{
-			StringBuilder buffer = new StringBuilder();
-			if (pathname != null)
-				buffer.append(pathname);
-			if ((pathname != null) && (text != null))
-				buffer.append("  [");
-			if (text != null)
-				buffer.append(text);
-			if ((pathname != null) && (text != null))
-				buffer.append(']');
-			return buffer.toString();
+			directoryIndex = directories.size();
+			directories.add(directory);
+			directoryIndexMap.put(directory, directoryIndex);
 		}
 
-		//--------------------------------------------------------------
+		int index = addLine(kind);
+		directoryIndices[index] = directoryIndex;
+		names[index] = pathname.substring(separatorIndex);
+		return index;
+	}
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods
-	////////////////////////////////////////////////////////////////////
+	//------------------------------------------------------------------
 
-		public String toString(
-			char	commentPrefix)
+	private String getPathname(
+		int	index)
+	{
+		return directories.get(directoryIndices[index]) + names[index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Appends the text of the specified line of this list to the specified buffer.
+	 *
+	 * @param  buffer
+	 *           the buffer to which the text will be appended.
+	 * @param  index
+	 *           the index of the line.
+	 * @param  listFile
+	 *           if {@code true}, the text will be in the form of a list file, in which any text other than a pathname
+	 *           is a comment.
+	 * @param  commentPrefix
+	 *           the character that introduces a comment in a list file.
+	 * @return the length of the pathname of the line, or 0 if the line has no pathname.
+	 */
+
+	private int appendLine(
+		StringBuilder	buffer,
+		int				index,
+		boolean			listFile,
+		char			commentPrefix)
+	{
+		int startLength = buffer.length();
+		int pathnameLength = 0;
+		switch (kinds[index])
 		{
-			StringBuilder buffer = new StringBuilder(64);
-			if (pathname != null)
-				buffer.append(pathname);
-			if (text != null)
+			case KIND_BLANK:
+				break;
+
+			case KIND_TEXT:
+				if (listFile)
+					buffer.append(commentPrefix).append(' ');
+				buffer.append(names[index]);
+				break;
+
+			case KIND_RESULT:
+				buffer.append(directories.get(directoryIndices[index])).append(names[index]);
+				pathnameLength = buffer.length() - startLength;
+				if (listFile)
+					buffer.append("  ").append(commentPrefix).append(' ');
+				else
+					buffer.append("  [");
+				buffer.append(FOUND_STR).append(numMatches[index]);
+				if (numReplacements[index] >= 0)
+					buffer.append(", ").append(REPLACED_STR).append(numReplacements[index]);
+				if (!listFile)
+					buffer.append(']');
+				break;
+
+			case KIND_FILE:
+				buffer.append(directories.get(directoryIndices[index])).append(names[index]);
+				pathnameLength = buffer.length() - startLength;
+				break;
+
+			case KIND_MATCH:
 			{
-				if (buffer.length() > 0)
-					buffer.append("  ");
-				buffer.append(commentPrefix).append(' ').append(text);
+				// The line of a match is a comment in a list file
+				if (listFile)
+					buffer.append(commentPrefix).append(' ');
+				buffer.append(directories.get(directoryIndices[index])).append(names[index]);
+				if (!listFile)
+					pathnameLength = buffer.length() - startLength;
+				MatchList matches = matchLists.get(matchListIndices[index]);
+				int matchIndex = matchIndices[index];
+				buffer.append(':').append(matches.getLineIndex(matchIndex) + 1)
+						.append(':').append(matches.getColumnIndex(matchIndex) + 1)
+						.append("  [").append(OFFSET_STR).append(matches.getOffset(matchIndex))
+						.append(", ").append(LENGTH_STR).append(matches.getLength(matchIndex)).append(']');
+				break;
 			}
-			return buffer.toString();
 		}
+		return pathnameLength;
+	}
 
-		//--------------------------------------------------------------
+	//------------------------------------------------------------------
 
+	private void write(
+		Writer	writer,
+		boolean	listFile,
+		char	commentPrefix)
+		throws IOException
+	{
+		StringBuilder buffer = new StringBuilder(128);
+		for (int i = 0; i < numLines; i++)
+		{
+			buffer.setLength(0);
+			appendLine(buffer, i, listFile, commentPrefix);
+			buffer.append('\n');
+			writer.append(buffer);
+		}
 	}
 
-	//==================================================================
+	//------------------------------------------------------------------
 
 }
 
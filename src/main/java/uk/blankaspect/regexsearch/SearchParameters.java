@@ -92,6 +92,7 @@ class SearchParameters
 	{
 		String	FILE_SET_INDEX		= "fileSetIndex";
 		String	IGNORE_CASE			= "ignoreCase";
+		String	LIST_MATCHES		= "listMatches";
 		String	REGEX				= "regex";
 		String	REPLACE				= "replace";
 		String	REPLACEMENT_INDEX	= "replacementIndex";
@@ -367,6 +368,13 @@ class SearchParameters
 
 	//------------------------------------------------------------------
 
+	public boolean isListMatches()
+	{
+		return listMatches;
+	}
+
+	//------------------------------------------------------------------
+
 	public void setFileSet(int     index,
 						   FileSet fileSet)
 	{
@@ -478,6 +486,17 @@ class SearchParameters
 
 	//------------------------------------------------------------------
 
+	public void setListMatches(boolean listMatches)
+	{
+		if (this.listMatches != listMatches)
+		{
+			this.listMatches = listMatches;
+			changed = true;
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	public void addFileSet(int     index,
 						   FileSet fileSet)
 	{
@@ -698,6 +717,7 @@ class SearchParameters
 				attributes.add(AttrName.REGEX, regex);
 				attributes.add(AttrName.IGNORE_CASE, ignoreCase);
 				attributes.add(AttrName.SHOW_NOT_FOUND, showNotFound);
+				attributes.add(AttrName.LIST_MATCHES, listMatches);
 				if (!fileSets.isEmpty())
 					attributes.add(AttrName.FILE_SET_INDEX, fileSetIndex);
 				if (!targets.isEmpty())
@@ -907,6 +927,18 @@ class SearchParameters
 			showNotFound = booleanValue.toBoolean();
 		}
 
+		// Attribute: list matches
+		attrName = AttrName.LIST_MATCHES;
+		attrKey = XmlUtils.appendAttributeName(elementPath, attrName);
+		attrValue = XmlUtils.getAttribute(rootElement, attrName);
+		if (attrValue != null)
+		{
+			booleanValue = NoYes.forKey(attrValue);
+			if (booleanValue == null)
+				throw new XmlParseException(ErrorId.INVALID_ATTRIBUTE, file, attrKey, attrValue);
+			listMatches = booleanValue.toBoolean();
+		}
+
 		// Attribute: file-set index
 		attrName = AttrName.FILE_SET_INDEX;
 		attrKey = XmlUtils.appendAttributeName(elementPath, attrName);
@@ -1031,6 +1063,7 @@ class SearchParameters
 	private	boolean			regex;
 	private	boolean			ignoreCase;
 	private	boolean			showNotFound;
+	private	boolean			listMatches;
 
 }
 
@@ -0,0 +1,171 @@
+/*====================================================================*\
+
+SearchProgress.java
+
+Class: progress of a search.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: PROGRESS OF A SEARCH
+
+
+/**
+ * This class records the progress of a search so that it can be displayed without the search posting an event for
+ * each file.  The search thread and the worker threads publish progress without locking: the number of files and the
+ * number of bytes are accumulated in counters that may be incremented concurrently, and the file that was most recently
+ * started is held in a slot that each file overwrites.  A view samples the progress at its own rate with {@link
+ * #sample()}.
+ */
+
+class SearchProgress
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private				long		startTime;
+	private				LongAdder	numFiles;
+	private				LongAdder	numBytes;
+	private volatile	File		currentFile;
+	private volatile	boolean		clipboard;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of the progress of a search that starts now.
+	 */
+
+	public SearchProgress()
+	{
+		// Initialise instance variables
+		startTime = System.nanoTime();
+		numFiles = new LongAdder();
+		numBytes = new LongAdder();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Records that the search of the specified file has started.  This method may be called on any thread.
+	 *
+	 * @param file
+	 *          the file.
+	 * @param length
+	 *          the length of {@code file} in bytes.
+	 */
+
+	public void fileStarted(
+		File	file,
+		long	length)
+	{
+		numFiles.increment();
+		numBytes.add(length);
+		currentFile = file;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Records that the search of the text of the clipboard has started.
+	 */
+
+	public void clipboardStarted()
+	{
+		clipboard = true;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns a snapshot of this progress.  The counts of the snapshot may be slightly inconsistent with each other if
+	 * files are started while the snapshot is taken.
+	 *
+	 * @return a snapshot of this progress.
+	 */
+
+	public Sample sample()
+	{
+		return new Sample(currentFile, clipboard, numFiles.sum(), numBytes.sum(), System.nanoTime() - startTime);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: SNAPSHOT OF PROGRESS
+
+
+	public record Sample(
+		File	file,
+		boolean	clipboard,
+		long	numFiles,
+		long	numBytes,
+		long	elapsedTime)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns the mean number of files that were started per second since the start of the search.
+		 *
+		 * @return the mean number of files per second, or 0 if no time has elapsed.
+		 */
+
+		public double getFileRate()
+		{
+			return (elapsedTime <= 0) ? 0.0 : (double)numFiles * 1.0e9 / (double)elapsedTime;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns the mean number of bytes that were started per second since the start of the search.
+		 *
+		 * @return the mean number of bytes per second, or 0 if no time has elapsed.
+		 */
+
+		public double getByteRate()
+		{
+			return (elapsedTime <= 0) ? 0.0 : (double)numBytes * 1.0e9 / (double)elapsedTime;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
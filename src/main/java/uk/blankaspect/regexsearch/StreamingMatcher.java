@@ -0,0 +1,435 @@
+/*====================================================================*\
+
+StreamingMatcher.java
+
+Class: matcher that counts the matches of a pattern in a file in overlapping windows.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import java.nio.channels.FileChannel;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+import java.util.function.BooleanSupplier;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+import uk.blankaspect.common.exception.TaskCancelledException;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: MATCHER THAT COUNTS THE MATCHES OF A PATTERN IN A FILE IN OVERLAPPING WINDOWS
+
+
+/**
+ * This class counts the matches of a pattern in a file without holding the whole text of the file in memory.  The
+ * file is read and decoded in blocks; the pattern is run over a window of text that consists of the unsearched end of
+ * the previous window followed by the next block.  Line separators are changed to LFs as the text is decoded.  The
+ * matches may also be added to a {@link MatchList}.
+ * <p>
+ * The count is the same as that of a matcher that is run over the whole text, provided that no match, together with
+ * any context that the pattern examines before or after it (for example, by a lookaround or a word boundary), is
+ * longer than the <i>maximum match span</i>.  A match that is longer than the span may be truncated or missed.  The
+ * memory that is used depends only on the span and the block length, not on the length of the file.
+ * </p>
+ */
+
+class StreamingMatcher
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int	BLOCK_LENGTH	= 1 << 22;	// 4194304
+
+	private static final	int	MIN_BLOCK_SPAN_FACTOR	= 4;
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FILE_DOES_NOT_EXIST
+		("The file does not exist."),
+
+		FAILED_TO_OPEN_FILE
+		("Failed to open the file."),
+
+		ERROR_READING_FILE
+		("An error occurred when reading the file."),
+
+		FILE_ACCESS_NOT_PERMITTED
+		("Access to the file was not permitted.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Pattern			pattern;
+	private	Charset			defaultCharset;
+	private	int				maxMatchSpan;
+	private	long			timeLimit;
+	private	BooleanSupplier	stopRequested;
+	private	int				blockLength;
+	private	CharsetDecoder	decoder;
+	private	ByteBuffer		inBuffer;
+	private	CharBuffer		decodeBuffer;
+	private	boolean			crPending;
+	private	boolean			flushed;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a streaming matcher.
+	 *
+	 * @param pattern
+	 *          the pattern whose matches will be counted.
+	 * @param defaultCharset
+	 *          the character encoding of a file whose leading bytes give no evidence of another encoding.
+	 * @param maxMatchSpan
+	 *          the maximum length of a match, including the context that the pattern examines around it.
+	 * @param timeLimit
+	 *          the time, in nanoseconds, that the pattern may take to find the matches in one window of text, or 0 for
+	 *          no limit.
+	 * @param stopRequested
+	 *          the test of whether the search has been stopped.  It is applied on the thread that calls {@link
+	 *          #countMatches(File, MatchList)}, which need not be the thread of the task.
+	 */
+
+	public StreamingMatcher(
+		Pattern			pattern,
+		Charset			defaultCharset,
+		int				maxMatchSpan,
+		long			timeLimit,
+		BooleanSupplier	stopRequested)
+	{
+		// Initialise instance variables
+		this.pattern = pattern;
+		this.defaultCharset = defaultCharset;
+		this.maxMatchSpan = maxMatchSpan;
+		this.timeLimit = timeLimit;
+		this.stopRequested = stopRequested;
+		blockLength = Math.max(BLOCK_LENGTH, MIN_BLOCK_SPAN_FACTOR * maxMatchSpan);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of matches of the pattern of this matcher in the specified file.
+	 *
+	 * @param  file
+	 *           the file that will be searched.
+	 * @return the number of matches of the pattern in {@code file}.
+	 * @throws TaskCancelledException
+	 *           if the search was stopped.
+	 * @throws InterruptibleCharSequence.TimeLimitExceededException
+	 *           if the pattern exceeded the time limit in finding the matches in a window of text.
+	 * @throws AppException
+	 *           if an error occurs when reading the file.
+	 */
+
+	public int countMatches(
+		File	file)
+		throws AppException
+	{
+		return countMatches(file, null);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of matches of the pattern of this matcher in the specified file, and optionally adds the
+	 * matches to the specified list.
+	 *
+	 * @param  file
+	 *           the file that will be searched.
+	 * @param  matches
+	 *           the list to which the matches will be added, which should be empty.  If it is {@code null}, the matches
+	 *           will only be counted.
+	 * @return the number of matches of the pattern in {@code file}.
+	 * @throws TaskCancelledException
+	 *           if the search was stopped.
+	 * @throws InterruptibleCharSequence.TimeLimitExceededException
+	 *           if the pattern exceeded the time limit in finding the matches in a window of text.
+	 * @throws AppException
+	 *           if an error occurs when reading the file.
+	 */
+
+	public int countMatches(
+		File		file,
+		MatchList	matches)
+		throws AppException
+	{
+		// Initialise buffers
+		inBuffer = ByteBuffer.allocate(blockLength);
+		decodeBuffer = CharBuffer.allocate(blockLength);
+		crPending = false;
+		flushed = false;
+
+		// Open channel on file
+		FileChannel channel = null;
+		try
+		{
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_ACCESS_NOT_PERMITTED, file, e);
+		}
+		catch (NoSuchFileException e)
+		{
+			throw new FileException(ErrorId.FILE_DOES_NOT_EXIST, file, e);
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.FAILED_TO_OPEN_FILE, file, e);
+		}
+
+		// Search file
+		try
+		{
+			// Read the leading bytes of the file, detect its character encoding from them and initialise decoder
+			boolean endOfFile = false;
+			while (inBuffer.position() < CharsetDetector.DETECTION_LENGTH)
+			{
+				if (channel.read(inBuffer) < 0)
+				{
+					endOfFile = true;
+					break;
+				}
+			}
+			ByteBuffer leadingBytes = inBuffer.duplicate().flip();
+			if (leadingBytes.limit() > CharsetDetector.DETECTION_LENGTH)
+			{
+				leadingBytes.limit(CharsetDetector.DETECTION_LENGTH);
+				endOfFile = false;
+			}
+			Charset charset = CharsetDetector.detect(leadingBytes, endOfFile, defaultCharset);
+			decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+			// The window holds the unsearched end of the previous window followed by the next block of text
+			char[] window = new char[blockLength + 2 * maxMatchSpan + 1];
+			int windowLength = 0;
+			int searchIndex = 0;
+			int numMatches = 0;
+			boolean endOfInput = false;
+			while (!endOfInput)
+			{
+				// Test whether the search has been stopped
+				if (stopRequested.getAsBoolean())
+					throw new TaskCancelledException();
+
+				// Append next block of text to window
+				int blockEndIndex = readBlock(channel, window, windowLength);
+				endOfInput = (blockEndIndex < 0);
+				if (!endOfInput)
+					windowLength = blockEndIndex;
+
+				// Find matches that can't be affected by the text that follows the window; the matcher is interrupted
+				// if it exceeds the time limit or the task is cancelled
+				CharBuffer text = CharBuffer.wrap(window, 0, windowLength);
+				InterruptibleCharSequence guardedText =
+						new InterruptibleCharSequence(text, timeLimit, stopRequested);
+				Matcher matcher = pattern.matcher(guardedText);
+				int safeEndIndex = endOfInput ? windowLength : windowLength - maxMatchSpan;
+				int nextIndex = searchIndex;
+				boolean found = false;
+				guardedText.resumeTimer();
+				try
+				{
+					found = (searchIndex <= windowLength) && matcher.find(searchIndex);
+					while (found)
+					{
+						// Defer a match that may be affected by the text that follows the window
+						if (!endOfInput && (matcher.start() >= safeEndIndex))
+							break;
+
+						// Count match and continue after it; an empty match is followed by a search from the next
+						// index
+						++numMatches;
+						if (matches != null)
+							matches.add(text, matcher.start(), matcher.end());
+						nextIndex = (matcher.end() == matcher.start()) ? matcher.end() + 1 : matcher.end();
+						found = matcher.find();
+					}
+				}
+				catch (InterruptibleCharSequence.CancelledException e)
+				{
+					throw new TaskCancelledException();
+				}
+				if (!found)
+					nextIndex = Math.max(nextIndex, safeEndIndex);
+				else
+					nextIndex = matcher.start();
+
+				// Keep the unsearched text and the preceding context for the next window
+				if (!endOfInput)
+				{
+					int keepIndex = Math.max(0, Math.min(nextIndex, windowLength) - maxMatchSpan);
+					if (matches != null)
+						matches.discard(text, keepIndex);
+					System.arraycopy(window, keepIndex, window, 0, windowLength - keepIndex);
+					windowLength -= keepIndex;
+					searchIndex = nextIndex - keepIndex;
+				}
+			}
+			return numMatches;
+		}
+		catch (IOException e)
+		{
+			throw new FileException(ErrorId.ERROR_READING_FILE, file, e);
+		}
+		finally
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads and decodes the next block of the file, changes its line separators to LFs and appends it to the specified
+	 * array of characters.
+	 *
+	 * @return the index of the end of the appended text, or -1 if the end of the file has been reached and there is no
+	 *         more text.
+	 */
+
+	private int readBlock(
+		FileChannel	channel,
+		char[]		buffer,
+		int			offset)
+		throws IOException
+	{
+		// Read and decode bytes until some characters are decoded or the end of the file is reached
+		decodeBuffer.clear();
+		while ((decodeBuffer.position() == 0) && !flushed)
+		{
+			boolean endOfFile = (channel.read(inBuffer) < 0);
+			inBuffer.flip();
+			CoderResult result = decoder.decode(inBuffer, decodeBuffer, endOfFile);
+			inBuffer.compact();
+			if (endOfFile && result.isUnderflow())
+			{
+				decoder.flush(decodeBuffer);
+				flushed = true;
+			}
+		}
+		decodeBuffer.flip();
+		if (!decodeBuffer.hasRemaining())
+			return -1;
+
+		// Change line separators to LFs
+		int index = offset;
+		while (decodeBuffer.hasRemaining())
+		{
+			char ch = decodeBuffer.get();
+			if (ch == '\r')
+			{
+				buffer[index++] = '\n';
+				crPending = true;
+			}
+			else
+			{
+				if ((ch != '\n') || !crPending)
+					buffer[index++] = ch;
+				crPending = false;
+			}
+		}
+		return index;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -47,6 +47,7 @@ import javax.swing.JDialog;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import uk.blankaspect.common.exception.AppException;
 
@@ -81,6 +82,11 @@ class TaskProgressDialog
 	private static final	int	INFO_FIELD_HORIZONTAL_MARGIN	= 2;
 	private static final	int	INFO_FIELD_WIDTH				= 480;
 
+	/** The interval (in milliseconds) between successive updates of the information fields. */
+	private static final	int	UPDATE_INTERVAL	= 250;
+
+	private static final	String[]	BYTE_RATE_UNITS	= { "B/s", "KiB/s", "MiB/s", "GiB/s" };
+
 	// Commands
 	private interface Command
 	{
@@ -97,10 +103,12 @@ class TaskProgressDialog
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	boolean		stopped;
-	private	InfoField	infoField1;
-	private	InfoField	infoField2;
-	private	JButton		cancelButton;
+	private	boolean			stopped;
+	private	SearchProgress	searchProgress;
+	private	Timer			updateTimer;
+	private	InfoField		infoField1;
+	private	InfoField		infoField2;
+	private	JButton			cancelButton;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -125,6 +133,9 @@ class TaskProgressDialog
 		infoField1 = new InfoField();
 		infoField2 = new InfoField();
 
+		// Timer: update info fields
+		updateTimer = new Timer(UPDATE_INTERVAL, event -> updateInfo());
+
 
 		//----  Button panel
 
@@ -225,6 +236,13 @@ class TaskProgressDialog
 				else
 					Task.setCancelled(true);
 			}
+
+			@Override
+			public void windowClosed(
+				WindowEvent	event)
+			{
+				updateTimer.stop();
+			}
 		});
 
 		// Prevent dialog from being resized
@@ -265,6 +283,20 @@ class TaskProgressDialog
 
 	//------------------------------------------------------------------
 
+	private static String byteRateToString(
+		double	rate)
+	{
+		int unitIndex = 0;
+		while ((rate >= 1024.0) && (unitIndex < BYTE_RATE_UNITS.length - 1))
+		{
+			rate /= 1024.0;
+			++unitIndex;
+		}
+		return String.format("%.1f %s", rate, BYTE_RATE_UNITS[unitIndex]);
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : ActionListener interface
 ////////////////////////////////////////////////////////////////////////
@@ -345,29 +377,53 @@ class TaskProgressDialog
 //  Instance methods
 ////////////////////////////////////////////////////////////////////////
 
-	public void setInfo(
-		File	file,
-		int		numFiles)
+	/**
+	 * Sets the progress of a search that will be displayed by this dialog.  The progress is sampled periodically on
+	 * the event-dispatching thread, so the search need not post an event for each file.  This method may be called on
+	 * any thread.
+	 *
+	 * @param progress
+	 *          the progress of the search.
+	 */
+
+	public void setSearchProgress(
+		SearchProgress	progress)
 	{
 		SwingUtilities.invokeLater(() ->
 		{
-			FontMetrics fontMetrics = infoField1.getFontMetrics(infoField1.getFont());
-			if (file == null)
-			{
-				infoField1.setText(AppConstants.CLIPBOARD_STR);
-				infoField2.setText(null);
-			}
-			else
-			{
-				infoField1.setText(TextUtils.getLimitedWidthPathname(Utils.getPathname(file), fontMetrics,
-																	 infoField1.getWidth(), File.separatorChar));
-				infoField2.setText("[ " + numFiles + " ]");
-			}
+			searchProgress = progress;
+			updateInfo();
+			updateTimer.start();
 		});
 	}
 
 	//------------------------------------------------------------------
 
+	private void updateInfo()
+	{
+		// Test for progress
+		if (searchProgress == null)
+			return;
+
+		// Update info fields from a sample of progress
+		SearchProgress.Sample sample = searchProgress.sample();
+		if (sample.clipboard())
+		{
+			infoField1.setText(AppConstants.CLIPBOARD_STR);
+			infoField2.setText(null);
+		}
+		else if (sample.file() != null)
+		{
+			FontMetrics fontMetrics = infoField1.getFontMetrics(infoField1.getFont());
+			infoField1.setText(TextUtils.getLimitedWidthPathname(Utils.getPathname(sample.file()), fontMetrics,
+																 infoField1.getWidth(), File.separatorChar));
+			infoField2.setText(String.format("[ %d ]    %.1f files/s    %s", sample.numFiles(), sample.getFileRate(),
+											 byteRateToString(sample.getByteRate())));
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	private void onClose()
 	{
 		cancelButton.setEnabled(false);
@@ -23,7 +23,6 @@ import java.io.File;
 import java.nio.charset.Charset;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 
@@ -114,20 +113,40 @@ class TextModel
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		public Content(StringBuffer  text,
+		public Content(CharSequence  text,
+					   Charset       charset,
 					   LineSeparator lineSeparator)
 		{
 			this.text = text;
+			this.charset = charset;
 			this.lineSeparator = lineSeparator;
 		}
 
 		//--------------------------------------------------------------
 
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns the text as a piece table that can be used by a text model, copying the text if necessary.
+		 */
+
+		public PieceTable getPieceTable()
+		{
+			if (!(text instanceof PieceTable))
+				text = new PieceTable(text);
+			return (PieceTable)text;
+		}
+
+		//--------------------------------------------------------------
+
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
 	////////////////////////////////////////////////////////////////////
 
-		StringBuffer	text;
+		CharSequence	text;
+		Charset			charset;
 		LineSeparator	lineSeparator;
 
 	}
@@ -138,19 +157,16 @@ class TextModel
 //  Constructors
 ////////////////////////////////////////////////////////////////////////
 
-	public TextModel(File         file,
-					 StringBuffer text,
-					 char         tabGlyphChar)
+	public TextModel(File       file,
+					 PieceTable text,
+					 char       tabGlyphChar)
 	{
 		// Initialise instance variables
 		this.file = file;
+		this.text = (text == null) ? new PieceTable("") : text;
 		this.tabGlyphChar = tabGlyphChar;
 		changeListeners = new ArrayList<>();
 
-		// Initialise the buffer and line offsets
-		buffer = (text == null) ? new StringBuffer() : text;
-		lineOffsets = getLineOffsets(0, buffer.length());
-
 		// Set the tab width according to the filename
 		tabWidth = -1;
 		if (file != null)
@@ -172,16 +188,25 @@ class TextModel
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
-	public static Content read(File file)
+	/**
+	 * Reads the specified file.  The text of the content is not copied to a {@link PieceTable}; its line separators
+	 * are LFs.  If {@code mapped} is {@code true}, the file is memory-mapped while it is read, so it should not be
+	 * written afterwards.  If {@code prefilter} is not {@code null} and it rejects the bytes of the file, the file is
+	 * not decoded and {@code null} is returned.
+	 */
+
+	public static Content read(File          file,
+							   boolean       mapped,
+							   BytePrefilter prefilter)
 		throws AppException
 	{
-		// Read the file
-		StringBuffer text = TextFile.readSync(file, getCharEncoding());
-
-		// Change line separators to LFs
-		EnumMap<LineSeparator, Integer> lineSeparatorCounts =
-									TextFile.changeLineSeparators(text, AppConfig.INSTANCE.
-																			isPreserveLineSeparator());
+		// Read the file and change line separators to LFs
+		FileText fileText = FileText.read(file, getCharEncoding(), mapped,
+										  AppConfig.INSTANCE.isPreserveLineSeparator(), prefilter);
+		if (fileText == null)
+			return null;
+		CharSequence text = fileText.getText();
+		EnumMap<LineSeparator, Integer> lineSeparatorCounts = fileText.getLineSeparatorCounts();
 
 		// Get the predominant kind of line separator
 		LineSeparator lineSeparator = LineSeparator.LF;
@@ -199,8 +224,8 @@ class TextModel
 			}
 		}
 
-		// Return the text and kind of line separator
-		return new Content(text, lineSeparator);
+		// Return the text, its character encoding and kind of line separator
+		return new Content(text, fileText.getCharset(), lineSeparator);
 	}
 
 	//------------------------------------------------------------------
@@ -213,17 +238,29 @@ class TextModel
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Writes the specified text to the specified file in the specified character encoding, which should be the
+	 * encoding that was detected when the file was read.
+	 */
+
+	public static void write(File          file,
+							 CharSequence  text,
+							 Charset       charset,
+							 LineSeparator lineSeparator)
+		throws AppException
+	{
+		TextFile.write(file, charset, text, lineSeparator, AppConfig.INSTANCE.getFileWritingMode());
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : TextArea.IModel interface
 ////////////////////////////////////////////////////////////////////////
 
 	public int getNumLines()
 	{
-		int length = buffer.length();
-		int numLines = lineOffsets.length;
-		if ((length == 0) || (buffer.charAt(length - 1) != '\n'))
-			--numLines;
-		return numLines;
+		return (text.length() == 0) ? 0 : text.getNumNewlines() + 1;
 	}
 
 	//------------------------------------------------------------------
@@ -231,8 +268,10 @@ class TextModel
 	public TextArea.Line[] getLines(int startIndex,
 									int endIndex)
 	{
-		int i0 = Math.min(Math.max(0, startIndex), lineOffsets.length - 1);
-		int i1 = Math.min(Math.max(0, endIndex), lineOffsets.length - 1);
+		int numNewlines = text.getNumNewlines();
+		int numLineOffsets = getNumLineOffsets();
+		int i0 = Math.min(Math.max(0, startIndex), numLineOffsets - 1);
+		int i1 = Math.min(Math.max(0, endIndex), numLineOffsets - 1);
 		TextArea.Line[] lines = new TextArea.Line[i1 - i0];
 		StringBuilder lineBuffer = new StringBuilder(1024);
 		String spaces = " ".repeat(tabWidth);
@@ -243,10 +282,10 @@ class TextModel
 			int selStartOffset = 0;
 			int selEndOffset = 0;
 			int outIndex = 0;
-			int offset = lineOffsets[i];
-			int endOffset = lineOffsets[i + 1] - 1;
-			if (buffer.charAt(endOffset) != '\n')
-				++endOffset;
+			int lineOffset = getLineOffset(i);
+			int offset = lineOffset;
+			boolean newline = (i < numNewlines);
+			int endOffset = newline ? text.getNewlineIndex(i) : text.length();
 
 			while (offset < endOffset)
 			{
@@ -254,7 +293,7 @@ class TextModel
 					selStartOffset = outIndex;
 				if (offset == selectionEnd)
 					selEndOffset = outIndex;
-				char ch = buffer.charAt(offset++);
+				char ch = text.charAt(offset++);
 				if (ch == '\t')
 				{
 					if (tabWidth == 0)
@@ -277,13 +316,13 @@ class TextModel
 			}
 
 			if ((selectionStart < selectionEnd) && (selectionStart <= endOffset) &&
-				 (selectionEnd > lineOffsets[i]))
+				 (selectionEnd > lineOffset))
 			{
 				if (selectionStart == endOffset)
 					selStartOffset = outIndex;
 				if (selEndOffset == 0)
 					selEndOffset = outIndex;
-				boolean eol = ((selectionEnd > endOffset) && (buffer.charAt(endOffset) == '\n'));
+				boolean eol = ((selectionEnd > endOffset) && newline);
 				lines[index] = new TextArea.Line(lineBuffer.toString(), selStartOffset, selEndOffset, eol);
 			}
 			else
@@ -298,7 +337,7 @@ class TextModel
 
 	public String getText()
 	{
-		return buffer.toString();
+		return text.toString();
 	}
 
 	//------------------------------------------------------------------
@@ -338,17 +377,13 @@ class TextModel
 	public Selection getSelection()
 	{
 		// Get the row and column of the start of the selection
-		int startRow = Arrays.binarySearch(lineOffsets, selectionStart);
-		if (startRow < 0)
-			startRow = -2 - startRow;
+		int startRow = getLineIndex(selectionStart);
 		TextArea.Line[] lines = getLines(startRow, startRow + 1);
 		int startColumn = (lines.length == 0) ? 0 : lines[0].highlightStartOffset;
 
 		// Get the row and column of the end of the selection
-		int endRow = Arrays.binarySearch(lineOffsets, selectionEnd);
-		if (endRow < 0)
-			endRow = -2 - endRow;
-		else
+		int endRow = getLineIndex(selectionEnd);
+		if (getLineOffset(endRow) == selectionEnd)
 			--endRow;
 		if (endRow != startRow)
 			lines = getLines(endRow, endRow + 1);
@@ -389,58 +424,20 @@ class TextModel
 		// Save the current state
 		if (replacementKind == ReplacementKind.REPLACE_SAVE_STATE)
 		{
-			oldText = buffer.substring(startIndex, endIndex);
+			oldText = text.subSequence(startIndex, endIndex).toString();
 			oldChanged = changed;
 		}
 
 		// Test whether the replacement is different from the matched text
-		if (replacement.equals(buffer.substring(startIndex, endIndex)))
+		if (replacement.contentEquals(text.subSequence(startIndex, endIndex)))
 			return;
 
-		// Replace the matched text
-		buffer.replace(startIndex, endIndex, replacement);
+		// Replace the matched text; the piece table updates its count of line separators
+		text.replace(startIndex, endIndex, replacement);
 
 		// Set the 'model has changed' flag
 		changed = (replacementKind == ReplacementKind.RESTORE) ? oldChanged : true;
 
-		// Get the index of the start line of the matched text
-		int startLineIndex = Arrays.binarySearch(lineOffsets, startIndex);
-		if (startLineIndex < 0)
-			startLineIndex = -2 - startLineIndex;
-
-		// If the start line is past the end of the buffer and the file doesn't end with a line separator,
-		// start at the previous line
-		if ((startLineIndex > 0) && (buffer.charAt(lineOffsets[startLineIndex] - 1) != '\n'))
-			--startLineIndex;
-
-		// Get the index of the end line of the matched text
-		int endLineIndex = Arrays.binarySearch(lineOffsets, endIndex);
-		if (endLineIndex < 0)
-			endLineIndex = -1 - endLineIndex;
-
-		// Get the line offsets of the replacement region
-		int[] offsets = getLineOffsets(lineOffsets[startLineIndex], startIndex + replacement.length());
-
-		// Fix up the offsets of the lines after the replacement
-		int deltaLength = replacement.length() - (endIndex - startIndex);
-		for (int i = endLineIndex; i < lineOffsets.length; i++)
-			lineOffsets[i] += deltaLength;
-
-		// Increment the index of the end line until the fixed-up offset of the end line is beyond the last
-		// line offset of the replacement region
-		int endOffset = offsets[offsets.length - 1];
-		while ((endLineIndex < lineOffsets.length) && (lineOffsets[endLineIndex] <= endOffset))
-			++endLineIndex;
-
-		// Update the line offsets by concatenating the old offsets before the replacement region, the
-		// offsets of the replacement region and the fixed-up offsets after the replacement region
-		int[] newLineOffsets = new int[startLineIndex + offsets.length + lineOffsets.length - endLineIndex];
-		System.arraycopy(lineOffsets, 0, newLineOffsets, 0, startLineIndex);
-		System.arraycopy(offsets, 0, newLineOffsets, startLineIndex, offsets.length);
-		System.arraycopy(lineOffsets, endLineIndex, newLineOffsets, startLineIndex + offsets.length,
-						 lineOffsets.length - endLineIndex);
-		lineOffsets = newLineOffsets;
-
 		// Select the replacement
 		selectionStart = startIndex;
 		selectionEnd = startIndex + replacement.length();
@@ -451,48 +448,38 @@ class TextModel
 
 	//------------------------------------------------------------------
 
-	public void write(LineSeparator lineSeparator)
-		throws AppException
+	/**
+	 * Replaces the text of this model with the specified piece table, which becomes the text of this model, and
+	 * selects the specified range of the new text.  This is used when all the remaining matches in the text have been
+	 * replaced in a single pass, so that the line separators are found once rather than once for each replacement.
+	 */
+
+	public void replaceText(PieceTable text,
+							int        selectionStart,
+							int        selectionEnd)
 	{
-		if (changed)
-		{
-			StringBuffer outBuffer = buffer;
-			switch (lineSeparator)
-			{
-				case CR:
-				{
-					int length = buffer.length();
-					outBuffer = new StringBuffer(length);
-					for (int i = 0; i < length; i++)
-					{
-						char ch = buffer.charAt(i);
-						if (ch == '\n')
-							ch = '\r';
-						outBuffer.append(ch);
-					}
-					break;
-				}
+		// Replace the text
+		this.text = text;
 
-				case LF:
-					// do nothing
-					break;
+		// Set the 'model has changed' flag
+		changed = true;
 
-				case CR_LF:
-				{
-					int length = buffer.length();
-					outBuffer = new StringBuffer(length + lineOffsets.length);
-					for (int i = 0; i < length; i++)
-					{
-						char ch = buffer.charAt(i);
-						if (ch == '\n')
-							outBuffer.append('\r');
-						outBuffer.append(ch);
-					}
-					break;
-				}
-			}
-			TextFile.write(file, getCharEncoding(), outBuffer, AppConfig.INSTANCE.getFileWritingMode());
-		}
+		// Select the last replacement
+		this.selectionStart = selectionStart;
+		this.selectionEnd = selectionEnd;
+
+		// Notify listeners of a change to the text model
+		fireStateChanged();
+	}
+
+	//------------------------------------------------------------------
+
+	public void write(Charset       charset,
+					  LineSeparator lineSeparator)
+		throws AppException
+	{
+		if (changed)
+			write(file, text, charset, lineSeparator);
 	}
 
 	//------------------------------------------------------------------
@@ -516,44 +503,53 @@ class TextModel
 
 	//------------------------------------------------------------------
 
-	private int[] getLineOffsets(int startOffset,
-								 int endOffset)
+	/**
+	 * Returns the number of line offsets, which is one more than the number of lines that contain at least one
+	 * character.  The last line offset is the length of the text.
+	 */
+
+	private int getNumLineOffsets()
 	{
-		final	int	NUM_BITS		= 8;
-		final	int	ARRAY_LENGTH	= 1 << NUM_BITS;
-		final	int	MASK			= ARRAY_LENGTH - 1;
-
-		List<int[]> offsetArrays = new ArrayList<>();
-		int[] offsets = null;
-		int numLines = 0;
-		int offset = startOffset;
-		while (offset < endOffset)
-		{
-			if ((numLines & MASK) == 0)
-			{
-				offsets = new int[ARRAY_LENGTH];
-				offsetArrays.add(offsets);
-			}
-			offsets[numLines & MASK] = offset;
-			++numLines;
-			offset = buffer.indexOf("\n", offset);
-			if (offset < 0)
-				offset = buffer.length();
-			else
-				++offset;
-		}
+		return getNumLinesInText() + 1;
+	}
 
-		offsets = new int[numLines + 1];
-		int offsetArrayIndex = 0;
-		int lineIndex = 0;
-		while (lineIndex < numLines)
-		{
-			int length = Math.min(numLines - lineIndex, ARRAY_LENGTH);
-			System.arraycopy(offsetArrays.get(offsetArrayIndex++), 0, offsets, lineIndex, length);
-			lineIndex += length;
-		}
-		offsets[numLines] = offset;
-		return offsets;
+	//------------------------------------------------------------------
+
+	private int getNumLinesInText()
+	{
+		int length = text.length();
+		if (length == 0)
+			return 0;
+		int numNewlines = text.getNumNewlines();
+		return (text.charAt(length - 1) == '\n') ? numNewlines : numNewlines + 1;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the offset of the start of the specified line, or the length of the text if the line is beyond the last
+	 * line that contains at least one character.
+	 */
+
+	private int getLineOffset(int index)
+	{
+		if (index <= 0)
+			return 0;
+		if (index <= text.getNumNewlines())
+			return text.getNewlineIndex(index - 1) + 1;
+		return text.length();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the line that contains the specified offset, which is the index of the last line offset that
+	 * is less than or equal to the offset.
+	 */
+
+	private int getLineIndex(int offset)
+	{
+		return (offset >= text.length()) ? getNumLinesInText() : text.getNumNewlinesBefore(offset);
 	}
 
 	//------------------------------------------------------------------
@@ -563,8 +559,7 @@ class TextModel
 ////////////////////////////////////////////////////////////////////////
 
 	private	File					file;
-	private	StringBuffer			buffer;
-	private	int[]					lineOffsets;
+	private	PieceTable				text;
 	private	int						tabWidth;
 	private	char					tabGlyphChar;
 	private	int						selectionStart;
@@ -19,16 +19,29 @@ package uk.blankaspect.regexsearch;
 
 
 import java.io.File;
-import java.io.FileFilter;
 
 import java.lang.reflect.InvocationTargetException;
 
+import java.nio.charset.Charset;
+
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import java.util.function.BooleanSupplier;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -41,12 +54,14 @@ import uk.blankaspect.common.collection.ArraySet;
 
 import uk.blankaspect.common.exception.AppException;
 import uk.blankaspect.common.exception.FileException;
+import uk.blankaspect.common.exception.TaskCancelledException;
 
-import uk.blankaspect.common.misc.DirectoryFilter;
 import uk.blankaspect.common.misc.FileAttributeUtils;
 import uk.blankaspect.common.misc.LineSeparator;
 import uk.blankaspect.common.misc.PathnameFilter;
 
+import uk.blankaspect.common.thread.DaemonFactory;
+
 //----------------------------------------------------------------------
 
 
@@ -82,8 +97,8 @@ class TextSearcher
 
 	private enum SearchState
 	{
-		ITERATE_DIRECTORIES,
 		ITERATE_FILES,
+		SEARCH_PARALLEL,
 		READ_FILE,
 		GET_TEXT,
 		INIT_SEARCH,
@@ -98,96 +113,115 @@ class TextSearcher
 		STOP
 	}
 
-	private enum ReplacementState
-	{
-		NEXT_CHAR,
-		ESCAPE,
-		GROUP_QUALIFIER,
-		GROUP_INDEX,
-		UNICODE_ESCAPE,
-		DONE
-	}
-
-	private static final	int		UNICODE_ESCAPE_LENGTH	= 4;
-
-	private static final	String	HEX_DIGITS	= "0123456789ABCDEF";
+	private static final	int		NUM_PENDING_FILES_PER_THREAD	= 4;
+	private static final	int		OUTCOME_POLL_INTERVAL			= 100;	// milliseconds
 
-	private static final	String	DANGLING_ESCAPE_STR			= "The replacement string has a dangling '%s'.";
-	private static final	String	ILLEGAL_ESCAPE_STR			= "\" is not a legal escape sequence.";
-	private static final	String	ILLEGAL_UNICODE_ESCAPE_STR	= "The Unicode escape is invalid.";
+	private static final	String	WORKER_THREAD_NAME	= "app-searchWorker";
 
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	String				replacementStr;
-	private	boolean				regex;
-	private	boolean				replaceGlobal;
-	private	boolean				replaceUnprompted;
-	private	int					numFiles;
-	private	int					numMatchedFiles;
-	private	int					numMatches;
-	private	int					numMatchesInFile;
-	private	int					numReplacements;
-	private	int					numReplacementsInFile;
-	private	Pattern				pattern;
-	private	Matcher				matcher;
-	private	FileFilter			exclusionFilter;
-	private	Deque<Directory>	directoryStack;
-	private	File				targetFile;
-	private	StringBuffer		text;
-	private	int					textIndex;
-	private	LineSeparator		lineSeparator;
-	private	SearchState			searchState;
-	private	StopSubstate		stopSubstate;
-	private	List<File>			targetNotFoundFiles;
-	private	List<File>			unprocessedFiles;
-	private	List<File>			attributesNotSetFiles;
+	private	String						replacementStr;
+	private	ReplacementTemplate			replacementTemplate;
+	private	boolean						regex;
+	private	boolean						clipboardSearch;
+	private	boolean						replaceGlobal;
+	private	boolean						replaceUnprompted;
+	private	boolean						listMatches;
+	private	int							numFiles;
+	private	int							numMatchedFiles;
+	private	int							numMatches;
+	private	int							numMatchesInFile;
+	private	int							numReplacements;
+	private	int							numReplacementsInFile;
+	private	int							numPrunedDirectories;
+	private	Pattern						pattern;
+	private	MatchRequirement			requirement;
+	private	BytePrefilter				prefilter;
+	private	long						streamingFileSize;
+	private	int							maxMatchSpan;
+	private	long						matchTimeLimit;
+	private	SearchProgress				progress;
+	private	Matcher						matcher;
+	private	InterruptibleCharSequence	guardedText;
+	private	PathnameFilter				exclusionFilter;
+	private	DirectoryWalker				directoryWalker;
+	private	FilePrefetcher				prefetcher;
+	private	FilePrefetcher.Entry		prefetchedFile;
+	private	Deque<FilePrefetcher.Entry>	readAheadFiles;
+	private	List<TrigramIndex>			trigramIndexes;
+	private	File						targetFile;
+	private	CharSequence				text;
+	private	int							textIndex;
+	private	Charset						charset;
+	private	LineSeparator				lineSeparator;
+	private	SearchState					searchState;
+	private	StopSubstate				stopSubstate;
+	private	List<File>					targetNotFoundFiles;
+	private	List<File>					unprocessedFiles;
+	private	List<File>					attributesNotSetFiles;
+	private	List<File>					timedOutFiles;
+	private	List<FileResult>			pendingResults;
+	private	IBatchHandler				batchHandler;
 
 ////////////////////////////////////////////////////////////////////////
 //  Enumerated types
 ////////////////////////////////////////////////////////////////////////
 
 
-	// ENUMERATION: TEXT CASE
+	// ENUMERATION: ERROR IDENTIFIERS
 
 
-	private enum Case
+	private enum ErrorId
+		implements AppException.IId
 	{
 
 	////////////////////////////////////////////////////////////////////
 	//  Constants
 	////////////////////////////////////////////////////////////////////
 
-		LOWER   ('L'),
-		UPPER   ('U');
+		NOT_ENOUGH_MEMORY_TO_REPLACE
+		("There was not enough memory to perform the replacement."),
+
+		NOT_ENOUGH_MEMORY_TO_CONVERT_LINE_SEPARATORS
+		("There was not enough memory to convert the line separators in the file."),
+
+		ERROR_DURING_REPLACEMENT
+		("An error occurred while performing a replacement."),
+
+		ERROR_DURING_SEARCH
+		("An error occurred while searching the file."),
+
+		MATCH_TIME_LIMIT_EXCEEDED
+		("The search of the file was abandoned because it exceeded the time limit for matching.");
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables
 	////////////////////////////////////////////////////////////////////
 
-		private	char	key;
+		private	String	message;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private Case(
-			char	key)
+		private ErrorId(
+			String	message)
 		{
-			this.key = key;
+			this.message = message;
 		}
 
 		//--------------------------------------------------------------
 
 	////////////////////////////////////////////////////////////////////
-	//  Class methods
+	//  Instance methods : AppException.IId interface
 	////////////////////////////////////////////////////////////////////
 
-		public static Case forKey(
-			char	key)
+		@Override
+		public String getMessage()
 		{
-			return Arrays.stream(values()).filter(value -> value.key == key).findFirst().orElse(null);
+			return message;
 		}
 
 		//--------------------------------------------------------------
@@ -196,60 +230,49 @@ class TextSearcher
 
 	//==================================================================
 
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
 
-	// ENUMERATION: ERROR IDENTIFIERS
-
-
-	private enum ErrorId
-		implements AppException.IId
-	{
-
-	////////////////////////////////////////////////////////////////////
-	//  Constants
-	////////////////////////////////////////////////////////////////////
-
-		FAILED_TO_LIST_DIRECTORY_ENTRIES
-		("Failed to get a list of directory entries."),
 
-		INVALID_REPLACEMENT_STRING
-		("The replacement string is invalid."),
+	// INTERFACE: HANDLER OF A BATCH SEARCH
 
-		NOT_ENOUGH_MEMORY_TO_REPLACE
-		("There was not enough memory to perform the replacement."),
 
-		NOT_ENOUGH_MEMORY_TO_CONVERT_LINE_SEPARATORS
-		("There was not enough memory to convert the line separators in the file."),
+	/**
+	 * This interface defines the methods that are called during a batch search, which is performed without a user
+	 * interface.
+	 */
 
-		ERROR_DURING_REPLACEMENT
-		("An error occurred while performing a replacement.");
+	public interface IBatchHandler
+	{
 
 	////////////////////////////////////////////////////////////////////
-	//  Instance variables
+	//  Methods
 	////////////////////////////////////////////////////////////////////
 
-		private	String	message;
-
-	////////////////////////////////////////////////////////////////////
-	//  Constructors
-	////////////////////////////////////////////////////////////////////
+		/**
+		 * Handles the result of searching a file that contains at least one match.  The results are passed to this
+		 * method in the order in which the files are found.
+		 *
+		 * @param result
+		 *          the result of searching the file.
+		 */
 
-		private ErrorId(
-			String	message)
-		{
-			this.message = message;
-		}
+		void fileSearched(
+			FileResult	result);
 
 		//--------------------------------------------------------------
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods : AppException.IId interface
-	////////////////////////////////////////////////////////////////////
+		/**
+		 * Handles an error that occurred during the search.
+		 *
+		 * @param  exception
+		 *           the exception that describes the error.
+		 * @return {@code true} if the search should continue; {@code false} if it should be abandoned.
+		 */
 
-		@Override
-		public String getMessage()
-		{
-			return message;
-		}
+		boolean handleError(
+			AppException	exception);
 
 		//--------------------------------------------------------------
 
@@ -266,9 +289,10 @@ class TextSearcher
 
 
 	public record FileResult(
-		File	file,
-		int		numMatches,
-		int		numReplacements)
+		File		file,
+		int			numMatches,
+		int			numReplacements,
+		MatchList	matches)
 	{ }
 
 	//==================================================================
@@ -281,7 +305,34 @@ class TextSearcher
 		int	numFiles,
 		int	numMatchedFiles,
 		int	numMatches,
-		int	numReplacements)
+		int	numReplacements,
+		int	numPrunedDirectories)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: OUTCOME OF SEARCHING A FILE ON A WORKER THREAD
+
+
+	private record FileOutcome(
+		File			file,
+		boolean			read,
+		int				numMatches,
+		int				numReplacements,
+		MatchList		matches,
+		AppException	exception)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: FILE THAT HAS BEEN SUBMITTED TO A WORKER THREAD
+
+
+	private record PendingFile(
+		File				file,
+		Future<FileOutcome>	outcome)
 	{ }
 
 	//==================================================================
@@ -309,6 +360,7 @@ class TextSearcher
 		boolean			regex;
 		boolean			ignoreCase;
 		boolean			recordTargetNotFound;
+		boolean			listMatches;
 
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
@@ -394,79 +446,21 @@ class TextSearcher
 	//==================================================================
 
 
-	// CLASS: DIRECTORY
+	// CLASS: EXCEPTION FOR A FILE WHOSE SEARCH EXCEEDED THE TIME LIMIT
 
 
-	private static class Directory
+	private static class TimedOutException
+		extends FileException
 	{
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
-
-		private	File[]			directories;
-		private	File[]			files;
-		private	PathnameFilter	filter;
-		private	int				directoryIndex;
-		private	int				fileIndex;
-
 	////////////////////////////////////////////////////////////////////
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private Directory(
-			File			file,
-			PathnameFilter	filter)
-		{
-			files = new File[1];
-			files[0] = file;
-			this.filter = filter;
-		}
-
-		//--------------------------------------------------------------
-
-		private Directory(
-			File[]			directories,
-			File[]			files,
-			PathnameFilter	filter)
-		{
-			this.directories = directories;
-			this.files = files;
-			this.filter = filter;
-		}
-
-		//--------------------------------------------------------------
-
-	////////////////////////////////////////////////////////////////////
-	//  Instance methods
-	////////////////////////////////////////////////////////////////////
-
-		public PathnameFilter getFilter()
-		{
-			return filter;
-		}
-
-		//--------------------------------------------------------------
-
-		public boolean isEmpty()
-		{
-			return (directories == null) && (files == null);
-		}
-
-		//--------------------------------------------------------------
-
-		public File getNextDirectory()
+		private TimedOutException(
+			File	file)
 		{
-			return ((directories == null) || (directoryIndex >= directories.length))
-					? null
-					: directories[directoryIndex++];
-		}
-
-		//--------------------------------------------------------------
-
-		public File getNextFile()
-		{
-			return ((files == null) || (fileIndex >= files.length)) ? null : files[fileIndex++];
+			super(ErrorId.MATCH_TIME_LIMIT_EXCEEDED, file);
 		}
 
 		//--------------------------------------------------------------
@@ -475,15 +469,19 @@ class TextSearcher
 
 	//==================================================================
 
+
+
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
 ////////////////////////////////////////////////////////////////////////
 
 	public TextSearcher()
 	{
-		directoryStack = new ArrayDeque<>();
 		unprocessedFiles = new ArraySet<>();
 		attributesNotSetFiles = new ArraySet<>();
+		timedOutFiles = new ArraySet<>();
+		pendingResults = new ArrayList<>();
+		readAheadFiles = new ArrayDeque<>();
 	}
 
 	//------------------------------------------------------------------
@@ -492,196 +490,6 @@ class TextSearcher
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
-	public static String createReplacementString(
-		String	expression,
-		Matcher	matcher,
-		boolean	regex)
-		throws AppException
-	{
-		StringBuilder buffer = new StringBuilder();
-		int index = 0;
-		int endIndex = expression.length();
-		char escapeChar = AppConfig.INSTANCE.getReplacementEscapeChar();
-		Case textCase = null;
-		char ch = 0;
-		ReplacementState state = ReplacementState.NEXT_CHAR;
-		while (state != ReplacementState.DONE)
-		{
-			switch (state)
-			{
-				case NEXT_CHAR:
-				{
-					if (index < endIndex)
-					{
-						ch = expression.charAt(index++);
-						if (ch == escapeChar)
-							state = ReplacementState.ESCAPE;
-						else
-							buffer.append(ch);
-					}
-					else
-						state = ReplacementState.DONE;
-					break;
-				}
-
-				case ESCAPE:
-				{
-					if (index >= endIndex)
-					{
-						String str = String.format(DANGLING_ESCAPE_STR, escapeChar);
-						throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING, str, index - 1);
-					}
-					textCase = null;
-					ch = expression.charAt(index);
-					if (regex && (ch >= '0') && (ch <= '9'))
-						state = ReplacementState.GROUP_INDEX;
-					else
-					{
-						if (ch == escapeChar)
-						{
-							buffer.append(escapeChar);
-							state = ReplacementState.NEXT_CHAR;
-						}
-						else
-						{
-							switch (ch)
-							{
-								case 'n':
-									buffer.append('\n');
-									state = ReplacementState.NEXT_CHAR;
-									break;
-
-								case 't':
-									buffer.append('\t');
-									state = ReplacementState.NEXT_CHAR;
-									break;
-
-								case 'u':
-									state = ReplacementState.UNICODE_ESCAPE;
-									break;
-
-								default:
-									textCase = Case.forKey(ch);
-									if (!regex || (textCase == null))
-									{
-										throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
-																  "\"" + escapeChar + ch + ILLEGAL_ESCAPE_STR,
-																  index - 1);
-									}
-									state = ReplacementState.GROUP_QUALIFIER;
-									break;
-							}
-						}
-						++index;
-					}
-					break;
-				}
-
-				case GROUP_QUALIFIER:
-				{
-					if (index >= endIndex)
-					{
-						throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
-												  "\"" + escapeChar + textCase.key + ILLEGAL_ESCAPE_STR, index - 2);
-					}
-					ch = expression.charAt(index);
-					if ((ch < '0') || (ch > '9'))
-					{
-						throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING,
-												  "\"" + escapeChar + textCase.key + ch + ILLEGAL_ESCAPE_STR,
-												  index - 2);
-					}
-					state = ReplacementState.GROUP_INDEX;
-					break;
-				}
-
-				case GROUP_INDEX:
-				{
-					if (matcher == null)
-					{
-						while (++index < endIndex)
-						{
-							ch = expression.charAt(index);
-							if ((ch < '0') || (ch > '9'))
-								break;
-						}
-					}
-					else
-					{
-						int value = ch - '0';
-						while (++index < endIndex)
-						{
-							ch = expression.charAt(index);
-							if ((ch < '0') || (ch > '9'))
-								break;
-							int newValue = value * 10 + ch - '0';
-							if (newValue > matcher.groupCount())
-								break;
-							value = newValue;
-						}
-						if (value <= matcher.groupCount())
-						{
-							String group = matcher.group(value);
-							if (group != null)
-							{
-								if (textCase == null)
-									buffer.append(group);
-								else
-								{
-									switch (textCase)
-									{
-										case LOWER:
-											buffer.append(group.toLowerCase());
-											break;
-
-										case UPPER:
-											buffer.append(group.toUpperCase());
-											break;
-									}
-								}
-							}
-						}
-					}
-					state = ReplacementState.NEXT_CHAR;
-					break;
-				}
-
-				case UNICODE_ESCAPE:
-				{
-					int startIndex = index - 2;
-					int value = 0;
-					for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++)
-					{
-						if (index >= endIndex)
-						{
-							throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING, ILLEGAL_UNICODE_ESCAPE_STR,
-													  startIndex);
-						}
-						ch = Character.toUpperCase(expression.charAt(index++));
-						int digitValue = HEX_DIGITS.indexOf(ch);
-						if (digitValue < 0)
-						{
-							throw new SyntaxException(ErrorId.INVALID_REPLACEMENT_STRING, ILLEGAL_UNICODE_ESCAPE_STR,
-													  startIndex);
-						}
-						value <<= 4;
-						value += digitValue;
-					}
-					buffer.append((char)value);
-					state = ReplacementState.NEXT_CHAR;
-					break;
-				}
-
-				case DONE:
-					// do nothing
-					break;
-			}
-		}
-		return buffer.toString();
-	}
-
-	//------------------------------------------------------------------
-
 	private static MainWindow getWindow()
 	{
 		return RegexSearchApp.INSTANCE.getMainWindow();
@@ -689,17 +497,6 @@ class TextSearcher
 
 	//------------------------------------------------------------------
 
-	private static boolean confirmContinue(
-		AppException	exception)
-	{
-		String[] optionStrs = Utils.getOptionStrings(AppConstants.CONTINUE_STR);
-		return (JOptionPane.showOptionDialog(getWindow(), exception, RegexSearchApp.SHORT_NAME,
-											 JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, optionStrs,
-											 optionStrs[1]) == JOptionPane.OK_OPTION);
-	}
-
-	//------------------------------------------------------------------
-
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods
 ////////////////////////////////////////////////////////////////////////
@@ -734,12 +531,22 @@ class TextSearcher
 
 	//------------------------------------------------------------------
 
+	public List<File> getTimedOutFiles()
+	{
+		return Collections.unmodifiableList(timedOutFiles);
+	}
+
+	//------------------------------------------------------------------
+
 	public AggregateResult getAggregateResult()
 	{
 		return new AggregateResult(
-			(targetFile == null) ? -1 : numFiles,
-			(targetFile == null) ? -1 : numMatchedFiles, numMatches,
-			(replacementStr == null) ? -1 : numReplacements
+			clipboardSearch ? -1 : numFiles,
+			clipboardSearch ? -1 : numMatchedFiles, numMatches,
+			(replacementStr == null) ? -1 : numReplacements,
+			clipboardSearch ? -1
+							: (directoryWalker == null) ? numPrunedDirectories
+														: directoryWalker.getNumPrunedDirectories()
 		);
 	}
 
@@ -752,22 +559,26 @@ class TextSearcher
 		// Initialise instance variables
 		replacementStr = params.replacementStr;
 		regex = params.regex;
+		clipboardSearch = (params.files == null);
 		replaceGlobal = false;
+		listMatches = params.listMatches && (replacementStr == null) && (params.files != null);
 		numFiles = 0;
 		numMatchedFiles = 0;
+		numPrunedDirectories = 0;
 		numMatches = 0;
 		numReplacements = 0;
 		targetNotFoundFiles = params.recordTargetNotFound ? new ArraySet<>() : null;
 		unprocessedFiles.clear();
 		attributesNotSetFiles.clear();
+		timedOutFiles.clear();
 
 		// Compile search pattern
+		int flags = regex ? Pattern.MULTILINE | Pattern.UNIX_LINES
+						  : Pattern.LITERAL;
+		if (params.ignoreCase)
+			flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
 		try
 		{
-			int flags = regex ? Pattern.MULTILINE | Pattern.UNIX_LINES
-							  : Pattern.LITERAL;
-			if (params.ignoreCase)
-				flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
 			pattern = Pattern.compile(params.targetStr, flags);
 		}
 		catch (PatternSyntaxException e)
@@ -776,6 +587,29 @@ class TextSearcher
 			e.printStackTrace();
 		}
 
+		// Compile replacement template
+		replacementTemplate = (replacementStr == null)
+									? null
+									: ReplacementTemplate.compile(replacementStr, regex,
+																  pattern.matcher("").groupCount());
+
+		// Extract the literals that every match must contain, and create a filter that skips files that don't contain
+		// them
+		requirement = MatchRequirement.create(params.targetStr, flags);
+		prefilter = requirement.isEmpty() ? null : BytePrefilter.create(requirement, TextModel.getCharEncoding());
+
+		// Set parameters of streaming find
+		streamingFileSize = (long)AppConfig.INSTANCE.getStreamingFileSize() << 20;
+		maxMatchSpan = AppConfig.INSTANCE.getMaxMatchSpan();
+
+		// Set the time for which the matcher may run on the text of a file
+		matchTimeLimit = TimeUnit.SECONDS.toNanos(AppConfig.INSTANCE.getMatchTimeLimit());
+
+		// Publish progress to any progress dialog, which samples it periodically
+		progress = new SearchProgress();
+		if (Task.getProgressView() instanceof TaskProgressDialog progressDialog)
+			progressDialog.setSearchProgress(progress);
+
 		// Initialise search
 		if (params.files == null)
 			searchState = SearchState.GET_TEXT;
@@ -788,6 +622,40 @@ class TextSearcher
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Searches the specified files without a user interface.  The files are searched on worker threads, and any
+	 * replacements are made without prompting.  The result of each file that contains a match and each error that
+	 * occurs are passed to the specified handler on the current thread.
+	 *
+	 * @param  params
+	 *           the parameters of the search; the list of files must not be {@code null}.
+	 * @param  handler
+	 *           the handler of the results and errors of the search.
+	 * @throws AppException
+	 *           if an error occurs when initialising the search.
+	 */
+
+	public void runBatchSearch(
+		Params			params,
+		IBatchHandler	handler)
+		throws AppException
+	{
+		if (params.files == null)
+			throw new IllegalArgumentException();
+
+		batchHandler = handler;
+		try
+		{
+			startSearch(params);
+		}
+		finally
+		{
+			batchHandler = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	public void resumeSearch(
 		Option	option)
 		throws AppException
@@ -890,27 +758,52 @@ class TextSearcher
 		}
 		exclusionFilter = new PathnameFilter.MultipleFilter(patterns, fsIgnoreCase, true);
 
-		// Initialise directory stack
-		directoryStack.clear();
-		for (int i = inclusionFilters.size() - 1; i >= 0; i--)
+		// Initialise directory walker
+		closeDirectoryWalker();
+		directoryWalker = new DirectoryWalker(exclusionFilter, AppConfig.INSTANCE.isHonourIgnoreFiles(),
+											  getNumThreads());
+		List<File> rootDirectories = new ArrayList<>();
+		for (PathnameFilter filter : inclusionFilters)
 		{
-			PathnameFilter filter = inclusionFilters.get(i);
 			String[] paths = filter.getPaths();
 			File file = new File(paths[0].isEmpty() ? "." : paths[0]);
 			if (paths[1].isEmpty() && !file.isDirectory())
-				directoryStack.addFirst(new Directory(file, filter));
+				directoryWalker.addFile(file, filter);
 			else
 			{
-				Directory directory = getDirectory(file, filter);
-				if (directory == null)
-					break;
-				directoryStack.addFirst(directory);
+				directoryWalker.addDirectory(file, filter);
+				rootDirectories.add(file);
+			}
+		}
+
+		// Read trigram indexes of root directories; an index is of no use if a match need not contain a literal
+		trigramIndexes = null;
+		File indexDirectory = AppConfig.INSTANCE.getIndexDirectory();
+		if (AppConfig.INSTANCE.isIndexFiles() && (indexDirectory != null) && !requirement.isEmpty())
+		{
+			trigramIndexes = new ArrayList<>();
+			Set<String> rootPathnames = new HashSet<>();
+			for (File directory : rootDirectories)
+			{
+				if (rootPathnames.add(directory.getAbsolutePath()))
+				{
+					TrigramIndex index = TrigramIndex.read(indexDirectory, directory, TextModel.getCharEncoding());
+					index.setRequirement(requirement);
+					trigramIndexes.add(index);
+				}
 			}
 		}
 
+		// Read the files of a prompted search ahead of the search
+		long readAheadSize = (long)AppConfig.INSTANCE.getReadAheadSize() << 20;
+		if ((batchHandler == null) && !listMatches && (readAheadSize > 0))
+		{
+			prefetcher = new FilePrefetcher(directoryWalker, this::readAhead, this::isStreamed, readAheadSize);
+			prefetcher.start();
+		}
+
 		// Perform search
-		searchState = (directoryStack.size() == inclusionFilters.size()) ? SearchState.ITERATE_DIRECTORIES
-																		 : SearchState.DONE;
+		searchState = SearchState.ITERATE_FILES;
 	}
 
 	//------------------------------------------------------------------
@@ -928,60 +821,88 @@ class TextSearcher
 			// Perform state actions
 			switch (searchState)
 			{
-				case ITERATE_DIRECTORIES:
+				case ITERATE_FILES:
 				{
-					if (directoryStack.isEmpty())
-						searchState = SearchState.DONE;
-					else
+					// If the user will not be prompted, search the remaining files on worker threads
+					if ((batchHandler != null) || listMatches || (replaceGlobal && (targetFile != null)))
 					{
-						Directory directory = directoryStack.peekFirst();
-						File dir = directory.getNextDirectory();
-						if (dir == null)
-							searchState = SearchState.ITERATE_FILES;
-						else
-						{
-							directory = getDirectory(dir, directory.getFilter());
-							if (directory == null)
-								searchState = SearchState.DONE;
-							else
-							{
-								if (!directory.isEmpty())
-									directoryStack.addFirst(directory);
-							}
-						}
+						searchState = SearchState.SEARCH_PARALLEL;
+						break;
 					}
-					break;
-				}
 
-				case ITERATE_FILES:
-				{
-					Directory directory = directoryStack.peekFirst();
-					File file = directory.getNextFile();
-					if (file == null)
+					File file = null;
+					try
 					{
-						directoryStack.removeFirst();
-						searchState = SearchState.ITERATE_DIRECTORIES;
+						file = getNextTargetFile();
 					}
-					else
+					catch (TaskCancelledException e)
 					{
-						targetFile = file;
-						searchState = SearchState.READ_FILE;
+						// ignore
 					}
+					if (file == null)
+						searchState = SearchState.DONE;
+					else
+					{
+						targetFile = file;
+						searchState = SearchState.READ_FILE;
+					}
+					break;
+				}
+
+				case SEARCH_PARALLEL:
+				{
+					// Search the files that were read ahead before the remaining files of the walk
+					if (prefetcher != null)
+					{
+						readAheadFiles.addAll(prefetcher.close());
+						prefetcher = null;
+					}
+					searchParallel();
+					searchState = SearchState.DONE;
 					break;
 				}
 
 				case READ_FILE:
 				{
-					if (Task.getProgressView() instanceof TaskProgressDialog progressDialog)
-						progressDialog.setInfo(targetFile, numFiles + 1);
+					// Read again a file that has changed since it was read ahead
+					FilePrefetcher.Entry entry = prefetchedFile;
+					prefetchedFile = null;
+					if ((entry != null) && !entry.isCurrent())
+						entry = null;
+					long fileLength = (entry == null) ? targetFile.length() : entry.length();
+					progress.fileStarted(targetFile, fileLength);
+
+					// Count the matches in a large file without reading the whole file into memory
+					if (isStreamed(fileLength))
+					{
+						FileOutcome outcome = streamFile(targetFile, Task::isCancelled);
+						searchState = ((outcome != null) && reportOutcome(outcome, true)) ? SearchState.ITERATE_FILES
+																						  : SearchState.DONE;
+						break;
+					}
 
 					try
 					{
-						TextModel.Content textModelContent = TextModel.read(targetFile);
-						text = textModelContent.text;
-						lineSeparator = textModelContent.lineSeparator;
+						TextModel.Content textModelContent = (entry == null) ? readFile(targetFile)
+																			 : entry.getContent();
 						++numFiles;
-						searchState = SearchState.INIT_SEARCH;
+
+						// If the file cannot contain a match, skip it ...
+						if (textModelContent == null)
+						{
+							if (targetNotFoundFiles != null)
+								targetNotFoundFiles.add(targetFile);
+							searchState = SearchState.ITERATE_FILES;
+						}
+
+						// ... otherwise, search it
+						else
+						{
+							text = textModelContent.text;
+							charset = textModelContent.charset;
+							lineSeparator = textModelContent.lineSeparator;
+							searchState = SearchState.INIT_SEARCH;
+						}
 					}
 					catch (AppException e)
 					{
@@ -993,11 +914,11 @@ class TextSearcher
 
 				case GET_TEXT:
 				{
-					if (Task.getProgressView() instanceof TaskProgressDialog progressDialog)
-						progressDialog.setInfo(null, 0);
+					progress.clipboardStarted();
 
 					targetFile = null;
-					text = new StringBuffer(Utils.getClipboardText());
+					text = Utils.getClipboardText();
+					charset = null;
 					lineSeparator = LineSeparator.LF;
 					++numFiles;
 					searchState = SearchState.INIT_SEARCH;
@@ -1010,15 +931,55 @@ class TextSearcher
 					replaceUnprompted = replaceGlobal;
 					numMatchesInFile = 0;
 					numReplacementsInFile = 0;
-					matcher = pattern.matcher(text);
+					guardedText = new InterruptibleCharSequence(text, matchTimeLimit, Task::isCancelled);
+					matcher = pattern.matcher(guardedText);
 
-					searchState = SearchState.SEARCH;
+					// If the text doesn't contain the required literals, don't search it
+					searchState = requirement.mayMatch(text)
+										? SearchState.SEARCH
+										: (targetFile == null) ? SearchState.DONE : SearchState.WRITE_FILE;
 					break;
 				}
 
 				case SEARCH:
 				{
-					if ((textIndex < 0) ? matcher.find() : matcher.find(textIndex))
+					// Find next match; the time for which the matcher runs is charged to the file, and the search of
+					// the file is abandoned if the total exceeds the time limit
+					boolean found = false;
+					guardedText.resumeTimer();
+					try
+					{
+						found = (textIndex < 0) ? matcher.find() : matcher.find(textIndex);
+
+						// Copy text to a piece table that is shared with the text model, and find the match again
+						if (found && !(text instanceof PieceTable))
+						{
+							int startIndex = matcher.start();
+							text = new PieceTable(text);
+							guardedText.setText(text);
+							matcher.reset(guardedText);
+							matcher.find(startIndex);
+						}
+					}
+					catch (InterruptibleCharSequence.TimeLimitExceededException e)
+					{
+						addTimedOut(targetFile);
+						searchState = (numMatchesInFile == 0)
+											? (targetFile == null) ? SearchState.DONE : SearchState.ITERATE_FILES
+											: getEndOfTextState();
+						break;
+					}
+					catch (InterruptibleCharSequence.CancelledException e)
+					{
+						searchState = SearchState.DONE;
+						break;
+					}
+					finally
+					{
+						guardedText.suspendTimer();
+					}
+
+					if (found)
 					{
 						// Invalidate text index
 						textIndex = -1;
@@ -1027,8 +988,10 @@ class TextSearcher
 						if (numMatchesInFile == 0)
 						{
 							++numMatchedFiles;
+
+							PieceTable pieceTable = (PieceTable)text;
 							SwingUtilities.invokeLater(() ->
-									getWindow().initTextModel(targetFile, text, !replaceGlobal));
+									getWindow().initTextModel(targetFile, pieceTable, !replaceGlobal));
 						}
 
 						// Increment number of matches
@@ -1052,19 +1015,21 @@ class TextSearcher
 						}
 					}
 					else
-						searchState = (targetFile == null)
-													? (numMatchesInFile == 0)
-															? SearchState.DONE
-															: SearchState.PUT_TEXT
-													: SearchState.WRITE_FILE;
+						searchState = getEndOfTextState();
 					break;
 				}
 
 				case REPLACE:
 				{
-					if ((replacementStr != null) && !replace(TextModel.ReplacementKind.REPLACE))
+					// If prompting is disabled for this file, replace the remaining matches in a single pass ...
+					if ((replacementStr != null) && replaceUnprompted)
+						searchState = replaceAll() ? getEndOfTextState() : SearchState.DONE;
+
+					// ... otherwise, replace the current match
+					else if ((replacementStr != null) && !replace(TextModel.ReplacementKind.REPLACE))
 						searchState = SearchState.DONE;
-					searchState = SearchState.SEARCH;
+					else
+						searchState = SearchState.SEARCH;
 					break;
 				}
 
@@ -1101,7 +1066,7 @@ class TextSearcher
 							{
 								try
 								{
-									getWindow().getTextModel().write(lineSeparator);
+									getWindow().getTextModel().write(charset, lineSeparator);
 									numReplacements += numReplacementsInFile;
 								}
 								catch (OutOfMemoryError e)
@@ -1125,7 +1090,7 @@ class TextSearcher
 						}
 
 						FileResult result = getFileResult();
-						SwingUtilities.invokeLater(() -> getWindow().appendResult(result));
+						appendResult(result);
 					}
 					if (searchState != SearchState.DONE)
 						searchState = SearchState.ITERATE_FILES;
@@ -1148,7 +1113,7 @@ class TextSearcher
 					if (targetFile != null)
 					{
 						FileResult result = getFileResult();
-						SwingUtilities.invokeLater(() -> getWindow().appendResult(result));
+						appendResult(result);
 					}
 					searchState = SearchState.DONE;
 					break;
@@ -1156,6 +1121,8 @@ class TextSearcher
 
 				case DONE:
 				{
+					closeDirectoryWalker();
+					writeTrigramIndexes();
 					stopSubstate = StopSubstate.DONE;
 					searchState = SearchState.STOP;
 					break;
@@ -1170,64 +1137,607 @@ class TextSearcher
 
 	//------------------------------------------------------------------
 
-	private Directory getDirectory(
+	/**
+	 * Returns the state that follows the search of the text when there are no more matches.
+	 */
+
+	private SearchState getEndOfTextState()
+	{
+		return (targetFile == null) ? (numMatchesInFile == 0) ? SearchState.DONE : SearchState.PUT_TEXT
+									: SearchState.WRITE_FILE;
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean confirmContinue(
+		AppException	exception)
+	{
+		if (batchHandler != null)
+			return batchHandler.handleError(exception);
+
+		String[] optionStrs = Utils.getOptionStrings(AppConstants.CONTINUE_STR);
+		return (JOptionPane.showOptionDialog(getWindow(), exception, RegexSearchApp.SHORT_NAME,
+											 JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, optionStrs,
+											 optionStrs[1]) == JOptionPane.OK_OPTION);
+	}
+
+	//------------------------------------------------------------------
+
+	private boolean handleListingError(
 		File			directory,
-		PathnameFilter	filter)
+		AppException	exception)
+	{
+		addUnprocessed(directory);
+		return confirmContinue(exception);
+	}
+
+	//------------------------------------------------------------------
+
+	private void appendResult(
+		FileResult	result)
 	{
-		// Get relative length of filter
-		int filterRelativeLength = 0;
+		if (batchHandler == null)
+		{
+			// Add result to pending results; if there were none, post an event to append them to the result list
+			boolean post = false;
+			synchronized (pendingResults)
+			{
+				post = pendingResults.isEmpty();
+				pendingResults.add(result);
+			}
+			if (post)
+				SwingUtilities.invokeLater(this::appendPendingResults);
+		}
+		else
+			batchHandler.fileSearched(result);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Appends the results that are pending to the result list of the main window in a single batch.  This method is
+	 * called on the event-dispatching thread.
+	 */
+
+	private void appendPendingResults()
+	{
+		List<FileResult> results = null;
+		synchronized (pendingResults)
+		{
+			results = new ArrayList<>(pendingResults);
+			pendingResults.clear();
+		}
+		if (!results.isEmpty())
+			getWindow().appendResults(results);
+	}
+
+	//------------------------------------------------------------------
+
+	private void closeDirectoryWalker()
+	{
+		// Stop reading ahead before the walker from which files are read is closed
+		if (prefetcher != null)
+		{
+			prefetcher.close();
+			prefetcher = null;
+		}
+		prefetchedFile = null;
+		readAheadFiles.clear();
+
+		if (directoryWalker != null)
+		{
+			numPrunedDirectories = directoryWalker.getNumPrunedDirectories();
+			directoryWalker.close();
+			directoryWalker = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the trigram index whose root directory is the nearest ancestor of the specified file.
+	 *
+	 * @return the trigram index of {@code file}, or {@code null} if there is none.
+	 */
+
+	private TrigramIndex getTrigramIndex(
+		File	file)
+	{
+		TrigramIndex trigramIndex = null;
+		if (trigramIndexes != null)
+		{
+			for (TrigramIndex index : trigramIndexes)
+			{
+				if (index.contains(file) && ((trigramIndex == null)
+						|| (trigramIndex.getRootPathnameLength() < index.getRootPathnameLength())))
+					trigramIndex = index;
+			}
+		}
+		return trigramIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeTrigramIndexes()
+	{
+		if (trigramIndexes != null)
+		{
+			for (TrigramIndex index : trigramIndexes)
+			{
+				try
+				{
+					index.write();
+				}
+				catch (AppException e)
+				{
+					if (batchHandler == null)
+						RegexSearchApp.INSTANCE.showWarningMessage(RegexSearchApp.SHORT_NAME, e);
+					else
+						batchHandler.handleError(e);
+					break;
+				}
+			}
+			trigramIndexes = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of threads on which files are listed and searched.
+	 */
+
+	private static int getNumThreads()
+	{
+		int numThreads = AppConfig.INSTANCE.getNumSearchThreads();
+		return (numThreads <= 0) ? Runtime.getRuntime().availableProcessors() : numThreads;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the next file of the directory walk.  If files are being read ahead of the search, the file is taken from
+	 * the prefetcher, and it is also held as the prefetched file; otherwise, files that were read ahead before the
+	 * prefetcher was closed are taken before the remaining files of the walk.
+	 *
+	 * @return the next file of the directory walk, or {@code null} if there are no more files.
+	 * @throws TaskCancelledException
+	 *           if the user chose not to continue after an error in listing a directory, or the task was cancelled.
+	 */
+
+	private File getNextTargetFile()
+		throws TaskCancelledException
+	{
+		// Take the next file that was read ahead ...
+		FilePrefetcher.Entry entry = (prefetcher == null) ? readAheadFiles.pollFirst() : prefetcher.next();
+		if ((entry == null) && (prefetcher != null))
+			throw new TaskCancelledException();
+		if (entry != null)
+		{
+			for (FilePrefetcher.ListingError error : entry.listingErrors())
+			{
+				if (!handleListingError(error.directory(), error.exception()))
+					throw new TaskCancelledException();
+			}
+			if (prefetcher != null)
+				prefetchedFile = entry;
+			return entry.file();
+		}
+
+		// ... or the next file of the walk
+		File file = directoryWalker.getNextFile(this::handleListingError);
+		if ((file == null) && directoryWalker.isAborted())
+			throw new TaskCancelledException();
+		return file;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Searches the remaining files of the directory walk on a bounded pool of worker threads.  The outcomes are
+	 * reported on the current thread in the order in which the files were submitted, which is the order of the serial
+	 * search.
+	 * <p>
+	 * When the search is stopped, because the task is cancelled or the user chooses not to continue after an error, no
+	 * more files are submitted, and the workers abandon the files that they have not yet written.  The outcome of every
+	 * file that has been submitted is still reported, so that a file that a worker has already written is not omitted
+	 * from the results.
+	 * </p>
+	 */
+
+	private void searchParallel()
+	{
+		// Create pool of worker threads
+		int numThreads = getNumThreads();
+		ExecutorService executor =
+				Executors.newFixedThreadPool(numThreads,
+											 runnable -> DaemonFactory.create(WORKER_THREAD_NAME, runnable));
+
+		// Pass the cancellation token of the task, together with a flag that stops the search after an error, to the
+		// worker threads
+		Task.CancellationToken cancellationToken = Task.getCancellationToken();
+		AtomicBoolean stopFlag = new AtomicBoolean();
+		BooleanSupplier stopRequested = () -> stopFlag.get() || cancellationToken.isCancelled();
+
+		// Submit files to worker threads and report their outcomes
+		Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+		int maxNumPendingFiles = numThreads * NUM_PENDING_FILES_PER_THREAD;
+		boolean moreFiles = true;
+		boolean stopped = false;
 		try
 		{
-			filterRelativeLength = filter.getRelativeLength(directory);
+			while (true)
+			{
+				// Stop the search if the task has been cancelled
+				if (!stopped && cancellationToken.isCancelled())
+					stopped = true;
+
+				// Submit files to worker threads until the limit of pending files is reached
+				while (moreFiles && !stopped && (pendingFiles.size() < maxNumPendingFiles))
+				{
+					try
+					{
+						File file = getNextTargetFile();
+						if (file == null)
+							moreFiles = false;
+						else
+						{
+							Future<FileOutcome> outcome = executor.submit(() -> searchFile(file, stopRequested));
+							pendingFiles.addLast(new PendingFile(file, outcome));
+						}
+					}
+					catch (TaskCancelledException e)
+					{
+						stopped = true;
+					}
+				}
+
+				// Finish when the outcomes of all files have been reported
+				if (pendingFiles.isEmpty())
+					break;
+
+				// Wait for the earliest pending file
+				PendingFile pendingFile = pendingFiles.peekFirst();
+				FileOutcome outcome = null;
+				try
+				{
+					outcome = pendingFile.outcome().get(OUTCOME_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				}
+				catch (TimeoutException e)
+				{
+					continue;
+				}
+				catch (InterruptedException e)
+				{
+					// Stop the workers and restore the interrupt for the caller
+					stopFlag.set(true);
+					Thread.currentThread().interrupt();
+					break;
+				}
+				catch (ExecutionException e)
+				{
+					outcome = new FileOutcome(pendingFile.file(), false, 0, 0, null,
+											  new FileException(ErrorId.ERROR_DURING_SEARCH, pendingFile.file(),
+																e.getCause()));
+				}
+				pendingFiles.removeFirst();
+
+				// Report outcome of file; stop the search if the user chooses not to continue after an error
+				if ((outcome != null) && !reportOutcome(outcome, !stopped))
+				{
+					stopFlag.set(true);
+					stopped = true;
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the specified file, counts the matches of the target in it and, if there is a replacement string,
+	 * replaces all matches and writes the file.  If matches are being listed, the matches are added to a list as they
+	 * are found; no text model is created for the file.  This method is called on a worker thread; it does not modify
+	 * the state of this searcher.
+	 */
+
+	private FileOutcome searchFile(
+		File			file,
+		BooleanSupplier	stopRequested)
+	{
+		// Don't search file if the search has been stopped
+		if (stopRequested.getAsBoolean())
+			return null;
+
+		// Publish progress
+		long fileLength = file.length();
+		progress.fileStarted(file, fileLength);
+
+		// Count the matches in a large file without reading the whole file into memory
+		if (isStreamed(fileLength))
+			return streamFile(file, stopRequested);
+
+		// Read file
+		TextModel.Content content = null;
+		try
+		{
+			content = readFile(file);
 		}
 		catch (AppException e)
 		{
-			addUnprocessed(directory);
-			if (!confirmContinue(e))
-				return null;
+			return new FileOutcome(file, false, 0, 0, null, e);
 		}
 
-		// Get files
-		File[] files = null;
-		if (filter.containsPathWildcards() || (filterRelativeLength >= 1))
+		// Skip file if it cannot contain a match
+		if ((content == null) || !requirement.mayMatch(content.text))
+			return new FileOutcome(file, true, 0, 0, null, null);
+
+		// Find matches and perform replacements; the matcher is interrupted if it exceeds the time limit or the task is
+		// cancelled
+		CharSequence text = content.text;
+		InterruptibleCharSequence guardedText =
+				new InterruptibleCharSequence(text, matchTimeLimit, stopRequested);
+		Matcher matcher = pattern.matcher(guardedText);
+		MatchList matches = listMatches ? new MatchList() : null;
+		int numMatches = 0;
+		int numReplacements = 0;
+		guardedText.resumeTimer();
+		try
 		{
 			try
 			{
-				files = directory.listFiles(file -> file.isFile() && filter.accept(file)
-													&& ((exclusionFilter == null) || !exclusionFilter.accept(file)));
-				if (files == null)
-					throw new FileException(ErrorId.FAILED_TO_LIST_DIRECTORY_ENTRIES, directory);
-				Arrays.sort(files);
+				StringBuilder outBuffer = null;
+				boolean changed = false;
+				int index = 0;
+				while (matcher.find())
+				{
+					++numMatches;
+					if (matches != null)
+						matches.add(text, matcher.start(), matcher.end());
+					if (replacementStr != null)
+					{
+						if (outBuffer == null)
+							outBuffer = new StringBuilder(text.length());
+						outBuffer.append(text, index, matcher.start());
+						int replacementStart = outBuffer.length();
+						replacementTemplate.append(matcher, text, outBuffer);
+						if (!changed)
+							changed = !regionEquals(text, matcher.start(), matcher.end(), outBuffer, replacementStart);
+						index = matcher.end();
+						++numReplacements;
+					}
+				}
+
+				// Release the unused capacity of the list of matches
+				if (matches != null)
+					matches.trimToSize();
+
+				// Write file
+				if (changed)
+				{
+					outBuffer.append(text, index, text.length());
+					TextModel.write(file, outBuffer, content.charset, content.lineSeparator);
+				}
 			}
-			catch (AppException e)
+			catch (OutOfMemoryError e)
 			{
-				addUnprocessed(directory);
-				if (!confirmContinue(e))
-					return null;
+				throw new FileException(ErrorId.NOT_ENOUGH_MEMORY_TO_REPLACE, file);
 			}
 		}
+		catch (InterruptibleCharSequence.TimeLimitExceededException e)
+		{
+			return new FileOutcome(file, true, 0, 0, null, new TimedOutException(file));
+		}
+		catch (InterruptibleCharSequence.CancelledException e)
+		{
+			return null;
+		}
+		catch (AppException e)
+		{
+			return new FileOutcome(file, true, numMatches, numReplacements, matches, e);
+		}
+		return new FileOutcome(file, true, numMatches, numReplacements, matches, null);
+	}
+
+	//------------------------------------------------------------------
 
-		// Get subdirectories
-		File[] directories = null;
-		if (filter.containsPathWildcards() || (filterRelativeLength >= 2))
+	/**
+	 * Reads the specified file for the current search.  If the file is up to date in its trigram index, the index
+	 * decides whether the file is read; otherwise, the whole file is read without a prefilter so that it can be
+	 * indexed.
+	 *
+	 * @return the content of {@code file}, or {@code null} if the file cannot contain a match.
+	 */
+
+	private TextModel.Content readFile(
+		File	file)
+		throws AppException
+	{
+		// Read the file with the prefilter if it has no index
+		TrigramIndex index = getTrigramIndex(file);
+		if (index == null)
+			return TextModel.read(file, replacementStr == null, prefilter);
+
+		// Don't read an indexed file that cannot contain a match
+		TrigramIndex.Stamp stamp = TrigramIndex.Stamp.of(file);
+		if (index.isIndexed(file, stamp))
+			return index.mayMatch(file) ? TextModel.read(file, replacementStr == null, prefilter) : null;
+
+		// Read and index a file that is not up to date in its index
+		TextModel.Content content = TextModel.read(file, replacementStr == null, null);
+		index.update(file, stamp, content.text);
+		return content;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Reads the specified file ahead of a prompted search and scans it for a match.  This method is called on the
+	 * thread of the prefetcher.  If the scan exceeds the time limit or the prefetcher is stopped, the content of the
+	 * file is kept, so that the search decides the outcome for the file.
+	 *
+	 * @return the content of {@code file}, or {@code null} if the file contains no match.
+	 */
+
+	private TextModel.Content readAhead(
+		File			file,
+		BooleanSupplier	stopped)
+		throws AppException
+	{
+		// Read file
+		TextModel.Content content = readFile(file);
+		if ((content == null) || !requirement.mayMatch(content.text))
+			return null;
+
+		// Scan file for a match
+		InterruptibleCharSequence guardedText = new InterruptibleCharSequence(content.text, matchTimeLimit, stopped);
+		guardedText.resumeTimer();
+		try
 		{
-			try
+			return pattern.matcher(guardedText).find() ? content : null;
+		}
+		catch (InterruptibleCharSequence.TimeLimitExceededException | InterruptibleCharSequence.CancelledException e)
+		{
+			return content;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if a file of the specified length is too large to be read into memory for the current
+	 * search, and its matches will be counted by a {@link StreamingMatcher}.  Only a find is streamed.
+	 */
+
+	private boolean isStreamed(
+		long	fileLength)
+	{
+		return (replacementStr == null) && (fileLength >= streamingFileSize);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Counts the matches in the specified file with a {@link StreamingMatcher}, and lists them if matches are being
+	 * listed.  The time limit for matching applies to each window of the file.
+	 *
+	 * @param  file
+	 *           the file that will be searched.
+	 * @param  stopRequested
+	 *           the test of whether the search has been stopped, which is applied on the calling thread.
+	 * @return the outcome of searching the file, or {@code null} if the search was stopped.
+	 */
+
+	private FileOutcome streamFile(
+		File			file,
+		BooleanSupplier	stopRequested)
+	{
+		try
+		{
+			MatchList matches = listMatches ? new MatchList() : null;
+			StreamingMatcher streamingMatcher = new StreamingMatcher(pattern, TextModel.getCharEncoding(),
+																	 maxMatchSpan, matchTimeLimit, stopRequested);
+			int numMatches = streamingMatcher.countMatches(file, matches);
+			if (matches != null)
+				matches.trimToSize();
+			return new FileOutcome(file, true, numMatches, 0, matches, null);
+		}
+		catch (TaskCancelledException e)
+		{
+			return null;
+		}
+		catch (InterruptibleCharSequence.TimeLimitExceededException e)
+		{
+			return new FileOutcome(file, true, 0, 0, null, new TimedOutException(file));
+		}
+		catch (AppException e)
+		{
+			return new FileOutcome(file, false, 0, 0, null, e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Updates the state of this searcher with the outcome of searching a file on a worker thread or with a streaming
+	 * matcher.
+	 *
+	 * @return {@code true} if the search should continue.
+	 */
+
+	private boolean reportOutcome(
+		FileOutcome	outcome,
+		boolean		prompt)
+	{
+		File file = outcome.file();
+
+		// Update counts
+		if (outcome.read())
+		{
+			++numFiles;
+			if (outcome.numMatches() == 0)
 			{
-				directories = directory.listFiles(DirectoryFilter.INSTANCE);
-				if (directories == null)
-					throw new FileException(ErrorId.FAILED_TO_LIST_DIRECTORY_ENTRIES, directory);
-				Arrays.sort(directories);
+				if ((targetNotFoundFiles != null) && !(outcome.exception() instanceof TimedOutException))
+					targetNotFoundFiles.add(file);
 			}
-			catch (AppException e)
+			else
 			{
-				addUnprocessed(directory);
-				if (!confirmContinue(e))
-					return null;
+				++numMatchedFiles;
+				numMatches += outcome.numMatches();
 			}
 		}
 
-		// Return directory object
-		return new Directory(directories, files, filter);
+		// Update lists of files that were not processed
+		AppException exception = outcome.exception();
+		if (exception instanceof FileAttributeUtils.AttributesException)
+			attributesNotSetFiles.add(file);
+		else if (exception instanceof TimedOutException)
+			addTimedOut(file);
+		else if (exception != null)
+			addUnprocessed(file);
+		if ((exception == null) || (exception instanceof FileAttributeUtils.AttributesException))
+			numReplacements += outcome.numReplacements();
+
+		// Add result for file
+		if (outcome.numMatches() > 0)
+		{
+			FileResult result = new FileResult(file, outcome.numMatches(),
+											   (replacementStr == null) ? -1 : outcome.numReplacements(),
+											   outcome.matches());
+			appendResult(result);
+		}
+
+		// Ask the user whether to continue after an error; a file that timed out does not interrupt the search
+		return (exception == null) || (exception instanceof TimedOutException) || !prompt
+				|| confirmContinue(exception);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified range of the specified text is equal to the tail of the specified buffer
+	 * that starts at the specified index.
+	 */
+
+	private static boolean regionEquals(
+		CharSequence	text,
+		int				startIndex,
+		int				endIndex,
+		StringBuilder	buffer,
+		int				bufferIndex)
+	{
+		if (endIndex - startIndex != buffer.length() - bufferIndex)
+			return false;
+		for (int i = startIndex; i < endIndex; i++)
+		{
+			if (text.charAt(i) != buffer.charAt(bufferIndex++))
+				return false;
+		}
+		return true;
 	}
 
 	//------------------------------------------------------------------
@@ -1252,7 +1762,7 @@ class TextSearcher
 				}
 				else
 				{
-					String replacement = createReplacementString(replacementStr, matcher, regex);
+					String replacement = replacementTemplate.apply(matcher, text);
 					SwingUtilities.invokeAndWait(() ->
 					{
 						getWindow().getTextModel().replace(replacementKind, matcher.start(), matcher.end(),
@@ -1286,6 +1796,124 @@ class TextSearcher
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Replaces the current match and all the remaining matches in the text in a single forward pass.  The unchanged
+	 * spans of the text and the replacements are appended to a new buffer, which is then passed to the text model, so
+	 * that the text model is updated once rather than once for each match.  A subsequent match is found in the
+	 * original text, not in the text that results from earlier replacements, as it is when files are searched on
+	 * worker threads.
+	 *
+	 * @return {@code true} if the search should continue.
+	 */
+
+	private boolean replaceAll()
+	{
+		try
+		{
+			try
+			{
+				// Search a copy of the text, so that spans of it can be appended to the new buffer in bulk
+				String source = text.toString();
+				int startIndex = matcher.start();
+				guardedText.setText(source);
+				guardedText.resumeTimer();
+				matcher.reset(guardedText);
+				matcher.find(startIndex);
+
+				// Append unchanged spans and replacements to new buffer
+				StringBuilder outBuffer = new StringBuilder(source.length());
+				boolean changed = false;
+				int index = 0;
+				int replacementStart = 0;
+				int replacementEnd = 0;
+				int numReplaced = 0;
+				while (true)
+				{
+					// Stop if the task has been cancelled; the text is left unchanged
+					if (Task.isCancelled())
+						return true;
+
+					// Replace match
+					outBuffer.append(source, index, matcher.start());
+					replacementStart = outBuffer.length();
+					replacementTemplate.append(matcher, source, outBuffer);
+					replacementEnd = outBuffer.length();
+					if (!changed)
+						changed = !regionEquals(source, matcher.start(), matcher.end(), outBuffer, replacementStart);
+					index = matcher.end();
+					++numReplaced;
+
+					// Find next match
+					if (!matcher.find())
+						break;
+				}
+				outBuffer.append(source, index, source.length());
+
+				// Update counts; the current match has already been counted
+				numMatchesInFile += numReplaced - 1;
+				numMatches += numReplaced - 1;
+				numReplacementsInFile += numReplaced;
+
+				// Pass new text to text model, selecting the last replacement
+				if (changed)
+				{
+					PieceTable pieceTable = new PieceTable(outBuffer);
+					text = pieceTable;
+					int selectionStart = replacementStart;
+					int selectionEnd = replacementEnd;
+					SwingUtilities.invokeAndWait(() ->
+					{
+						getWindow().getTextModel().replaceText(pieceTable, selectionStart, selectionEnd);
+						getWindow().makeTextSelectionViewable();
+					});
+				}
+				return true;
+			}
+			catch (InterruptibleCharSequence.TimeLimitExceededException e)
+			{
+				// The text is left unchanged
+				addTimedOut(targetFile);
+				return true;
+			}
+			catch (InterruptibleCharSequence.CancelledException e)
+			{
+				return true;
+			}
+			catch (OutOfMemoryError e)
+			{
+				throw new FileException(ErrorId.NOT_ENOUGH_MEMORY_TO_REPLACE, targetFile);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw new FileException(ErrorId.ERROR_DURING_REPLACEMENT, targetFile, e.getCause());
+			}
+			catch (Exception e)
+			{
+				throw new FileException(ErrorId.ERROR_DURING_REPLACEMENT, targetFile, e);
+			}
+			finally
+			{
+				guardedText.suspendTimer();
+			}
+		}
+		catch (AppException e)
+		{
+			addUnprocessed(targetFile);
+			return confirmContinue(e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void addTimedOut(
+		File	file)
+	{
+		if (file != null)
+			timedOutFiles.add(file);
+	}
+
+	//------------------------------------------------------------------
+
 	private void addUnprocessed(
 		File	file)
 	{
@@ -1297,7 +1925,8 @@ class TextSearcher
 
 	private FileResult getFileResult()
 	{
-		return new FileResult(targetFile, numMatchesInFile, (replacementStr == null) ? -1 : numReplacementsInFile);
+		return new FileResult(targetFile, numMatchesInFile, (replacementStr == null) ? -1 : numReplacementsInFile,
+							  null);
 	}
 
 	//------------------------------------------------------------------
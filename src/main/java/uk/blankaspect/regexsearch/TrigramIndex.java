@@ -0,0 +1,865 @@
+/*====================================================================*\
+
+TrigramIndex.java
+
+Class: persistent trigram index of the files beneath a directory.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.regexsearch;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.blankaspect.common.exception.AppException;
+import uk.blankaspect.common.exception.FileException;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: PERSISTENT TRIGRAM INDEX OF THE FILES BENEATH A DIRECTORY
+
+
+/**
+ * This class implements an index of the trigrams (sequences of three characters) of the text of the files beneath a
+ * root directory, so that a search can skip a file that cannot contain all the literals that every match of the
+ * search target must contain, without opening the file.
+ * <p>
+ * The index holds the size and modification time of each indexed file, and a list of the indexed files that contain
+ * each trigram (a <i>posting list</i>).  A file whose size or modification time differs from that in the index is not
+ * tested against the index; it is searched in full, and its entry is replaced.  An entry that is replaced, or whose
+ * file no longer exists when the index is written, is marked as dead, and the posting lists are compacted when the
+ * index is written if more than half the entries are dead.
+ * </p>
+ * <p>
+ * The characters of a trigram are folded to lower case, so that the same index serves searches that match case and
+ * those that ignore it.  A trigram is stored as an integer that holds the low ten bits of each character, so two
+ * trigrams may share a posting list; this can make the index report that a file may contain a literal when it does
+ * not, but never the reverse.
+ * </p>
+ * <p>
+ * The methods of this class are synchronised, so an index may be used by several search threads.
+ * </p>
+ */
+
+class TrigramIndex
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum length of the text of a file that is indexed. */
+	private static final	int		MAX_INDEXED_TEXT_LENGTH	= 1 << 24;
+
+	private static final	int		FILE_ID		= 0x52535449;	// "RSTI"
+	private static final	int		VERSION		= 0;
+
+	private static final	String	FILENAME_PREFIX		= "trigrams-";
+	private static final	String	FILENAME_EXTENSION	= ".bin";
+	private static final	String	TEMP_FILENAME_SUFFIX	= ".tmp";
+
+	private static final	String	DIGEST_ALGORITHM	= "SHA-1";
+
+	private static final	int		CHAR_MASK			= 0x3FF;
+	private static final	int		BITS_PER_CHAR		= 10;
+
+	private static final	int		INITIAL_POSTING_LIST_LENGTH	= 4;
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		FAILED_TO_CREATE_DIRECTORY
+		("Failed to create the directory for the search index."),
+
+		ERROR_WRITING_FILE
+		("An error occurred when writing the search index."),
+
+		FAILED_TO_RENAME_FILE
+		("Failed to rename the temporary file of the search index."),
+
+		FILE_ACCESS_NOT_PERMITTED
+		("Access to the search index was not permitted.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(
+			String	message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	File					file;
+	private	String					rootPathname;
+	private	String					charsetName;
+	private	List<Entry>				entries;
+	private	Map<String, Integer>	ids;
+	private	Map<Integer, Postings>	postings;
+	private	int						numDeadEntries;
+	private	BitSet					candidates;
+	private	int						numQueriedEntries;
+	private	boolean					changed;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private TrigramIndex(
+		File	file,
+		String	rootPathname,
+		Charset	charset)
+	{
+		// Initialise instance variables
+		this.file = file;
+		this.rootPathname = rootPathname;
+		charsetName = charset.name();
+		entries = new ArrayList<>();
+		ids = new HashMap<>();
+		postings = new HashMap<>();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reads the index of the specified root directory from the specified directory of indexes.  If there is no index,
+	 * or it cannot be read, or it was created for a different character encoding, an empty index is returned.
+	 *
+	 * @param  directory
+	 *           the directory of indexes.
+	 * @param  root
+	 *           the root directory whose files are indexed.
+	 * @param  charset
+	 *           the character encoding of the indexed files.
+	 * @return the index of {@code root}.
+	 */
+
+	public static TrigramIndex read(
+		File	directory,
+		File	root,
+		Charset	charset)
+	{
+		String rootPathname = root.getAbsolutePath();
+		File file = new File(directory, FILENAME_PREFIX + getDigest(rootPathname) + FILENAME_EXTENSION);
+		TrigramIndex index = new TrigramIndex(file, rootPathname, charset);
+		if (file.isFile())
+		{
+			try (DataInputStream inStream =
+					new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()))))
+			{
+				index.read(inStream);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				// Discard an index that can't be read
+				index = new TrigramIndex(file, rootPathname, charset);
+			}
+		}
+		return index;
+	}
+
+	//------------------------------------------------------------------
+
+	private static String getDigest(
+		String	str)
+	{
+		try
+		{
+			StringBuilder buffer = new StringBuilder();
+			for (byte b : MessageDigest.getInstance(DIGEST_ALGORITHM).digest(str.getBytes(StandardCharsets.UTF_8)))
+				buffer.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+			return buffer.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			return Integer.toHexString(str.hashCode());
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static char fold(
+		char	ch)
+	{
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+	//------------------------------------------------------------------
+
+	private static int toTrigram(
+		char	ch0,
+		char	ch1,
+		char	ch2)
+	{
+		return ((((ch0 & CHAR_MASK) << BITS_PER_CHAR) | (ch1 & CHAR_MASK)) << BITS_PER_CHAR) | (ch2 & CHAR_MASK);
+	}
+
+	//------------------------------------------------------------------
+
+	private static void writeVarInt(
+		DataOutputStream	outStream,
+		int					value)
+		throws IOException
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			outStream.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		outStream.writeByte(value);
+	}
+
+	//------------------------------------------------------------------
+
+	private static int readVarInt(
+		DataInputStream	inStream)
+		throws IOException
+	{
+		int value = 0;
+		int shift = 0;
+		while (true)
+		{
+			int b = inStream.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				break;
+			shift += 7;
+		}
+		return value;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if the specified file is beneath the root directory of this index.
+	 *
+	 * @param  file
+	 *           the file of interest.
+	 * @return {@code true} if {@code file} is beneath the root directory of this index.
+	 */
+
+	public boolean contains(
+		File	file)
+	{
+		String pathname = file.getAbsolutePath();
+		return (pathname.length() > rootPathname.length()) && pathname.startsWith(rootPathname)
+				&& ((pathname.charAt(rootPathname.length()) == File.separatorChar)
+						|| rootPathname.endsWith(File.separator));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the length of the pathname of the root directory of this index.
+	 *
+	 * @return the length of the pathname of the root directory of this index.
+	 */
+
+	public int getRootPathnameLength()
+	{
+		return rootPathname.length();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified file has an entry in this index whose size and modification time are
+	 * those of the specified stamp.
+	 *
+	 * @param  file
+	 *           the file of interest, which must be beneath the root directory of this index.
+	 * @param  stamp
+	 *           the size and modification time of {@code file}.  It may be {@code null}.
+	 * @return {@code true} if the entry of {@code file} in this index is up to date.
+	 */
+
+	public synchronized boolean isIndexed(
+		File	file,
+		Stamp	stamp)
+	{
+		if (stamp == null)
+			return false;
+		Integer id = ids.get(getRelativePathname(file));
+		if (id == null)
+			return false;
+		Entry entry = entries.get(id);
+		entry.seen = true;
+		return stamp.equals(entry.stamp);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the text of the specified indexed file may contain all the literals of the requirement
+	 * that was last set on this index.
+	 *
+	 * @param  file
+	 *           the file of interest, which must be up to date in this index.
+	 * @return {@code true} if {@code file} may contain a match; {@code false} if it cannot.
+	 */
+
+	public synchronized boolean mayMatch(
+		File	file)
+	{
+		Integer id = ids.get(getRelativePathname(file));
+		return (id == null) || (candidates == null) || (id >= numQueriedEntries) || candidates.get(id);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the requirement against which indexed files are tested by {@link #mayMatch(File)}.  The files that contain
+	 * every trigram of the literals of the requirement are found from the posting lists.
+	 *
+	 * @param requirement
+	 *          the literals that every match must contain.
+	 */
+
+	public synchronized void setRequirement(
+		MatchRequirement	requirement)
+	{
+		candidates = null;
+		numQueriedEntries = entries.size();
+		for (String literal : requirement.getLiterals())
+		{
+			for (int i = 2; i < literal.length(); i++)
+			{
+				// Fold characters of trigram; when case is ignored, skip a trigram whose characters may match a
+				// character that folds differently
+				char ch0 = fold(literal.charAt(i - 2));
+				char ch1 = fold(literal.charAt(i - 1));
+				char ch2 = fold(literal.charAt(i));
+				if (requirement.isIgnoreCase() && ((fold(ch0) != ch0) || (fold(ch1) != ch1) || (fold(ch2) != ch2)))
+					continue;
+
+				// Intersect set of candidate files with posting list of trigram
+				BitSet files = new BitSet(entries.size());
+				Postings trigramPostings = postings.get(toTrigram(ch0, ch1, ch2));
+				if (trigramPostings != null)
+				{
+					for (int j = 0; j < trigramPostings.length; j++)
+						files.set(trigramPostings.ids[j]);
+				}
+				if (candidates == null)
+					candidates = files;
+				else
+					candidates.and(files);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Replaces the entry of the specified file in this index with one for the specified text.  A text that is too
+	 * long to be indexed is ignored.
+	 *
+	 * @param file
+	 *          the file whose entry will be replaced, which must be beneath the root directory of this index.
+	 * @param stamp
+	 *          the size and modification time of {@code file} before it was read.  If it is {@code null}, the file is
+	 *          not indexed.
+	 * @param text
+	 *          the text of {@code file}.
+	 */
+
+	public void update(
+		File			file,
+		Stamp			stamp,
+		CharSequence	text)
+	{
+		if ((stamp == null) || (text.length() > MAX_INDEXED_TEXT_LENGTH))
+			return;
+
+		// Get distinct trigrams of text outside the lock
+		int numTrigrams = Math.max(0, text.length() - 2);
+		int[] trigrams = new int[numTrigrams];
+		if (numTrigrams > 0)
+		{
+			char ch0 = 0;
+			char ch1 = fold(text.charAt(0));
+			char ch2 = fold(text.charAt(1));
+			for (int i = 0; i < numTrigrams; i++)
+			{
+				ch0 = ch1;
+				ch1 = ch2;
+				ch2 = fold(text.charAt(i + 2));
+				trigrams[i] = toTrigram(ch0, ch1, ch2);
+			}
+			Arrays.sort(trigrams);
+			int length = 1;
+			for (int i = 1; i < numTrigrams; i++)
+			{
+				if (trigrams[i] != trigrams[length - 1])
+					trigrams[length++] = trigrams[i];
+			}
+			numTrigrams = length;
+		}
+
+		// Replace entry
+		synchronized (this)
+		{
+			String pathname = getRelativePathname(file);
+			Integer oldId = ids.get(pathname);
+			if (oldId != null)
+			{
+				entries.get(oldId).dead = true;
+				++numDeadEntries;
+			}
+			int id = entries.size();
+			Entry entry = new Entry(pathname, stamp);
+			entry.seen = true;
+			entries.add(entry);
+			ids.put(pathname, id);
+			for (int i = 0; i < numTrigrams; i++)
+				postings.computeIfAbsent(trigrams[i], key -> new Postings()).add(id);
+			changed = true;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes this index to its file if it has changed since it was read.  The index is written to a temporary file
+	 * that then replaces the file of the index.
+	 *
+	 * @throws AppException
+	 *           if an error occurs when writing the index.
+	 */
+
+	public synchronized void write()
+		throws AppException
+	{
+		// Don't write an index that hasn't changed
+		if (!changed)
+			return;
+
+		// Mark the entries of files that no longer exist as dead
+		for (Entry entry : entries)
+		{
+			if (!entry.dead && !entry.seen && !new File(rootPathname, entry.pathname).isFile())
+			{
+				entry.dead = true;
+				ids.remove(entry.pathname);
+				++numDeadEntries;
+			}
+		}
+
+		// Remove dead entries if they are in the majority
+		if (numDeadEntries > entries.size() - numDeadEntries)
+			compact();
+
+		// Create directory
+		File directory = file.getAbsoluteFile().getParentFile();
+		try
+		{
+			if (!directory.exists() && !directory.mkdirs())
+				throw new FileException(ErrorId.FAILED_TO_CREATE_DIRECTORY, directory);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_ACCESS_NOT_PERMITTED, directory, e);
+		}
+
+		// Write temporary file
+		File tempFile = new File(directory, file.getName() + TEMP_FILENAME_SUFFIX);
+		try (DataOutputStream outStream =
+				new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))))
+		{
+			write(outStream);
+		}
+		catch (IOException e)
+		{
+			tempFile.delete();
+			throw new FileException(ErrorId.ERROR_WRITING_FILE, tempFile, e);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_ACCESS_NOT_PERMITTED, tempFile, e);
+		}
+
+		// Replace file of index with temporary file
+		try
+		{
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					   StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			tempFile.delete();
+			throw new FileException(ErrorId.FAILED_TO_RENAME_FILE, tempFile, e);
+		}
+		catch (SecurityException e)
+		{
+			throw new FileException(ErrorId.FILE_ACCESS_NOT_PERMITTED, file, e);
+		}
+		changed = false;
+	}
+
+	//------------------------------------------------------------------
+
+	private String getRelativePathname(
+		File	file)
+	{
+		String pathname = file.getAbsolutePath();
+		int index = rootPathname.length();
+		if ((index < pathname.length()) && (pathname.charAt(index) == File.separatorChar))
+			++index;
+		return pathname.substring(index);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Removes the dead entries and renumbers the live ones.
+	 */
+
+	private void compact()
+	{
+		// Renumber live entries
+		int[] newIds = new int[entries.size()];
+		List<Entry> liveEntries = new ArrayList<>();
+		ids.clear();
+		for (int i = 0; i < entries.size(); i++)
+		{
+			Entry entry = entries.get(i);
+			if (entry.dead)
+				newIds[i] = -1;
+			else
+			{
+				newIds[i] = liveEntries.size();
+				ids.put(entry.pathname, liveEntries.size());
+				liveEntries.add(entry);
+			}
+		}
+		entries = liveEntries;
+		numDeadEntries = 0;
+
+		// Remove dead entries from posting lists
+		postings.values().removeIf(trigramPostings ->
+		{
+			int length = 0;
+			for (int i = 0; i < trigramPostings.length; i++)
+			{
+				int id = newIds[trigramPostings.ids[i]];
+				if (id >= 0)
+					trigramPostings.ids[length++] = id;
+			}
+			trigramPostings.length = length;
+			return (length == 0);
+		});
+		candidates = null;
+	}
+
+	//------------------------------------------------------------------
+
+	private void read(
+		DataInputStream	inStream)
+		throws IOException
+	{
+		// Read header; ignore an index of another version, root directory or character encoding
+		if ((inStream.readInt() != FILE_ID) || (inStream.readInt() != VERSION)
+				|| !inStream.readUTF().equals(rootPathname) || !inStream.readUTF().equals(charsetName))
+			return;
+
+		// Read entries
+		int numEntries = inStream.readInt();
+		for (int i = 0; i < numEntries; i++)
+		{
+			String pathname = inStream.readUTF();
+			Entry entry = new Entry(pathname, new Stamp(inStream.readLong(), inStream.readLong()));
+			if (entry.dead)
+				++numDeadEntries;
+			else
+				ids.put(pathname, i);
+			entries.add(entry);
+		}
+
+		// Read posting lists, whose identifiers are stored as differences
+		int numTrigrams = inStream.readInt();
+		for (int i = 0; i < numTrigrams; i++)
+		{
+			int trigram = inStream.readInt();
+			int length = readVarInt(inStream);
+			Postings trigramPostings = new Postings(length);
+			int id = 0;
+			for (int j = 0; j < length; j++)
+			{
+				id += readVarInt(inStream);
+				if (id >= numEntries)
+					throw new IOException();
+				trigramPostings.add(id);
+			}
+			postings.put(trigram, trigramPostings);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void write(
+		DataOutputStream	outStream)
+		throws IOException
+	{
+		// Write header
+		outStream.writeInt(FILE_ID);
+		outStream.writeInt(VERSION);
+		outStream.writeUTF(rootPathname);
+		outStream.writeUTF(charsetName);
+
+		// Write entries; a dead entry is written with an empty pathname so that identifiers are preserved
+		outStream.writeInt(entries.size());
+		for (Entry entry : entries)
+		{
+			outStream.writeUTF(entry.dead ? "" : entry.pathname);
+			outStream.writeLong(entry.dead ? -1 : entry.stamp.size());
+			outStream.writeLong(entry.dead ? -1 : entry.stamp.lastModified());
+		}
+
+		// Write posting lists
+		outStream.writeInt(postings.size());
+		for (Map.Entry<Integer, Postings> mapEntry : postings.entrySet())
+		{
+			Postings trigramPostings = mapEntry.getValue();
+			outStream.writeInt(mapEntry.getKey());
+			writeVarInt(outStream, trigramPostings.length);
+			int prevId = 0;
+			for (int i = 0; i < trigramPostings.length; i++)
+			{
+				int id = trigramPostings.ids[i];
+				writeVarInt(outStream, id - prevId);
+				prevId = id;
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: SIZE AND MODIFICATION TIME OF A FILE
+
+
+	/**
+	 * This record holds the size and modification time of a file, from which a change to the file is detected.
+	 */
+
+	record Stamp(
+		long	size,
+		long	lastModified)
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns the stamp of the specified file.
+		 *
+		 * @param  file
+		 *           the file of interest.
+		 * @return the stamp of {@code file}, or {@code null} if its attributes could not be read.
+		 */
+
+		public static Stamp of(
+			File	file)
+		{
+			try
+			{
+				BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+				return new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+			}
+			catch (IOException | SecurityException e)
+			{
+				return null;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: ENTRY OF AN INDEXED FILE
+
+
+	private static class Entry
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	pathname;
+		private	Stamp	stamp;
+		private	boolean	dead;
+		private	boolean	seen;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Entry(
+			String	pathname,
+			Stamp	stamp)
+		{
+			// Initialise instance variables
+			this.pathname = pathname;
+			this.stamp = stamp;
+			dead = pathname.isEmpty();
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: POSTING LIST OF A TRIGRAM
+
+
+	/**
+	 * This class holds the identifiers of the files that contain a trigram, in ascending order.
+	 */
+
+	private static class Postings
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int[]	ids;
+		private	int		length;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Postings()
+		{
+			this(INITIAL_POSTING_LIST_LENGTH);
+		}
+
+		//--------------------------------------------------------------
+
+		private Postings(
+			int	capacity)
+		{
+			ids = new int[Math.max(1, capacity)];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private void add(
+			int	id)
+		{
+			if (length == ids.length)
+				ids = Arrays.copyOf(ids, 2 * length);
+			ids[length++] = id;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------